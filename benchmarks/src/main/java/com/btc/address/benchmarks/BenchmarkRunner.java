@@ -0,0 +1,80 @@
+package com.btc.address.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point of {@code benchmarks.jar}.
+ * <ul>
+ *   <li>{@code java -jar benchmarks.jar [jmh options]} runs JMH and writes {@code jmh-result.json}
+ *   unless a result format is given explicitly.</li>
+ *   <li>{@code java -jar benchmarks.jar compare <baseline.json> <current.json> [maxRegression]} exits
+ *   with status 1 when a benchmark got worse than {@code maxRegression} (default 0.10), so upgrades
+ *   can be gated on recorded results.</li>
+ * </ul>
+ */
+public final class BenchmarkRunner {
+
+    private static final double DEFAULT_MAX_REGRESSION = 0.10;
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "compare".equals(args[0])) {
+            if (args.length < 3) {
+                System.err.println("Usage: compare <baseline.json> <current.json> [maxRegression]");
+                System.exit(2);
+            }
+            double maxRegression = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_MAX_REGRESSION;
+            System.exit(compare(Path.of(args[1]), Path.of(args[2]), maxRegression) ? 0 : 1);
+        }
+
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) jmhArgs.addAll(List.of("-rf", "json"));
+        if (!jmhArgs.contains("-rff")) jmhArgs.addAll(List.of("-rff", "jmh-result.json"));
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(String[]::new));
+    }
+
+    /**
+     * Prints every benchmark present in both files and returns false if one regressed beyond the limit.
+     * Throughput must not drop; every other mode (time per operation) must not grow.
+     */
+    static boolean compare(Path baseline, Path current, double maxRegression) throws IOException {
+        Map<String, JsonNode> before = index(baseline);
+        Map<String, JsonNode> after = index(current);
+        boolean ok = true;
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode old = before.get(entry.getKey());
+            if (old == null) continue;
+            double was = old.path("primaryMetric").path("score").asDouble();
+            double now = entry.getValue().path("primaryMetric").path("score").asDouble();
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+            double regression = was == 0 ? 0 : (higherIsBetter ? (was - now) / was : (now - was) / was);
+            boolean failed = regression > maxRegression;
+            ok &= !failed;
+            System.out.printf("%s %-90s %14.3f -> %14.3f %s (%+.1f%%)%n",
+                    failed ? "FAIL" : "ok  ", entry.getKey(), was, now,
+                    entry.getValue().path("primaryMetric").path("scoreUnit").asText(), -regression * 100);
+        }
+        return ok;
+    }
+
+    private static Map<String, JsonNode> index(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText())
+                    .append(' ').append(run.path("mode").asText());
+            run.path("params").properties().forEach(p -> key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+            results.put(key.toString(), run);
+        }
+        return results;
+    }
+}
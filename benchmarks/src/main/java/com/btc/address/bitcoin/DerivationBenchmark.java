@@ -0,0 +1,77 @@
+package com.btc.address.bitcoin;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key preparation, single-index derivation (bitcoinj and the specialized external chain) and hashing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DerivationBenchmark {
+
+    /** BIP84 test vector account key (mnemonic "abandon ... about"). */
+    static final String ZPUB = "zpub6rFR7y4Q2AijBEqTUquhVz398htDFrtymD9xYYfG1m4wAcvPhXNfE3EfH1r1ADqtfSdVCToUG868RvUUkgDKf31mGDtKsAYz2oz2AGutZYs";
+
+    @Param({"100"})
+    int range;
+
+    private DeterministicKey externalChainKey;
+    private ExternalChainDeriver chain;
+    private String salt;
+    private String address;
+    private int index;
+
+    @Setup
+    public void setup() {
+        externalChainKey = BIP84Deriver.createMasterKey(ZPUB);
+        chain = ExternalChainDeriver.create(ZPUB);
+        salt = BIP84Deriver.generateSaltFromXpub(ZPUB);
+        address = BIP84Deriver.deriveAddress(externalChainKey, 0).address();
+    }
+
+    @Benchmark
+    public DeterministicKey createMasterKey() {
+        return BIP84Deriver.createMasterKey(ZPUB);
+    }
+
+    @Benchmark
+    public BIP84Deriver.DerivedAddress deriveAddressBitcoinj() {
+        return BIP84Deriver.deriveAddress(externalChainKey, nextIndex());
+    }
+
+    @Benchmark
+    public BIP84Deriver.DerivedAddress deriveAddressExternalChain() {
+        return chain.deriveAddress(nextIndex());
+    }
+
+    /** Ops/s of whole ranges; divide by {@code range} for per-address throughput. */
+    @Benchmark
+    public List<BIP84Deriver.DerivedAddress> deriveRangeExternalChain() {
+        int start = nextIndex();
+        return chain.deriveRange(start, start + range);
+    }
+
+    @Benchmark
+    public String generateHash() {
+        return BIP84Deriver.generateHash(address, salt);
+    }
+
+    @Benchmark
+    public String generateSaltFromXpub() {
+        return BIP84Deriver.generateSaltFromXpub(ZPUB);
+    }
+
+    /** Walks the first million indices so results are not dominated by one key. */
+    private int nextIndex() {
+        index = (index + 1) % 1_000_000;
+        return index;
+    }
+}
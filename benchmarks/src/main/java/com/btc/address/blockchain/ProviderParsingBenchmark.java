@@ -0,0 +1,96 @@
+package com.btc.address.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of recorded provider responses (see {@code fixtures/}) for a 20-address batch.
+ * The {@code *Tree} methods are the previous decoding (body as a String, then a JsonNode tree), kept
+ * as the baseline for the streaming decoders; compare them with {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProviderParsingBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] blockchair;
+    private byte[] blockchainInfo;
+    private byte[] mempool;
+    private List<String> blockchairAddresses;
+    private List<String> blockchainInfoAddresses;
+
+    @Setup
+    public void setup() throws IOException {
+        blockchair = fixture("blockchair-dashboards.json");
+        blockchainInfo = fixture("blockchain-info-balance.json");
+        mempool = fixture("mempool-address.json");
+
+        blockchairAddresses = new ArrayList<>();
+        mapper.readTree(blockchair).get("data").fieldNames().forEachRemaining(blockchairAddresses::add);
+        blockchainInfoAddresses = new ArrayList<>();
+        mapper.readTree(blockchainInfo).fieldNames().forEachRemaining(blockchainInfoAddresses::add);
+    }
+
+    @Benchmark
+    public Map<String, Boolean> blockchair() throws IOException {
+        return ProviderResponseDecoder.blockchair(new ByteArrayInputStream(blockchair), blockchairAddresses);
+    }
+
+    @Benchmark
+    public Map<String, Boolean> blockchainInfo() throws IOException {
+        return ProviderResponseDecoder.blockchainInfo(new ByteArrayInputStream(blockchainInfo), blockchainInfoAddresses);
+    }
+
+    @Benchmark
+    public boolean mempool() throws IOException {
+        return ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(mempool));
+    }
+
+    @Benchmark
+    public Map<String, Boolean> blockchairTree() throws IOException {
+        Map<String, Boolean> results = new HashMap<>();
+        JsonNode data = mapper.readTree(new String(blockchair, StandardCharsets.UTF_8)).path("data");
+        for (String addr : blockchairAddresses) {
+            results.put(addr, data.path(addr).path("address").path("transaction_count").asInt(0) > 0);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Map<String, Boolean> blockchainInfoTree() throws IOException {
+        Map<String, Boolean> results = new HashMap<>();
+        JsonNode root = mapper.readTree(new String(blockchainInfo, StandardCharsets.UTF_8));
+        for (String addr : blockchainInfoAddresses) {
+            results.put(addr, root.path(addr).path("n_tx").asInt(0) > 0);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public boolean mempoolTree() throws IOException {
+        JsonNode root = mapper.readTree(new String(mempool, StandardCharsets.UTF_8));
+        return root.path("chain_stats").path("tx_count").asInt(0) + root.path("mempool_stats").path("tx_count").asInt(0) > 0;
+    }
+
+    private static byte[] fixture(String name) throws IOException {
+        try (InputStream in = ProviderParsingBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IOException("Missing fixture " + name);
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.btc.address.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lookup, durable insert and snapshot latency of {@link AddressCacheManager} at realistic sizes.
+ * The manager runs outside CDI on a temporary directory.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddressCacheBenchmark {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int LOOKUP_BATCH = 100;
+    private static final int INSERT_BATCH = 20;
+
+    @Param({"10000", "1000000"})
+    int entries;
+
+    private Path dir;
+    private AddressCacheManager cache;
+    private List<String> known;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("btc-cache-bench");
+        cache = new AddressCacheManager();
+        cache.dataPath = dir.toString();
+        cache.registry = new SimpleMeterRegistry();
+        cache.compactionThreshold = Long.MAX_VALUE;
+        cache.compactionInterval = Duration.ofDays(1);
+        cache.clusterPeers = Optional.empty();
+        cache.init();
+
+        known = new ArrayList<>(entries);
+        Map<String, Boolean> chunk = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            String hash = randomHash();
+            known.add(hash);
+            chunk.put(hash, (i & 3) == 0);
+            if (chunk.size() == 10_000) {
+                cache.addEntries(AddressCacheManager.DEFAULT_SHARD, chunk);
+                chunk.clear();
+            }
+        }
+        cache.addEntries(AddressCacheManager.DEFAULT_SHARD, chunk);
+        cache.saveCache();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cache.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    /** One gap-limit window: 100 hashes, three quarters of them present. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Map<String, Boolean> getMultiStatus() {
+        List<String> batch = new ArrayList<>(LOOKUP_BATCH);
+        for (int i = 0; i < LOOKUP_BATCH; i++) {
+            batch.add((i & 3) == 3 ? randomHash() : known.get(random.nextInt(known.size())));
+        }
+        return cache.getMultiStatus(AddressCacheManager.DEFAULT_SHARD, batch);
+    }
+
+    /** One provider batch worth of results, including the journal group commit. */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void addEntries() {
+        Map<String, Boolean> batch = new HashMap<>();
+        for (int i = 0; i < INSERT_BATCH; i++) batch.put(randomHash(), false);
+        cache.addEntries(AddressCacheManager.DEFAULT_SHARD, batch);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    public void saveCache() {
+        cache.saveCache();
+    }
+
+    private String randomHash() {
+        byte[] digest = new byte[32];
+        random.nextBytes(digest);
+        return HEX.formatHex(digest);
+    }
+}
@@ -0,0 +1,112 @@
+package com.btc.address.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from a cold {@link AddressCacheManager} to its first answered gap-limit lookup, which is what the
+ * first {@code /next} after a restart waits for, on a synthetic snapshot. Compares background warmup with
+ * loading the snapshot up front. The snapshot stays in the OS page cache between invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CacheStartupBenchmark {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int GAP_LIMIT = 100;
+
+    @Param({"1000000"})
+    int entries;
+
+    @Param({"true", "false"})
+    boolean asyncWarmup;
+
+    private Path dir;
+    private List<String> window;
+    private AddressCacheManager cache;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        dir = Files.createTempDirectory("btc-cache-startup");
+        AddressCacheManager writer = newManager(false);
+        SplittableRandom random = new SplittableRandom(42);
+        window = new ArrayList<>(GAP_LIMIT);
+        Map<String, Boolean> chunk = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            byte[] digest = new byte[32];
+            random.nextBytes(digest);
+            String hash = HEX.formatHex(digest);
+            if (window.size() < GAP_LIMIT) window.add(hash);
+            chunk.put(hash, (i & 3) == 0);
+            if (chunk.size() == 10_000) {
+                writer.addEntries(AddressCacheManager.DEFAULT_SHARD, chunk);
+                chunk.clear();
+            }
+        }
+        writer.addEntries(AddressCacheManager.DEFAULT_SHARD, chunk);
+        writer.saveCache();
+        writer.shutdown();
+    }
+
+    @Setup(Level.Invocation)
+    public void newCache() {
+        cache = newManager(asyncWarmup);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeCache() {
+        cache.shutdown();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    /** Shard open plus one lookup of a full gap-limit window. */
+    @Benchmark
+    public Map<String, Boolean> firstLookup() {
+        return cache.getMultiStatus(AddressCacheManager.DEFAULT_SHARD, window);
+    }
+
+    /** Same, then waits until the whole snapshot is in memory. */
+    @Benchmark
+    public Map<String, Boolean> fullyWarm() throws InterruptedException {
+        Map<String, Boolean> result = cache.getMultiStatus(AddressCacheManager.DEFAULT_SHARD, window);
+        while (cache.registry.get("btc.cache.warming").gauge().value() > 0) Thread.sleep(1);
+        return result;
+    }
+
+    private AddressCacheManager newManager(boolean async) {
+        AddressCacheManager manager = new AddressCacheManager();
+        manager.dataPath = dir.toString();
+        manager.registry = new SimpleMeterRegistry();
+        manager.compactionThreshold = Long.MAX_VALUE;
+        manager.compactionInterval = Duration.ofDays(1);
+        manager.clusterPeers = Optional.empty();
+        manager.asyncWarmup = async;
+        manager.init();
+        return manager;
+    }
+}
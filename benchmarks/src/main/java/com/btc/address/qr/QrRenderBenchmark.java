@@ -0,0 +1,54 @@
+package com.btc.address.qr;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QR encoding and SVG/PNG writing for a typical {@code bitcoin:} URI, uncached and through the LRU.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QrRenderBenchmark {
+
+    private static final String URI = "bitcoin:bc1qcr8te4kr609gcawutmrza0j4xv80jy8z306fyu";
+
+    private ByteMatrix matrix;
+    private QrCodeRenderer renderer;
+
+    @Setup
+    public void setup() throws WriterException {
+        matrix = Encoder.encode(URI, ErrorCorrectionLevel.L).getMatrix();
+        renderer = new QrCodeRenderer(1024);
+        renderer.pngScale = 8;
+        renderer.render(URI, QrFormat.SVG);
+    }
+
+    @Benchmark
+    public ByteMatrix encode() throws WriterException {
+        return Encoder.encode(URI, ErrorCorrectionLevel.L).getMatrix();
+    }
+
+    @Benchmark
+    public byte[] writeSvg() {
+        return QrWriters.svg(matrix, 4);
+    }
+
+    @Benchmark
+    public byte[] writePng() {
+        return QrWriters.png(matrix, 4, 8);
+    }
+
+    @Benchmark
+    public String svgDataUriCached() {
+        return renderer.svgDataUri(URI);
+    }
+}
@@ -0,0 +1,71 @@
+package com.btc.address.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Samples of the application's own Prometheus endpoint ({@code /q/metrics}): heap, allocation, GC
+ * and snapshot-save meters, which the load generator cannot observe from outside.
+ */
+final class AppMetrics {
+
+    /** One scrape; counters are cumulative since the application started. */
+    record Sample(long atNanos, double heapUsedBytes, double allocatedBytes, double gcPauseSeconds,
+                  double cacheSaves, double cacheSaveSeconds, double cacheSaveMaxSeconds) {}
+
+    private final HttpClient client;
+    private final URI uri;
+
+    AppMetrics(HttpClient client, String target) {
+        this.client = client;
+        this.uri = URI.create(target + "/q/metrics");
+    }
+
+    /** Null when the endpoint is unreachable, e.g. metrics are disabled. */
+    Sample scrape() {
+        String text;
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) return null;
+            text = response.body();
+        } catch (IOException _) {
+            return null;
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return new Sample(System.nanoTime(),
+                sum(text, "jvm_memory_used_bytes", "area=\"heap\""),
+                sum(text, "jvm_gc_memory_allocated_bytes_total", null),
+                sum(text, "jvm_gc_pause_seconds_sum", null),
+                sum(text, "btc_cache_save_seconds_count", null),
+                sum(text, "btc_cache_save_seconds_sum", null),
+                sum(text, "btc_cache_save_seconds_max", null));
+    }
+
+    /**
+     * Sum of every series of a metric, optionally restricted to those carrying a label.
+     */
+    private static double sum(String text, String name, String label) {
+        double total = 0;
+        for (String line : text.lines().toList()) {
+            if (!line.startsWith(name) || line.length() == name.length()) continue;
+            char next = line.charAt(name.length());
+            if (next != '{' && next != ' ') continue;
+            if (label != null && !line.contains(label)) continue;
+            String value = line.substring(line.lastIndexOf(' ') + 1);
+            try {
+                total += Double.parseDouble(value);
+            } catch (NumberFormatException _) {
+                // Not a plain number: ignore the series
+            }
+        }
+        return total;
+    }
+}
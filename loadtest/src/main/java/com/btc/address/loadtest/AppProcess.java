@@ -0,0 +1,63 @@
+package com.btc.address.loadtest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application under test, started from its jar with a throwaway cache directory on a free port.
+ * Its output goes to {@code loadtest-app.log}.
+ */
+final class AppProcess implements AutoCloseable {
+
+    private static final Path LOG = Path.of("loadtest-app.log");
+
+    private final Process process;
+    private final int port;
+
+    private AppProcess(Process process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    static AppProcess start(Path jar, List<String> jvmArgs, List<String> properties) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        Path cacheDir = Files.createTempDirectory("btc-loadtest-cache");
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-Dquarkus.http.port=" + port);
+        command.add("-Dbitcoin.cache.path=" + cacheDir);
+        properties.forEach(p -> command.add("-D" + p));
+        command.add("-jar");
+        command.add(jar.toString());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(LOG.toFile())
+                .start();
+        System.out.println("Started " + jar + " on port " + port + " (pid " + process.pid() + ", log " + LOG + ")");
+        return new AppProcess(process, port);
+    }
+
+    String url() {
+        return "http://localhost:" + port;
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly();
+    }
+}
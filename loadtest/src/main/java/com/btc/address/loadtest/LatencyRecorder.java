@@ -0,0 +1,37 @@
+package com.btc.address.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Every latency of one operation, kept whole so that p999 is exact rather than bucketed.
+ * A run at a few thousand requests per second for minutes stays well within a few megabytes.
+ */
+final class LatencyRecorder {
+
+    /** Latency percentiles in milliseconds. */
+    record Summary(long count, long errors, double p50, double p90, double p99, double p999, double max) {}
+
+    private long[] nanos = new long[1 << 12];
+    private int count;
+    private long errors;
+
+    synchronized void record(long latencyNanos, boolean ok) {
+        if (count == nanos.length) nanos = Arrays.copyOf(nanos, count * 2);
+        nanos[count++] = latencyNanos;
+        if (!ok) errors++;
+    }
+
+    synchronized Summary summary() {
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        return new Summary(count, errors, percentile(sorted, 0.50), percentile(sorted, 0.90),
+                percentile(sorted, 0.99), percentile(sorted, 0.999), count == 0 ? 0 : sorted[count - 1] / 1e6);
+    }
+
+    /** Nearest-rank percentile. */
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.clamp(rank - 1, 0, sorted.length - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,229 @@
+package com.btc.address.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: request {@code i} is due at {@code start + i / rate} and gets its own virtual thread, so
+ * a slow application cannot slow the generator down. Latency is measured from the due time, not the send
+ * time, so queueing behind a stall is counted instead of hidden (no coordinated omission).
+ * <p>
+ * Each request picks a wallet at random, then either asks for its next address or verifies one it handed
+ * out earlier. A share of handed-out addresses is "paid" at the mock provider after a delay, which moves
+ * the wallets forward the way customers do.
+ */
+final class LoadGenerator {
+
+    private static final String NEXT = "next";
+    private static final String VERIFY = "verify";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(90);
+    private static final Duration SCRAPE_INTERVAL = Duration.ofSeconds(1);
+    /** Handed-out addresses remembered per wallet as /verify candidates. */
+    private static final int RECENT_ADDRESSES = 1024;
+
+    private final LoadTestOptions options;
+    private final HttpClient client;
+    private final String target;
+    private final List<SyntheticWallet> wallets;
+    private final MockProvider provider;
+    private final AppMetrics metrics;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, List<String>> handedOut = new ConcurrentHashMap<>();
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final ScheduledExecutorService payments = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("loadtest-payments").factory());
+
+    LoadGenerator(LoadTestOptions options, HttpClient client, String target, List<SyntheticWallet> wallets,
+                  MockProvider provider) {
+        this.options = options;
+        this.client = client;
+        this.target = target;
+        this.wallets = wallets;
+        this.provider = provider;
+        this.metrics = new AppMetrics(client, target);
+        recorders.put(NEXT, new LatencyRecorder());
+        recorders.put(VERIFY, new LatencyRecorder());
+        wallets.forEach(w -> handedOut.put(w.id(), new ArrayList<>()));
+    }
+
+    LoadTestReport run() throws InterruptedException {
+        long period = (long) (1e9 / options.rate());
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        System.out.printf("Warming up for %s, then measuring %s at %.1f req/s%n",
+                options.warmup(), options.duration(), options.rate());
+
+        long dropped = 0;
+        boolean measuring = false;
+        Map<String, MockProvider.Stats> providerBefore = null;
+        List<AppMetrics.Sample> samples = new ArrayList<>();
+        long nextScrape = measureFrom;
+        for (long i = 0; ; i++) {
+            long due = start + i * period;
+            if (due >= end) break;
+            if (!measuring && due >= measureFrom) {
+                measuring = true;
+                completed.reset();
+                succeeded.reset();
+                providerBefore = snapshot();
+            }
+            if (measuring && due >= nextScrape) {
+                nextScrape += SCRAPE_INTERVAL.toNanos();
+                Thread.ofVirtual().name("loadtest-scrape").start(() -> {
+                    AppMetrics.Sample s = metrics.scrape();
+                    if (s != null) synchronized (samples) { samples.add(s); }
+                });
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            if (inFlight.get() >= options.maxInFlight()) {
+                if (measuring) dropped++;
+                continue;
+            }
+            inFlight.incrementAndGet();
+            boolean measured = measuring;
+            Thread.ofVirtual().name("loadtest-request").start(() -> {
+                try {
+                    issue(due, measured);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) Thread.sleep(10);
+        payments.shutdownNow();
+        double seconds = options.duration().toNanos() / 1e9;
+        AppMetrics.Sample last = metrics.scrape();
+        if (last != null) synchronized (samples) { samples.add(last); }
+
+        Map<String, LatencyRecorder.Summary> operations = new LinkedHashMap<>();
+        recorders.forEach((op, r) -> operations.put(op, r.summary()));
+        Map<String, LoadTestReport.ProviderCalls> providers = providerCalls(providerBefore, snapshot());
+        long providerRequests = providers.values().stream().mapToLong(LoadTestReport.ProviderCalls::requests).sum();
+        long requests = completed.sum();
+        return new LoadTestReport(options.rate(), seconds, succeeded.sum() / seconds, dropped, operations,
+                requests == 0 ? 0 : (double) providerRequests / requests, providers, jvm(samples));
+    }
+
+    private void issue(long due, boolean measured) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SyntheticWallet wallet = wallets.get(random.nextInt(wallets.size()));
+        String verifyAddress = random.nextDouble() < options.verifyRatio() ? pickHandedOut(wallet, random) : null;
+        String op = verifyAddress != null ? VERIFY : NEXT;
+        String body = verifyAddress != null ? "{\"address\":\"" + verifyAddress + "\"}" : "{}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + wallet.path(op)))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        boolean ok = false;
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            ok = response.statusCode() == 200;
+            if (ok && op.equals(NEXT)) handedOut(wallet, mapper.readTree(response.body()), random);
+        } catch (IOException _) {
+            // Counted as an error below
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+        if (!measured) return;
+        recorders.get(op).record(System.nanoTime() - due, ok);
+        completed.increment();
+        if (ok) succeeded.increment();
+    }
+
+    private void handedOut(SyntheticWallet wallet, JsonNode result, ThreadLocalRandom random) {
+        String address = result.path("address").asText(null);
+        if (address == null) return;
+        List<String> recent = handedOut.get(wallet.id());
+        synchronized (recent) {
+            if (recent.size() == RECENT_ADDRESSES) recent.remove(random.nextInt(RECENT_ADDRESSES));
+            recent.add(address);
+        }
+        if (random.nextDouble() < options.payRatio()) {
+            payments.schedule(() -> provider.markUsed(address), options.payDelay().toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private String pickHandedOut(SyntheticWallet wallet, ThreadLocalRandom random) {
+        List<String> recent = handedOut.get(wallet.id());
+        synchronized (recent) {
+            return recent.isEmpty() ? null : recent.get(random.nextInt(recent.size()));
+        }
+    }
+
+    private Map<String, MockProvider.Stats> snapshot() {
+        Map<String, MockProvider.Stats> copy = new HashMap<>();
+        provider.stats().forEach((key, s) -> {
+            MockProvider.Stats c = new MockProvider.Stats();
+            c.requests.add(s.requests.sum());
+            c.addresses.add(s.addresses.sum());
+            c.rateLimited.add(s.rateLimited.sum());
+            c.failed.add(s.failed.sum());
+            copy.put(key, c);
+        });
+        return copy;
+    }
+
+    private static Map<String, LoadTestReport.ProviderCalls> providerCalls(Map<String, MockProvider.Stats> before,
+                                                                          Map<String, MockProvider.Stats> after) {
+        Map<String, LoadTestReport.ProviderCalls> calls = new LinkedHashMap<>();
+        for (String key : MockProvider.KEYS) {
+            MockProvider.Stats b = before == null ? new MockProvider.Stats() : before.get(key);
+            MockProvider.Stats a = after.get(key);
+            calls.put(key, new LoadTestReport.ProviderCalls(
+                    a.requests.sum() - b.requests.sum(),
+                    a.addresses.sum() - b.addresses.sum(),
+                    a.rateLimited.sum() - b.rateLimited.sum(),
+                    a.failed.sum() - b.failed.sum()));
+        }
+        return calls;
+    }
+
+    private static LoadTestReport.Jvm jvm(List<AppMetrics.Sample> samples) {
+        List<AppMetrics.Sample> sorted;
+        synchronized (samples) {
+            sorted = samples.stream().sorted((a, b) -> Long.compare(a.atNanos(), b.atNanos())).toList();
+        }
+        if (sorted.size() < 2) return null;
+        AppMetrics.Sample first = sorted.getFirst();
+        AppMetrics.Sample last = sorted.getLast();
+        double seconds = (last.atNanos() - first.atNanos()) / 1e9;
+        double mb = 1024 * 1024;
+        long saves = (long) (last.cacheSaves() - first.cacheSaves());
+        return new LoadTestReport.Jvm(
+                sorted.stream().mapToDouble(AppMetrics.Sample::heapUsedBytes).max().orElse(0) / mb,
+                sorted.stream().mapToDouble(AppMetrics.Sample::heapUsedBytes).average().orElse(0) / mb,
+                (last.allocatedBytes() - first.allocatedBytes()) / mb / seconds,
+                last.gcPauseSeconds() - first.gcPauseSeconds(),
+                saves,
+                saves == 0 ? 0 : (last.cacheSaveSeconds() - first.cacheSaveSeconds()) * 1000 / saves,
+                sorted.stream().mapToDouble(AppMetrics.Sample::cacheSaveMaxSeconds).max().orElse(0) * 1000);
+    }
+}
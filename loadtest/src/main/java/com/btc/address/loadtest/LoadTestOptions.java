@@ -0,0 +1,93 @@
+package com.btc.address.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Command line of a run, as {@code key=value} arguments; see the README for the full list.
+ *
+ * @param rate          target requests per second, issued open-loop whatever the response times
+ * @param usedPrefixes  used addresses at the start of each wallet, cycled over the wallets
+ * @param verifyRatio   share of requests that verify an address instead of asking for the next one
+ * @param payRatio      share of handed-out addresses that later receive a payment at the mock provider
+ * @param app           application jar to start against the mock provider; otherwise {@code target} is used
+ */
+record LoadTestOptions(
+        double rate,
+        Duration duration,
+        Duration warmup,
+        int wallets,
+        List<Integer> usedPrefixes,
+        double verifyRatio,
+        double payRatio,
+        Duration payDelay,
+        long seed,
+        int maxInFlight,
+        MockProvider.Faults faults,
+        int mockPort,
+        Optional<Path> app,
+        List<String> appJvmArgs,
+        String target,
+        Path report) {
+
+    private static final Set<String> KEYS = Set.of("rate", "duration", "warmup", "wallets", "used-prefixes",
+            "verify-ratio", "pay-ratio", "pay-delay", "seed", "max-in-flight", "latency", "jitter",
+            "rate-limit-ratio", "failure-ratio", "mock-port", "app", "app-jvm", "target", "report");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg : arg.substring(0, eq).replaceFirst("^--", "");
+            if (eq < 0 || !KEYS.contains(key)) throw new IllegalArgumentException("Unknown argument: " + arg);
+            values.put(key, arg.substring(eq + 1));
+        }
+        Options o = new Options(values);
+        return new LoadTestOptions(
+                o.decimal("rate", 50),
+                o.duration("duration", "PT60S"),
+                o.duration("warmup", "PT10S"),
+                o.integer("wallets", 4),
+                Arrays.stream(o.string("used-prefixes", "0,20,200,2000").split(",")).map(String::trim)
+                        .map(Integer::parseInt).toList(),
+                o.decimal("verify-ratio", 0.2),
+                o.decimal("pay-ratio", 0.3),
+                o.duration("pay-delay", "PT2S"),
+                o.integer("seed", 1),
+                o.integer("max-in-flight", 10_000),
+                new MockProvider.Faults(
+                        o.duration("latency", "PT0.08S"),
+                        o.duration("jitter", "PT0.04S"),
+                        o.decimal("rate-limit-ratio", 0),
+                        o.decimal("failure-ratio", 0)),
+                o.integer("mock-port", 0),
+                Optional.ofNullable(values.get("app")).map(Path::of),
+                Arrays.stream(o.string("app-jvm", "").split("\\s+")).filter(s -> !s.isBlank()).toList(),
+                o.string("target", "http://localhost:8080"),
+                Path.of(o.string("report", "loadtest-report.json")));
+    }
+
+    private record Options(Map<String, String> values) {
+        String string(String key, String defaultValue) {
+            return values.getOrDefault(key, defaultValue);
+        }
+
+        int integer(String key, int defaultValue) {
+            return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+        }
+
+        double decimal(String key, double defaultValue) {
+            return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+        }
+
+        Duration duration(String key, String defaultValue) {
+            return Duration.parse(values.getOrDefault(key, defaultValue));
+        }
+    }
+}
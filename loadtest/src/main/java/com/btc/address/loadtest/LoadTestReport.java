@@ -0,0 +1,89 @@
+package com.btc.address.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Outcome of the measured part of a run (warmup excluded), printed and written as JSON.
+ *
+ * @param throughput               successful requests per second
+ * @param dropped                  requests not issued because {@code max-in-flight} were already waiting
+ * @param providerCallsPerRequest  mock provider HTTP calls per completed request
+ * @param jvm                      application-side meters, null when {@code /q/metrics} was unreachable
+ */
+record LoadTestReport(
+        double targetRate,
+        double seconds,
+        double throughput,
+        long dropped,
+        Map<String, LatencyRecorder.Summary> operations,
+        double providerCallsPerRequest,
+        Map<String, ProviderCalls> providers,
+        Jvm jvm) {
+
+    record ProviderCalls(long requests, long addresses, long rateLimited, long failed) {}
+
+    record Jvm(double heapUsedMaxMb, double heapUsedAvgMb, double allocationMbPerSecond, double gcPauseSeconds,
+               long cacheSaves, double cacheSaveAvgMs, double cacheSaveMaxMs) {}
+
+    void print() {
+        System.out.printf("%nTarget %.1f req/s over %.1f s: %.1f req/s succeeded, %d dropped%n",
+                targetRate, seconds, throughput, dropped);
+        System.out.printf("%-8s %9s %7s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "max ms");
+        operations.forEach((op, s) -> System.out.printf("%-8s %9d %7d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                op, s.count(), s.errors(), s.p50(), s.p90(), s.p99(), s.p999(), s.max()));
+        System.out.printf("Provider calls per request: %.3f%n", providerCallsPerRequest);
+        providers.forEach((key, p) -> System.out.printf("  %-16s %8d calls %10d addresses %6d x 429 %6d x 503%n",
+                key, p.requests(), p.addresses(), p.rateLimited(), p.failed()));
+        if (jvm == null) {
+            System.out.println("Application metrics unavailable");
+            return;
+        }
+        System.out.printf("Heap used: max %.1f MB, avg %.1f MB; allocation %.1f MB/s; GC pauses %.3f s%n",
+                jvm.heapUsedMaxMb(), jvm.heapUsedAvgMb(), jvm.allocationMbPerSecond(), jvm.gcPauseSeconds());
+        System.out.printf("Cache saves: %d, avg %.2f ms, max %.2f ms%n",
+                jvm.cacheSaves(), jvm.cacheSaveAvgMs(), jvm.cacheSaveMaxMs());
+    }
+
+    void write(Path file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), this);
+    }
+
+    /**
+     * Prints the tracked figures of two reports and returns false if one regressed beyond the limit:
+     * throughput must not drop; latency percentiles and provider calls per request must not grow.
+     */
+    static boolean compare(Path baseline, Path current, double maxRegression) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode before = mapper.readTree(baseline.toFile());
+        JsonNode after = mapper.readTree(current.toFile());
+        boolean ok = check("throughput", before.path("throughput"), after.path("throughput"), true, maxRegression);
+        ok &= check("providerCallsPerRequest", before.path("providerCallsPerRequest"),
+                after.path("providerCallsPerRequest"), false, maxRegression);
+        for (var op : after.path("operations").properties()) {
+            JsonNode old = before.path("operations").path(op.getKey());
+            if (old.isMissingNode()) continue;
+            for (String p : new String[]{"p50", "p99", "p999"}) {
+                ok &= check(op.getKey() + " " + p, old.path(p), op.getValue().path(p), false, maxRegression);
+            }
+        }
+        return ok;
+    }
+
+    private static boolean check(String name, JsonNode was, JsonNode now, boolean higherIsBetter, double maxRegression) {
+        if (was.isMissingNode() || now.isMissingNode()) return true;
+        double before = was.asDouble();
+        double after = now.asDouble();
+        double regression = before == 0 ? 0 : (higherIsBetter ? (before - after) / before : (after - before) / before);
+        boolean failed = regression > maxRegression;
+        System.out.printf("%s %-28s %12.3f -> %12.3f (%+.1f%%)%n",
+                failed ? "FAIL" : "ok  ", name, before, after, -regression * 100);
+        return !failed;
+    }
+}
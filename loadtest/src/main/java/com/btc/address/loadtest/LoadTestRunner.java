@@ -0,0 +1,112 @@
+package com.btc.address.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Entry point of {@code loadtest.jar}.
+ * <ul>
+ *   <li>{@code java -jar loadtest.jar app=<quarkus-run.jar> [key=value...]} starts the mock provider and the
+ *   application wired to it, runs the load and writes {@code loadtest-report.json}.</li>
+ *   <li>Without {@code app}, the properties to start the application with are printed and the load starts
+ *   once {@code target} serves every generated wallet.</li>
+ *   <li>{@code java -jar loadtest.jar compare <baseline.json> <current.json> [maxRegression]} exits with
+ *   status 1 when throughput, a latency percentile or provider calls per request got worse than
+ *   {@code maxRegression} (default 0.10).</li>
+ * </ul>
+ */
+public final class LoadTestRunner {
+
+    private static final double DEFAULT_MAX_REGRESSION = 0.10;
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(5);
+
+    private LoadTestRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "compare".equals(args[0])) {
+            if (args.length < 3) {
+                System.err.println("Usage: compare <baseline.json> <current.json> [maxRegression]");
+                System.exit(2);
+            }
+            double maxRegression = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_MAX_REGRESSION;
+            System.exit(LoadTestReport.compare(Path.of(args[1]), Path.of(args[2]), maxRegression) ? 0 : 1);
+        }
+
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        List<SyntheticWallet> wallets = SyntheticWallet.generate(options.wallets(), options.usedPrefixes(), options.seed());
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        try (MockProvider provider = new MockProvider(options.faults(), options.mockPort())) {
+            wallets.forEach(w -> w.usedAddresses().forEach(provider::markUsed));
+            List<String> properties = new ArrayList<>();
+            MockProvider.KEYS.forEach(key -> properties.add("bitcoin.provider." + key + ".url=" + provider.url(key)));
+            wallets.forEach(w -> properties.add(w.property()));
+            wallets.forEach(w -> System.out.println("Wallet " + w.id() + ": " + w.usedPrefix() + " used addresses"));
+
+            AppProcess app = options.app().isPresent()
+                    ? AppProcess.start(options.app().get(), options.appJvmArgs(), properties)
+                    : null;
+            try {
+                String target = app != null ? app.url() : options.target();
+                if (app == null) {
+                    System.out.println("Start the application with:");
+                    properties.forEach(p -> System.out.println("  -D" + p));
+                }
+                awaitReady(client, target, wallets, app);
+                LoadTestReport report = new LoadGenerator(options, client, target, wallets, provider).run();
+                report.print();
+                report.write(options.report());
+                System.out.println("Report written to " + options.report());
+            } finally {
+                if (app != null) app.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Waits until {@code GET /api/wallets} lists every generated wallet.
+     */
+    private static void awaitReady(HttpClient client, String target, List<SyntheticWallet> wallets, AppProcess app)
+            throws InterruptedException {
+        Set<String> expected = new HashSet<>();
+        wallets.forEach(w -> expected.add(w.id()));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/wallets"))
+                .timeout(Duration.ofSeconds(5)).GET().build();
+        ObjectMapper mapper = new ObjectMapper();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        System.out.println("Waiting for " + target + " to serve " + expected.size() + " wallet(s)...");
+        while (System.nanoTime() < deadline) {
+            if (app != null && !app.isAlive()) throw new IllegalStateException("Application exited, see its log");
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    Set<String> served = new HashSet<>();
+                    for (JsonNode id : mapper.readTree(response.body())) served.add(id.asText());
+                    if (served.containsAll(expected)) return;
+                }
+            } catch (IOException _) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(target + " did not serve the generated wallets within " + READY_TIMEOUT);
+    }
+}
@@ -0,0 +1,181 @@
+package com.btc.address.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the public providers, answering with their response shapes:
+ * <ul>
+ *   <li>{@code /blockchair/dashboards/addresses/<a>,<b>,...}</li>
+ *   <li>{@code /blockchain-info/balance?active=<a>|<b>|...}</li>
+ *   <li>{@code /mempool/address/<a>}</li>
+ * </ul>
+ * An address is used once it was {@link #markUsed marked}; every response is delayed by the configured
+ * latency, and may be replaced by a 429 or a 503 to exercise backoff, breakers and failover.
+ */
+final class MockProvider implements AutoCloseable {
+
+    static final List<String> KEYS = List.of("blockchair", "blockchain-info", "mempool");
+
+    /**
+     * @param latency         base delay of every response
+     * @param jitter          extra delay, uniform in [0, jitter)
+     * @param rateLimitRatio  share of requests answered with 429 and {@code Retry-After: 1}
+     * @param failureRatio    share of requests answered with 503
+     */
+    record Faults(Duration latency, Duration jitter, double rateLimitRatio, double failureRatio) {}
+
+    /** Requests seen by one emulated provider. */
+    static final class Stats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder addresses = new LongAdder();
+        final LongAdder rateLimited = new LongAdder();
+        final LongAdder failed = new LongAdder();
+    }
+
+    private final Faults faults;
+    private final HttpServer server;
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+
+    MockProvider(Faults faults, int port) throws IOException {
+        this.faults = faults;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        KEYS.forEach(key -> stats.put(key, new Stats()));
+        server.createContext("/blockchair/dashboards/addresses/", exchange -> handle(exchange, "blockchair",
+                Arrays.asList(tail(exchange, "/blockchair/dashboards/addresses/").split(",")), this::blockchair));
+        server.createContext("/blockchain-info/balance", exchange -> handle(exchange, "blockchain-info",
+                Arrays.asList(query(exchange, "active").split("\\|")), this::blockchainInfo));
+        server.createContext("/mempool/address/", exchange -> handle(exchange, "mempool",
+                List.of(tail(exchange, "/mempool/address/")), addresses -> mempool(addresses.getFirst())));
+        server.start();
+    }
+
+    /** Base URL of an emulated provider, for {@code bitcoin.provider.<key>.url}. */
+    String url(String key) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/" + key;
+    }
+
+    void markUsed(String address) {
+        used.add(address);
+    }
+
+    Map<String, Stats> stats() {
+        return stats;
+    }
+
+    long totalRequests() {
+        return stats.values().stream().mapToLong(s -> s.requests.sum()).sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private interface Body {
+        String render(List<String> addresses);
+    }
+
+    private void handle(HttpExchange exchange, String key, List<String> addresses, Body body) throws IOException {
+        try (exchange) {
+            Stats s = stats.get(key);
+            s.requests.increment();
+            delay();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < faults.rateLimitRatio()) {
+                s.rateLimited.increment();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 429, "{\"error\":\"rate limited\"}");
+            } else if (random.nextDouble() < faults.failureRatio()) {
+                s.failed.increment();
+                respond(exchange, 503, "{\"error\":\"unavailable\"}");
+            } else {
+                s.addresses.add(addresses.size());
+                respond(exchange, 200, body.render(addresses));
+            }
+        }
+    }
+
+    private void delay() {
+        long nanos = faults.latency().toNanos();
+        long jitter = faults.jitter().toNanos();
+        if (jitter > 0) nanos += ThreadLocalRandom.current().nextLong(jitter);
+        if (nanos <= 0) return;
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int txCount(String address) {
+        return used.contains(address) ? 1 : 0;
+    }
+
+    private String blockchair(List<String> addresses) {
+        StringBuilder json = new StringBuilder("{\"data\":{");
+        for (int i = 0; i < addresses.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(addresses.get(i)).append("\":{\"address\":{\"type\":\"witness_v0_keyhash\",")
+                    .append("\"balance\":0,\"transaction_count\":").append(txCount(addresses.get(i)))
+                    .append("},\"transactions\":[],\"utxo\":[]}");
+        }
+        return json.append("},\"context\":{\"code\":200,\"results\":").append(addresses.size()).append("}}").toString();
+    }
+
+    private String blockchainInfo(List<String> addresses) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < addresses.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(addresses.get(i)).append("\":{\"final_balance\":0,\"n_tx\":")
+                    .append(txCount(addresses.get(i))).append(",\"total_received\":0}");
+        }
+        return json.append('}').toString();
+    }
+
+    private String mempool(String address) {
+        return "{\"address\":\"" + address + "\",\"chain_stats\":{\"funded_txo_count\":" + txCount(address)
+                + ",\"spent_txo_count\":0,\"tx_count\":" + txCount(address)
+                + "},\"mempool_stats\":{\"funded_txo_count\":0,\"spent_txo_count\":0,\"tx_count\":0}}";
+    }
+
+    private static String tail(HttpExchange exchange, String prefix) {
+        return exchange.getRequestURI().getPath().substring(prefix.length());
+    }
+
+    private static String query(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) return "";
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) return pair.substring(name.length() + 1);
+        }
+        return "";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.btc.address.loadtest;
+
+import com.btc.address.bitcoin.BIP84Deriver;
+import com.btc.address.bitcoin.ExternalChainDeriver;
+import com.btc.address.wallet.WalletRegistry;
+import org.bitcoinj.base.BitcoinNetwork;
+import org.bitcoinj.base.ScriptType;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A wallet generated for the run: a zpub from a seeded random master key, and how many of its first
+ * addresses the mock provider reports as used. The first one is served as the default wallet.
+ */
+record SyntheticWallet(String id, String zpub, int usedPrefix) {
+
+    static List<SyntheticWallet> generate(int count, List<Integer> usedPrefixes, long seed) {
+        Random random = new Random(seed);
+        List<SyntheticWallet> wallets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] entropy = new byte[32];
+            random.nextBytes(entropy);
+            DeterministicKey account = HDKeyDerivation.createMasterPrivateKey(entropy);
+            for (ChildNumber child : List.of(new ChildNumber(84, true), ChildNumber.ZERO_HARDENED, ChildNumber.ZERO_HARDENED)) {
+                account = HDKeyDerivation.deriveChildKey(account, child);
+            }
+            wallets.add(new SyntheticWallet(i == 0 ? WalletRegistry.DEFAULT_ID : "w" + i,
+                    account.serializePubB58(BitcoinNetwork.MAINNET, ScriptType.P2WPKH),
+                    usedPrefixes.get(i % usedPrefixes.size())));
+        }
+        return wallets;
+    }
+
+    /** The addresses the mock provider starts with as used. */
+    List<String> usedAddresses() {
+        return ExternalChainDeriver.create(zpub).deriveRange(0, usedPrefix).stream()
+                .map(BIP84Deriver.DerivedAddress::address)
+                .toList();
+    }
+
+    String path(String operation) {
+        return WalletRegistry.DEFAULT_ID.equals(id)
+                ? "/api/address/" + operation
+                : "/api/wallets/" + id + "/address/" + operation;
+    }
+
+    /** Configuration that makes the application serve this wallet. */
+    String property() {
+        return (WalletRegistry.DEFAULT_ID.equals(id) ? "bitcoin.xpub" : "bitcoin.wallets." + id + ".xpub") + "=" + zpub;
+    }
+}
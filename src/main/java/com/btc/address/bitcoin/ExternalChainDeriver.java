@@ -0,0 +1,248 @@
+package com.btc.address.bitcoin;
+
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.ECKey;
+import org.bouncycastle.crypto.digests.RIPEMD160Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Specialized CKDpub for the BIP84 external chain (m/0/i) of one xpub.
+ * Skips bitcoinj's per-index DeterministicKey/Address objects: HMAC, HASH160 and Bech32 run on
+ * pooled scratch buffers, and contiguous ranges share a single field inversion (batch normalization).
+ * Parity with bitcoinj is covered by {@code ExternalChainDeriverTest}; as a guard, each instance also
+ * checks its first indices against bitcoinj once and falls back to it on any mismatch.
+ */
+public final class ExternalChainDeriver {
+
+    private static final int PARITY_CHECK_INDICES = 3;
+
+    private static final ECDomainParameters CURVE = ECKey.ecDomainParameters();
+    private static final FixedPointCombMultiplier MULTIPLIER = new FixedPointCombMultiplier();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char[] BECH32_CHARSET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l".toCharArray();
+    private static final int[] BECH32_GENERATORS = {0x3b6a57b2, 0x26508e6d, 0x1ea119fa, 0x3d4233dd, 0x2a1462b3};
+    private static final String HRP = "bc";
+    private static final int HRP_CHECKSUM_STATE = hrpChecksumState(HRP);
+
+    private final byte[] chainCode;
+    private final byte[] parentKey;
+    private final ECPoint parentPoint;
+    private final DeterministicKey fallbackKey;
+    private final boolean fastPath;
+    private final ConcurrentLinkedQueue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    /** Per-derivation working buffers; pooled because virtual threads make ThreadLocals useless here. */
+    private final class Scratch {
+        final Mac hmac;
+        final MessageDigest sha256;
+        final RIPEMD160Digest ripemd = new RIPEMD160Digest();
+        final byte[] data = new byte[37];
+        final byte[] i64 = new byte[64];
+        final byte[] pubKey = new byte[33];
+        final byte[] sha = new byte[32];
+        final byte[] hash160 = new byte[20];
+        final byte[] program5 = new byte[33];
+        final char[] address = new char[HRP.length() + 1 + 33 + 6];
+        final char[] pubKeyHex = new char[66];
+
+        Scratch() {
+            try {
+                hmac = Mac.getInstance("HmacSHA512");
+                hmac.init(new SecretKeySpec(chainCode, "HmacSHA512"));
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Missing JCA primitives", e);
+            }
+            System.arraycopy(parentKey, 0, data, 0, 33);
+        }
+    }
+
+    /**
+     * Creates the external chain deriver of an xpub or zpub. Callers keep one per wallet
+     * (see {@code Wallet.chain()}), since creating it derives m/0 and runs the parity check.
+     */
+    public static ExternalChainDeriver create(String key) {
+        return new ExternalChainDeriver(key);
+    }
+
+    private ExternalChainDeriver(String key) {
+        // External chain key m/0, derived once with bitcoinj and reused for every index
+        this.fallbackKey = BIP84Deriver.createMasterKey(key);
+        this.chainCode = fallbackKey.getChainCode();
+        this.parentKey = fallbackKey.getPubKey();
+        this.parentPoint = CURVE.getCurve().decodePoint(parentKey);
+        this.fastPath = matchesBitcoinj();
+        if (!fastPath) {
+            System.err.println("❌ Fast derivation parity check failed, using bitcoinj derivation");
+        }
+    }
+
+    /** False when the parity guard failed and every range goes through bitcoinj. */
+    boolean usesFastPath() {
+        return fastPath;
+    }
+
+    /**
+     * Derives m/0/index.
+     */
+    public BIP84Deriver.DerivedAddress deriveAddress(int index) {
+        return deriveRange(index, index + 1).getFirst();
+    }
+
+    /**
+     * Derives m/0/i for every i in [start, end), sharing one modular inversion for the whole range.
+     */
+    public List<BIP84Deriver.DerivedAddress> deriveRange(int start, int end) {
+        if (!fastPath) return bitcoinjRange(start, end);
+
+        List<BIP84Deriver.DerivedAddress> out = new ArrayList<>(end - start);
+        Scratch s = borrow();
+        try {
+            ECPoint[] points = new ECPoint[end - start];
+            for (int i = start; i < end; i++) {
+                BigInteger tweak = tweak(s, i);
+                if (tweak == null) return bitcoinjRange(start, end);
+                points[i - start] = MULTIPLIER.multiply(CURVE.getG(), tweak).add(parentPoint);
+            }
+            CURVE.getCurve().normalizeAll(points);
+
+            for (int i = start; i < end; i++) {
+                ECPoint p = points[i - start];
+                if (p.isInfinity()) return bitcoinjRange(start, end);
+                out.add(encode(s, p, i));
+            }
+            return out;
+        } finally {
+            scratchPool.offer(s);
+        }
+    }
+
+    private Scratch borrow() {
+        Scratch s = scratchPool.poll();
+        return s != null ? s : new Scratch();
+    }
+
+    /**
+     * IL of HMAC-SHA512(chainCode, serP(K) || ser32(i)), or null in the (astronomically rare) invalid case.
+     */
+    private static BigInteger tweak(Scratch s, int index) {
+        s.data[33] = (byte) (index >>> 24);
+        s.data[34] = (byte) (index >>> 16);
+        s.data[35] = (byte) (index >>> 8);
+        s.data[36] = (byte) index;
+        try {
+            s.hmac.update(s.data);
+            s.hmac.doFinal(s.i64, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC failed", e);
+        }
+        BigInteger il = new BigInteger(1, s.i64, 0, 32);
+        return il.signum() == 0 || il.compareTo(CURVE.getN()) >= 0 ? null : il;
+    }
+
+    private static BIP84Deriver.DerivedAddress encode(Scratch s, ECPoint normalized, int index) {
+        byte[] x = normalized.getAffineXCoord().getEncoded();
+        s.pubKey[0] = (byte) (normalized.getAffineYCoord().testBitZero() ? 0x03 : 0x02);
+        System.arraycopy(x, 0, s.pubKey, 1, 32);
+
+        // HASH160 = RIPEMD160(SHA256(pubKey))
+        try {
+            s.sha256.update(s.pubKey);
+            s.sha256.digest(s.sha, 0, 32);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 failed", e);
+        }
+        s.ripemd.update(s.sha, 0, 32);
+        s.ripemd.doFinal(s.hash160, 0);
+
+        for (int i = 0; i < 33; i++) {
+            s.pubKeyHex[i * 2] = HEX[(s.pubKey[i] >>> 4) & 0x0F];
+            s.pubKeyHex[i * 2 + 1] = HEX[s.pubKey[i] & 0x0F];
+        }
+        return new BIP84Deriver.DerivedAddress(bech32P2wpkh(s), new String(s.pubKeyHex), index);
+    }
+
+    /**
+     * Encodes witness v0 + 20-byte program as a Bech32 address without intermediate collections.
+     */
+    private static String bech32P2wpkh(Scratch s) {
+        byte[] data = s.program5;
+        data[0] = 0; // witness version
+        // 8-bit -> 5-bit regrouping: 160 bits give exactly 32 groups
+        int acc = 0, bits = 0, n = 1;
+        for (int i = 0; i < 20; i++) {
+            acc = (acc << 8) | (s.hash160[i] & 0xFF);
+            bits += 8;
+            while (bits >= 5) {
+                bits -= 5;
+                data[n++] = (byte) ((acc >>> bits) & 31);
+            }
+        }
+
+        int chk = HRP_CHECKSUM_STATE;
+        for (byte d : data) chk = polymodStep(chk) ^ d;
+        for (int i = 0; i < 6; i++) chk = polymodStep(chk);
+        chk ^= 1;
+
+        char[] out = s.address;
+        int pos = 0;
+        for (int i = 0; i < HRP.length(); i++) out[pos++] = HRP.charAt(i);
+        out[pos++] = '1';
+        for (byte d : data) out[pos++] = BECH32_CHARSET[d];
+        for (int i = 0; i < 6; i++) out[pos++] = BECH32_CHARSET[(chk >>> (5 * (5 - i))) & 31];
+        return new String(out);
+    }
+
+    private static int polymodStep(int chk) {
+        int top = chk >>> 25;
+        chk = (chk & 0x1ffffff) << 5;
+        for (int i = 0; i < 5; i++) {
+            if (((top >>> i) & 1) != 0) chk ^= BECH32_GENERATORS[i];
+        }
+        return chk;
+    }
+
+    private static int hrpChecksumState(String hrp) {
+        int chk = 1;
+        for (int i = 0; i < hrp.length(); i++) chk = polymodStep(chk) ^ (hrp.charAt(i) >>> 5);
+        chk = polymodStep(chk);
+        for (int i = 0; i < hrp.length(); i++) chk = polymodStep(chk) ^ (hrp.charAt(i) & 31);
+        return chk;
+    }
+
+    private List<BIP84Deriver.DerivedAddress> bitcoinjRange(int start, int end) {
+        List<BIP84Deriver.DerivedAddress> out = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) out.add(BIP84Deriver.deriveAddress(fallbackKey, i));
+        return out;
+    }
+
+    private boolean matchesBitcoinj() {
+        try {
+            List<BIP84Deriver.DerivedAddress> fast = new ArrayList<>();
+            Scratch s = new Scratch();
+            ECPoint[] points = new ECPoint[PARITY_CHECK_INDICES];
+            for (int i = 0; i < PARITY_CHECK_INDICES; i++) {
+                BigInteger tweak = tweak(s, i);
+                if (tweak == null) return false;
+                points[i] = MULTIPLIER.multiply(CURVE.getG(), tweak).add(parentPoint);
+            }
+            CURVE.getCurve().normalizeAll(points);
+            for (int i = 0; i < PARITY_CHECK_INDICES; i++) fast.add(encode(s, points[i], i));
+            scratchPool.offer(s);
+            return fast.equals(bitcoinjRange(0, PARITY_CHECK_INDICES));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
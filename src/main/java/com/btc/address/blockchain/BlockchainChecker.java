@@ -1,112 +1,536 @@
 package com.btc.address.blockchain;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 
+/**
+ * Checks address usage against every configured {@link ChainBackend}: public block explorers and,
+ * when set up, a self-hosted Esplora or Electrum server or the local node's compact block filters.
+ * Each provider has its own token bucket, circuit breaker and adaptive batch size; every check is
+ * routed to the healthy provider with the most remaining budget, falling back to the others.
+ * In hedged mode the next provider is started as soon as the current one is slower than its usual
+ * latency percentile, and the first valid answer wins. Answers of a backend that is not conclusive
+ * (compact filters) are confirmed with the next one that is.
+ */
 @ApplicationScoped
 public class BlockchainChecker {
     private final HttpClient httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(10))
             .build();
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final ExecutorService decodeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("provider-timer").factory());
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Tracer tracer;
+
+    @Inject
+    Instance<ChainBackend> backends;
+
+    @ConfigProperty(name = "bitcoin.provider.timeout", defaultValue = "PT15S")
+    Duration requestTimeout;
+
+    @ConfigProperty(name = "bitcoin.provider.hedge.enabled", defaultValue = "false")
+    boolean hedgeEnabled;
+
+    @ConfigProperty(name = "bitcoin.provider.hedge.percentile", defaultValue = "0.9")
+    double hedgePercentile;
+
+    @ConfigProperty(name = "bitcoin.provider.hedge.initial-delay", defaultValue = "PT1S")
+    Duration hedgeInitialDelay;
+
+    @ConfigProperty(name = "bitcoin.provider.hedge.min-delay", defaultValue = "PT0.1S")
+    Duration hedgeMinDelay;
+
+    @ConfigProperty(name = "bitcoin.provider.quorum", defaultValue = "false")
+    boolean quorum;
+
+    @ConfigProperty(name = "bitcoin.provider.breaker.failure-threshold", defaultValue = "3")
+    int breakerFailureThreshold;
+
+    @ConfigProperty(name = "bitcoin.provider.breaker.open-duration", defaultValue = "PT30S")
+    Duration breakerOpenDuration;
+
+    @ConfigProperty(name = "bitcoin.provider.batch.fast-response", defaultValue = "PT1S")
+    Duration fastResponse;
 
+    @ConfigProperty(name = "bitcoin.provider.batch.slow-response", defaultValue = "PT5S")
+    Duration slowResponse;
+
+    @ConfigProperty(name = "bitcoin.provider.batch.large-response-bytes", defaultValue = "524288")
+    long largeResponseBytes;
+
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofMinutes(1);
+    private static final int DEFAULT_BATCH_SIZE = 20;
+
+    /** An enabled backend with its runtime health. */
+    private record Provider(ChainBackend backend, ProviderHealth health) {
+        String label() {
+            return backend.label();
+        }
+    }
+
+    private List<Provider> providers = List.of();
+    private ProviderMetrics metrics;
+
+    @PostConstruct
+    void init() {
+        var config = ConfigProvider.getConfig();
+        metrics = new ProviderMetrics(registry);
+        List<Provider> enabled = new ArrayList<>();
+        for (ChainBackend backend : backends.stream().sorted(Comparator.comparingInt(ChainBackend::priority)).toList()) {
+            String prefix = "bitcoin.provider." + backend.key() + ".";
+            if (!backend.isConfigured() || !config.getOptionalValue(prefix + "enabled", Boolean.class).orElse(true)) continue;
+            ChainBackend.Limits defaults = backend.defaultLimits();
+            var limits = new ChainBackend.Limits(
+                    config.getOptionalValue(prefix + "rate", Double.class).orElse(defaults.ratePerSecond()),
+                    config.getOptionalValue(prefix + "burst", Double.class).orElse(defaults.burst()),
+                    config.getOptionalValue(prefix + "batch", Integer.class).orElse(defaults.initialBatch()),
+                    config.getOptionalValue(prefix + "max-batch", Integer.class).orElse(defaults.maxBatch()),
+                    defaults.costPerAddress());
+            Provider provider = new Provider(backend, new ProviderHealth(limits,
+                    new CircuitBreaker(breakerFailureThreshold, breakerOpenDuration), fastResponse, slowResponse, largeResponseBytes));
+            metrics.register(backend, provider.health());
+            enabled.add(provider);
+        }
+        providers = List.copyOf(enabled);
+        System.out.println("Chain backends: " + providers.stream().map(Provider::label).toList());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+        decodeExecutor.shutdownNow();
+    }
+
+    /**
+     * Batch size that suits the provider the next check would be routed to.
+     */
+    public int preferredBatchSize() {
+        List<Provider> order = route(DEFAULT_BATCH_SIZE);
+        return order.isEmpty() ? DEFAULT_BATCH_SIZE : order.getFirst().health().batchSize();
+    }
+
+    @WithSpan("provider.check")
     public Map<String, Boolean> checkAddressesBatch(List<String> addresses) {
-        // Priority 1: Blockchair (Best batch support)
+        if (addresses.isEmpty()) return Map.of();
         try {
-            return checkBlockchairBatch(addresses);
-        } catch (Exception e) {
-            System.err.println("Blockchair fallback -> Blockchain.info: " + e.getMessage());
+            return new FanOut(addresses).start().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
         }
+    }
 
-        // Priority 2: Blockchain.info
-        try {
-            return checkBlockchainInfoBatch(addresses);
-        } catch (Exception e) {
-            System.err.println("Blockchain.info fallback -> Mempool.space: " + e.getMessage());
+    /**
+     * Healthy providers, the one with the most budget left after this check first (priority breaks ties).
+     */
+    private List<Provider> route(int addressCount) {
+        return providers.stream()
+                .filter(p -> p.health().isAvailable())
+                .sorted(Comparator.comparingDouble((Provider p) -> -p.health().remainingBudget(addressCount)))
+                .toList();
+    }
+
+    /**
+     * One logical batch check spread across providers. All state transitions are synchronized on this.
+     */
+    private final class FanOut {
+        private final List<String> addresses;
+        private final List<Provider> order;
+        private final CompletableFuture<Map<String, Boolean>> result = new CompletableFuture<>();
+        private final List<Attempt> pending = new ArrayList<>();
+        private final List<Map<String, Boolean>> answers = new ArrayList<>();
+        // Attempts are launched from timer and completion threads, so the caller's trace is captured here
+        private final Context traceContext;
+        private int next;
+
+        FanOut(List<String> addresses) {
+            this(addresses, route(addresses.size()), Context.current());
+        }
+
+        FanOut(List<String> addresses, List<Provider> order, Context traceContext) {
+            this.addresses = addresses;
+            this.order = order;
+            this.traceContext = traceContext;
+        }
+
+        CompletableFuture<Map<String, Boolean>> start() {
+            launchNext(null);
+            return result;
+        }
+
+        /**
+         * Starts the next provider; {@code reason} is null for the first one.
+         */
+        private synchronized void launchNext(ProviderMetrics.FallbackReason reason) {
+            if (result.isDone() || next >= order.size()) return;
+            Provider provider = order.get(next++);
+            if (reason != null) metrics.fallback(provider.backend(), reason);
+            Attempt attempt = new Attempt(provider);
+            pending.add(attempt);
+            Span span = tracer.spanBuilder("provider " + provider.backend().key())
+                    .setParent(traceContext)
+                    .setAttribute("btc.provider", provider.backend().key())
+                    .setAttribute("btc.addresses", addresses.size())
+                    .startSpan();
+            query(provider, addresses, attempt).whenComplete((answer, error) -> {
+                if (error != null) span.setStatus(StatusCode.ERROR, String.valueOf(error.getMessage()));
+                span.end();
+                onComplete(attempt, answer, error);
+            });
+            if (hedgeEnabled && next < order.size()) {
+                timer.schedule(() -> hedge(attempt), hedgeDelay(provider).toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private synchronized void hedge(Attempt slow) {
+            if (pending.contains(slow)) launchNext(ProviderMetrics.FallbackReason.HEDGE);
+        }
+
+        private synchronized void onComplete(Attempt attempt, Map<String, Boolean> answer, Throwable error) {
+            pending.remove(attempt);
+            if (result.isDone()) return;
+
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.err.println(attempt.provider.label() + " failed: " + cause.getMessage());
+                launchNext(ProviderMetrics.FallbackReason.FAILURE);
+            } else if (!attempt.provider.backend().isConclusive()) {
+                confirm(answer);
+                return;
+            } else if (!quorum) {
+                finish(answer);
+                return;
+            } else {
+                for (Map<String, Boolean> previous : answers) {
+                    if (previous.equals(answer)) {
+                        finish(answer);
+                        return;
+                    }
+                }
+                answers.add(answer);
+                // Need a second opinion, or a tie-breaker
+                if (pending.isEmpty()) launchNext(ProviderMetrics.FallbackReason.QUORUM);
+            }
+
+            if (pending.isEmpty() && next >= order.size()) {
+                if (answers.isEmpty()) {
+                    // Also reached when every circuit is open
+                    result.completeExceptionally(new RuntimeException("Rate limit reached on all APIs. Please wait 5 minutes."));
+                } else {
+                    // No agreement: never report an address as unused if any provider saw it used
+                    System.err.println("Provider quorum not reached, using the most conservative answer");
+                    finish(mergeUsedWins(answers));
+                }
+            }
+        }
+
+        /**
+         * Re-checks a hint with the conclusive backends: its matches may be false positives, its misses may be
+         * in the mempool. Without any such backend available misses stand, but a match is never accepted.
+         */
+        private void confirm(Map<String, Boolean> hint) {
+            List<Provider> confirming = route(addresses.size()).stream().filter(p -> p.backend().isConclusive()).toList();
+            if (confirming.isEmpty()) {
+                if (hint.containsValue(true)) fail(new RuntimeException("No backend available to confirm compact filter matches"));
+                else finish(hint);
+                return;
+            }
+            metrics.fallback(confirming.getFirst().backend(), ProviderMetrics.FallbackReason.CONFIRMATION);
+            new FanOut(addresses, confirming, traceContext).start().whenComplete((confirmed, error) -> {
+                synchronized (this) {
+                    if (result.isDone()) return;
+                    if (error != null) fail(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    else finish(confirmed);
+                }
+            });
         }
 
-        // Priority 3: Mempool.space (Individual calls)
+        /** Unconfirmed hints are not an answer; a hedged attempt still running may give one. */
+        private void fail(Throwable error) {
+            if (pending.isEmpty()) result.completeExceptionally(error);
+        }
+
+        private void finish(Map<String, Boolean> answer) {
+            result.complete(answer);
+            pending.forEach(Attempt::cancel);
+            pending.clear();
+        }
+    }
+
+    private Duration hedgeDelay(Provider provider) {
+        Duration observed = provider.health().latency.percentile(hedgePercentile).orElse(hedgeInitialDelay);
+        return observed.compareTo(hedgeMinDelay) < 0 ? hedgeMinDelay : observed;
+    }
+
+    private static Map<String, Boolean> mergeUsedWins(List<Map<String, Boolean>> answers) {
+        Map<String, Boolean> merged = new HashMap<>();
+        answers.forEach(a -> a.forEach((addr, used) -> merged.merge(addr, used, Boolean::logicalOr)));
+        return merged;
+    }
+
+    /**
+     * In-flight requests of one provider attempt, so losers can be cancelled.
+     */
+    private static final class Attempt {
+        final Provider provider;
+        private final List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        private boolean cancelled;
+
+        Attempt(Provider provider) {
+            this.provider = provider;
+        }
+
+        synchronized <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+            if (cancelled) future.cancel(true);
+            else inFlight.add(future);
+            return future;
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            inFlight.forEach(f -> f.cancel(true));
+            inFlight.clear();
+        }
+    }
+
+    private CompletableFuture<Map<String, Boolean>> query(Provider provider, List<String> addresses, Attempt attempt) {
+        ProviderHealth h = provider.health();
+        CircuitBreaker breaker = h.breaker;
+        // Without a token the first request would fail anyway: don't hold the half-open probe slot for it
+        if (breaker.currentState() == CircuitBreaker.State.HALF_OPEN && !h.bucket.timeUntil(1).isZero()) {
+            return CompletableFuture.failedFuture(new RuntimeException(provider.label() + " request budget exhausted"));
+        }
+        if (!breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RuntimeException("circuit open"));
+        }
         try {
-            return checkMempoolIndividual(addresses);
-        } catch (Exception e) {
-            System.err.println("All services failed: " + e.getMessage());
+            CompletableFuture<Map<String, Boolean>> answer = inChunks(provider, addresses, attempt);
+            return answer.whenComplete((_, error) -> {
+                // A half-open probe must never stay claimed: failures without a verdict (budget, a throwing
+                // backend or decoder) and cancelled losers give it back; after a verdict this is a no-op
+                if (error != null || attempt.isCancelled()) breaker.release();
+            });
+        } catch (RuntimeException e) {
+            breaker.release();
+            return CompletableFuture.failedFuture(e);
         }
+    }
 
-        throw new RuntimeException("Rate limit reached on all APIs. Please wait 5 minutes.");
+    /**
+     * Splits a check into sequential backend calls no larger than the provider's current batch size.
+     */
+    private CompletableFuture<Map<String, Boolean>> inChunks(Provider provider, List<String> addresses, Attempt attempt) {
+        Map<String, Boolean> results = new ConcurrentHashMap<>();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        ChainBackend.Transport transport = new AttemptTransport(provider, attempt);
+        int size = provider.health().batchSize();
+        for (int from = 0; from < addresses.size(); from += size) {
+            List<String> chunk = addresses.subList(from, Math.min(from + size, addresses.size()));
+            chain = chain.thenCompose(_ -> provider.backend().check(chunk, transport)).thenAccept(results::putAll);
+        }
+        return chain.thenApply(_ -> new HashMap<>(results));
     }
 
-    private Map<String, Boolean> checkBlockchairBatch(List<String> addresses) throws Exception {
-        String list = String.join(",", addresses);
-        String url = "https://api.blockchair.com/bitcoin/dashboards/addresses/" + list + "?limit=0";
+    /** The checker's side of {@link ChainBackend.Transport}, bound to one provider attempt. */
+    private final class AttemptTransport implements ChainBackend.Transport {
+        private final Provider provider;
+        private final Attempt attempt;
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("User-Agent", "Quarkus-BTC-Scanner/1.0")
-                .GET().build();
+        AttemptTransport(Provider provider, Attempt attempt) {
+            this.provider = provider;
+            this.attempt = attempt;
+        }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            Map<String, Boolean> results = new HashMap<>();
-            JsonNode data = mapper.readTree(response.body()).path("data");
-            for (String addr : addresses) {
-                int txCount = data.path(addr).path("address").path("transaction_count").asInt(0);
-                results.put(addr, txCount > 0);
-            }
-            return results;
+        @Override
+        public HttpRequest.Builder get(String url) {
+            return HttpRequest.newBuilder().uri(URI.create(url)).timeout(requestTimeout).GET();
+        }
+
+        @Override
+        public <T> CompletableFuture<T> send(HttpRequest request, boolean waitForToken, ChainBackend.Decoder<T> decoder) {
+            return exchange(provider, request, attempt, waitForToken, decoder);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> request) {
+            return invoke(provider, attempt, request);
         }
-        throw new RuntimeException("Blockchair Status: " + response.statusCode());
     }
 
-    private Map<String, Boolean> checkBlockchainInfoBatch(List<String> addresses) throws Exception {
-        String list = String.join("|", addresses);
-        // Fix: URL Encode the pipe symbols
-        String encodedList = URLEncoder.encode(list, StandardCharsets.UTF_8);
-        String url = "https://blockchain.info/balance?active=" + encodedList;
+    /**
+     * Takes one token; batch providers fail fast when their budget is exhausted so the check falls through
+     * to the next one, per-address providers wait for their next token instead.
+     */
+    private CompletableFuture<Void> permit(Provider provider, boolean waitForToken) {
+        ProviderHealth h = provider.health();
+        if (h.bucket.tryAcquire(1)) return CompletableFuture.completedFuture(null);
+        if (waitForToken) return after(h.bucket.timeUntil(1)).thenCompose(_ -> acquireToken(h));
+        return CompletableFuture.failedFuture(new RuntimeException(provider.label() + " request budget exhausted"));
+    }
 
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Sends one request within the provider's budget and feeds the outcome back into its health.
+     * The body is streamed straight into the decoder on a virtual thread, never buffered as a String.
+     */
+    private <T> CompletableFuture<T> exchange(Provider provider, HttpRequest request, Attempt attempt,
+            boolean waitForToken, ChainBackend.Decoder<T> decoder) {
+        ProviderHealth h = provider.health();
+        return permit(provider, waitForToken).thenCompose(_ -> {
+            if (attempt.isCancelled()) throw new CancellationException();
+            long started = System.nanoTime();
+            return attempt.track(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()))
+                    .whenComplete((_, error) -> {
+                        if (error instanceof CancellationException) {
+                            h.breaker.release();
+                        } else if (error != null) {
+                            h.onFailure();
+                            metrics.record(provider.backend(), ProviderMetrics.Outcome.ERROR, since(started));
+                        }
+                    })
+                    .thenApplyAsync(response -> decode(provider, response, started, decoder), decodeExecutor);
+        });
+    }
+
+    /**
+     * Same accounting as {@link #exchange} for backends with their own protocol; response size is not known.
+     */
+    private <T> CompletableFuture<T> invoke(Provider provider, Attempt attempt, Supplier<CompletableFuture<T>> request) {
+        ProviderHealth h = provider.health();
+        return permit(provider, false).thenCompose(_ -> {
+            if (attempt.isCancelled()) throw new CancellationException();
+            long started = System.nanoTime();
+            return attempt.track(request.get()).whenComplete((_, error) -> {
+                if (error instanceof CancellationException) {
+                    h.breaker.release();
+                } else if (error != null) {
+                    h.onFailure();
+                    metrics.record(provider.backend(), ProviderMetrics.Outcome.ERROR, since(started));
+                } else {
+                    Duration elapsed = since(started);
+                    h.onResponse(elapsed, 0);
+                    metrics.record(provider.backend(), ProviderMetrics.Outcome.SUCCESS, elapsed);
+                }
+            });
+        });
+    }
 
-        if (response.statusCode() == 200) {
-            Map<String, Boolean> results = new HashMap<>();
-            JsonNode root = mapper.readTree(response.body());
-            for (String addr : addresses) {
-                int nTx = root.path(addr).path("n_tx").asInt(0);
-                results.put(addr, nTx > 0);
+    private <T> T decode(Provider provider, HttpResponse<InputStream> response, long started,
+            ChainBackend.Decoder<T> decoder) {
+        ProviderHealth h = provider.health();
+        try (CountingInputStream body = new CountingInputStream(response.body())) {
+            if (response.statusCode() == 429) {
+                h.onRateLimited(retryAfter(response));
+                metrics.record(provider.backend(), ProviderMetrics.Outcome.RATE_LIMITED, since(started));
+                throw new RuntimeException(provider.label() + " Status: 429");
             }
-            return results;
+            if (response.statusCode() != 200) {
+                h.onFailure();
+                metrics.record(provider.backend(), ProviderMetrics.Outcome.ERROR, since(started));
+                throw new RuntimeException(provider.label() + " Status: " + response.statusCode());
+            }
+            T value;
+            try {
+                value = decoder.decode(body);
+            } catch (RuntimeException e) {
+                throw new IOException(provider.label() + " sent an unreadable response: " + e.getMessage(), e);
+            }
+            long bytes = response.headers().firstValueAsLong("Content-Length").orElse(body.count());
+            Duration elapsed = since(started);
+            h.onResponse(elapsed, bytes);
+            metrics.record(provider.backend(), ProviderMetrics.Outcome.SUCCESS, elapsed);
+            return value;
+        } catch (IOException e) {
+            h.onFailure();
+            metrics.record(provider.backend(), ProviderMetrics.Outcome.ERROR, since(started));
+            throw new CompletionException(e);
         }
-        throw new RuntimeException("Blockchain.info Status: " + response.statusCode());
     }
 
-    private Map<String, Boolean> checkMempoolIndividual(List<String> addresses) throws Exception {
-        Map<String, Boolean> results = new HashMap<>();
-        for (String addr : addresses) {
-            String url = "https://mempool.space/api/address/" + addr;
-            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    private static Duration since(long startedNanos) {
+        return Duration.ofNanos(System.nanoTime() - startedNanos);
+    }
+
+    /** Counts consumed bytes, for responses without a Content-Length. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
 
-            if (response.statusCode() == 200) {
-                JsonNode root = mapper.readTree(response.body());
-                int txCount = root.path("chain_stats").path("tx_count").asInt(0)
-                            + root.path("mempool_stats").path("tx_count").asInt(0);
-                results.put(addr, txCount > 0);
-            } else {
-                throw new RuntimeException("Mempool.space Status: " + response.statusCode());
-            }
-            // Small delay to prevent Mempool.space rate limiting
-            Thread.sleep(250);
+        CountingInputStream(InputStream in) {
+            super(in);
         }
-        return results;
+
+        long count() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    private CompletableFuture<Void> acquireToken(ProviderHealth h) {
+        return h.bucket.tryAcquire(1)
+                ? CompletableFuture.completedFuture(null)
+                : after(h.bucket.timeUntil(1)).thenCompose(_ -> acquireToken(h));
+    }
+
+    private static Duration retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+                .flatMap(v -> {
+                    try {
+                        return Optional.of(Duration.ofSeconds(Long.parseLong(v.trim())));
+                    } catch (NumberFormatException _) {
+                        return Optional.empty();
+                    }
+                })
+                .orElse(DEFAULT_RETRY_AFTER);
+    }
+
+    private CompletableFuture<Void> after(Duration delay) {
+        if (delay.isZero() || delay.isNegative()) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        timer.schedule(() -> done.complete(null), delay.toNanos(), TimeUnit.NANOSECONDS);
+        return done;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package com.btc.address.blockchain;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Blockchain.info balance endpoint: many addresses per request, pipe-separated.
+ */
+@ApplicationScoped
+public class BlockchainInfoBackend implements ChainBackend {
+
+    @ConfigProperty(name = "bitcoin.provider.blockchain-info.url", defaultValue = "https://blockchain.info")
+    String baseUrl;
+
+    @Override
+    public String key() {
+        return "blockchain-info";
+    }
+
+    @Override
+    public String label() {
+        return "Blockchain.info";
+    }
+
+    @Override
+    public Limits defaultLimits() {
+        return new Limits(1, 5, 20, 100, false);
+    }
+
+    @Override
+    public int priority() {
+        return 20;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> check(List<String> addresses, Transport transport) {
+        // The pipe separators must be URL-encoded
+        String url = baseUrl + "/balance?active=" + URLEncoder.encode(String.join("|", addresses), StandardCharsets.UTF_8);
+        return transport.send(transport.get(url).build(), false, body -> ProviderResponseDecoder.blockchainInfo(body, addresses));
+    }
+}
@@ -0,0 +1,45 @@
+package com.btc.address.blockchain;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Blockchair dashboards: up to 100 addresses per request.
+ */
+@ApplicationScoped
+public class BlockchairBackend implements ChainBackend {
+
+    @ConfigProperty(name = "bitcoin.provider.blockchair.url", defaultValue = "https://api.blockchair.com/bitcoin")
+    String baseUrl;
+
+    @Override
+    public String key() {
+        return "blockchair";
+    }
+
+    @Override
+    public String label() {
+        return "Blockchair";
+    }
+
+    @Override
+    public Limits defaultLimits() {
+        return new Limits(0.5, 5, 20, 100, false);
+    }
+
+    @Override
+    public int priority() {
+        return 10;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> check(List<String> addresses, Transport transport) {
+        String url = baseUrl + "/dashboards/addresses/" + String.join(",", addresses) + "?limit=0";
+        return transport.send(transport.get(url).header("User-Agent", "Quarkus-BTC-Scanner/1.0").build(), false,
+                body -> ProviderResponseDecoder.blockchair(body, addresses));
+    }
+}
@@ -0,0 +1,82 @@
+package com.btc.address.blockchain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A source of "has this address ever been used" answers, discovered as a CDI bean by {@link BlockchainChecker}.
+ * The checker owns budgets, circuit breaking, batching, hedging and metrics; a backend only turns one
+ * batch of addresses into requests through the {@link Transport} it is handed.
+ * Per-backend settings live under {@code bitcoin.provider.<key>.*}.
+ */
+public interface ChainBackend {
+
+    /**
+     * Default budget and batch sizes, each overridable with {@code bitcoin.provider.<key>.rate|burst|batch|max-batch}.
+     * {@code costPerAddress} is true when the backend needs one request per address.
+     */
+    record Limits(double ratePerSecond, double burst, int initialBatch, int maxBatch, boolean costPerAddress) {}
+
+    /** Consumes a response body; implementations may stop reading early. */
+    @FunctionalInterface
+    interface Decoder<T> {
+        T decode(InputStream body) throws IOException;
+    }
+
+    /**
+     * Request channel of one check attempt: every call is paced by the backend's budget, counted in its
+     * health and metrics, and cancelled if another backend answers first.
+     */
+    interface Transport {
+
+        /** GET builder with the configured provider timeout. */
+        HttpRequest.Builder get(String url);
+
+        /**
+         * Sends one HTTP request and decodes a 200 response on a virtual thread; 429 and other statuses fail.
+         * Without {@code waitForToken}, an exhausted budget fails at once so the check moves to another backend.
+         */
+        <T> CompletableFuture<T> send(HttpRequest request, boolean waitForToken, Decoder<T> decoder);
+
+        /**
+         * Runs one non-HTTP request (socket protocol, local index) under the same budget and accounting.
+         */
+        <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> request);
+    }
+
+    /** Stable identifier used in configuration keys and metric tags. */
+    String key();
+
+    /** Human-readable name for logs. */
+    String label();
+
+    Limits defaultLimits();
+
+    /** Breaks routing ties between backends with the same remaining budget; lower goes first. */
+    int priority();
+
+    /** False when a required setting (URL, host, path) is missing; the backend is then never routed to. */
+    default boolean isConfigured() {
+        return true;
+    }
+
+    /**
+     * False for backends whose answers are only hints, such as compact filters: they miss unconfirmed
+     * transactions and match unrelated scripts by chance. Every address such a backend reports, used or
+     * unused, is confirmed with a conclusive backend before the answer is accepted.
+     */
+    default boolean isConclusive() {
+        return true;
+    }
+
+    /**
+     * Usage of each address in one batch no larger than the current batch size.
+     * Addresses the backend has never seen are reported as unused.
+     */
+    CompletableFuture<Map<String, Boolean>> check(List<String> addresses, Transport transport);
+}
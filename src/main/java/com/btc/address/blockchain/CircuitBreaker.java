@@ -0,0 +1,82 @@
+package com.btc.address.blockchain;
+
+import java.time.Duration;
+
+/**
+ * Consecutive-failure circuit breaker with half-open probing.
+ * CLOSED lets everything through; after {@code failureThreshold} failures in a row it turns OPEN and
+ * rejects calls until the cool-down elapses, then HALF_OPEN lets a single probe decide.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean probeInFlight;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Returns true if a call may be made now. In HALF_OPEN this claims the single probe slot.
+     */
+    synchronized boolean tryAcquire() {
+        return switch (currentState()) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) yield false;
+                probeInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * Returns true if {@link #tryAcquire()} would currently let a call through, without claiming anything.
+     */
+    synchronized boolean isAvailable() {
+        State s = currentState();
+        return s == State.CLOSED || (s == State.HALF_OPEN && !probeInFlight);
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) trip(openDuration);
+    }
+
+    /**
+     * Opens the circuit immediately, for at least {@code duration}.
+     */
+    synchronized void trip(Duration duration) {
+        state = State.OPEN;
+        probeInFlight = false;
+        openUntil = Math.max(openUntil, System.nanoTime() + Math.max(duration.toNanos(), openDuration.toNanos()));
+    }
+
+    /**
+     * Releases a claimed probe slot without a verdict (e.g. the call was cancelled).
+     */
+    synchronized void release() {
+        probeInFlight = false;
+    }
+
+    synchronized State currentState() {
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+}
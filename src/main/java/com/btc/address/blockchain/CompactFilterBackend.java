@@ -0,0 +1,99 @@
+package com.btc.address.blockchain;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local node's BIP158 filters (see {@link CompactFilterIndex}). Enabled by pointing
+ * {@code bitcoin.provider.compact-filters.path} at {@code <datadir>/indexes/blockfilter/basic}.
+ * The first check of a script reads every filter, so it may exceed the provider timeout and fall back to
+ * another backend; the scan still completes in the background and later checks are answered from memory.
+ * Filters only cover confirmed blocks and match by chance about once per 784931 blocks per script, which a
+ * fresh address meets somewhere in the chain more often than not, so every answer is confirmed by another backend.
+ */
+@ApplicationScoped
+public class CompactFilterBackend implements ChainBackend {
+
+    @ConfigProperty(name = "bitcoin.provider.compact-filters.path")
+    Optional<String> path;
+
+    @ConfigProperty(name = "bitcoin.provider.compact-filters.skip-blocks", defaultValue = "0")
+    long skipBlocks;
+
+    @ConfigProperty(name = "bitcoin.provider.timeout", defaultValue = "PT15S")
+    Duration timeout;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile CompactFilterIndex index;
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String key() {
+        return "compact-filters";
+    }
+
+    @Override
+    public String label() {
+        return "Compact filters";
+    }
+
+    @Override
+    public Limits defaultLimits() {
+        return new Limits(1000, 1000, 100, 1000, false);
+    }
+
+    @Override
+    public int priority() {
+        return 3;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return path.filter(p -> !p.isBlank()).isPresent();
+    }
+
+    @Override
+    public boolean isConclusive() {
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> check(List<String> addresses, Transport transport) {
+        Map<String, byte[]> scripts = new HashMap<>();
+        addresses.forEach(addr -> scripts.put(addr, OutputScripts.forAddress(addr)));
+        return transport.call(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return index().lookup(scripts);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    private CompactFilterIndex index() {
+        CompactFilterIndex i = index;
+        if (i != null) return i;
+        synchronized (this) {
+            if (index == null) index = new CompactFilterIndex(Paths.get(path.orElseThrow().trim()), skipBlocks);
+            return index;
+        }
+    }
+}
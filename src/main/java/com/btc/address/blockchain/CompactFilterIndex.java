@@ -0,0 +1,297 @@
+package com.btc.address.blockchain;
+
+import org.bouncycastle.crypto.macs.SipHash;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Local script-usage index over the BIP158 basic block filters written by Bitcoin Core with
+ * {@code -blockfilterindex=1}: the {@code fltr?????.dat} files, whose records are
+ * {@code [block hash:32][CompactSize length][filter]}, followed by zero padding.
+ * <p>
+ * A filter cannot be enumerated, only queried, so each script keeps how far it has been matched: a new script
+ * is matched once against every filter, a known one only against filters appended since. Lookups run
+ * concurrently; a script already being matched by another lookup is waited for, not matched twice, and only
+ * advancing the end of the filters read so far is serialized. A match is only a hint: with a false-positive
+ * rate of 1/784931 per block, most scripts match some block of the whole chain, and a wrong "used" would make
+ * scans skip fresh addresses up to and past the gap limit. Callers must confirm matches elsewhere.
+ */
+final class CompactFilterIndex {
+
+    private static final int P = 19;
+    private static final long M = 784931;
+    private static final HexFormat HEX = HexFormat.of();
+
+    /** First unread record: file number in name order, byte offset, records read before it. */
+    private record Position(int file, long offset, long records) {
+        static final Position START = new Position(0, 0, 0);
+    }
+
+    /** Match state of one script, guarded by itself. */
+    private static final class Script {
+        final byte[] bytes;
+        /** Every filter before this one has been matched, unless {@link #used} stopped it early. */
+        Position matchedTo = Position.START;
+        boolean used;
+        /** Set while a lookup matches this script, so other lookups wait for it. */
+        CompletableFuture<Void> matching;
+
+        Script(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /** Called for each filter record read; {@code sipKey} is the first half of the block hash. */
+    @FunctionalInterface
+    private interface FilterVisitor {
+        /** Returns false to stop reading. */
+        boolean visit(long record, byte[] sipKey, ByteBuffer filter);
+    }
+
+    private final Path dir;
+    private final long skipRecords;
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+    /** End of the filters read so far. */
+    private Position tip = Position.START;
+
+    /**
+     * @param skipRecords filters to ignore at the start, e.g. the wallet's birth height. Stale-fork filters
+     *                    only add records, so skipping the birth height never skips a block above it.
+     */
+    CompactFilterIndex(Path dir, long skipRecords) {
+        this.dir = dir;
+        this.skipRecords = skipRecords;
+    }
+
+    /**
+     * Usage of each script in the filters present when the lookup starts, keyed like the input.
+     */
+    Map<String, Boolean> lookup(Map<String, byte[]> scriptsByKey) throws IOException {
+        Position end = advanceTip();
+        Map<String, Script> byKey = new HashMap<>();
+        scriptsByKey.forEach((key, bytes) -> byKey.put(key, scripts.computeIfAbsent(HEX.formatHex(bytes), _ -> new Script(bytes))));
+
+        List<Script> claimed = new ArrayList<>();
+        List<CompletableFuture<Void>> others = new ArrayList<>();
+        for (Script script : new HashSet<>(byKey.values())) {
+            synchronized (script) {
+                if (script.used || script.matchedTo.records() >= end.records()) continue;
+                if (script.matching != null) {
+                    others.add(script.matching);
+                } else {
+                    script.matching = new CompletableFuture<>();
+                    claimed.add(script);
+                }
+            }
+        }
+        if (!claimed.isEmpty()) match(claimed, end);
+        try {
+            others.forEach(CompletableFuture::join);
+        } catch (CompletionException e) {
+            throw new IOException("Concurrent filter scan failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        Map<String, Boolean> result = new HashMap<>();
+        byKey.forEach((key, script) -> {
+            synchronized (script) {
+                result.put(key, script.used);
+            }
+        });
+        return result;
+    }
+
+    /** Reads the headers of filters appended since the last lookup. */
+    private synchronized Position advanceTip() throws IOException {
+        tip = read(tip, null, null);
+        return tip;
+    }
+
+    /**
+     * Matches the claimed scripts, each from where it stopped, against the filters before {@code end},
+     * then publishes the outcome and releases the claims.
+     */
+    private void match(List<Script> claimed, Position end) throws IOException {
+        Position from = claimed.getFirst().matchedTo;
+        for (Script script : claimed) if (script.matchedTo.records() < from.records()) from = script.matchedTo;
+        boolean[] used = new boolean[claimed.size()];
+        int[] remaining = {claimed.size()};
+        try {
+            read(from, end, (record, sipKey, filter) -> {
+                if (record >= skipRecords) remaining[0] -= match(filter, sipKey, claimed, record, used);
+                return remaining[0] > 0;
+            });
+        } catch (IOException | RuntimeException e) {
+            for (Script script : claimed) {
+                CompletableFuture<Void> failed;
+                synchronized (script) {
+                    failed = script.matching;
+                    script.matching = null;
+                }
+                failed.completeExceptionally(e);
+            }
+            throw e;
+        }
+        for (int i = 0; i < claimed.size(); i++) {
+            Script script = claimed.get(i);
+            CompletableFuture<Void> done;
+            synchronized (script) {
+                script.used = used[i];
+                script.matchedTo = end;
+                done = script.matching;
+                script.matching = null;
+            }
+            done.complete(null);
+        }
+    }
+
+    /**
+     * Visits the filters in [from, to) (to the end of the data when {@code to} is null), or only reads their
+     * headers when {@code visitor} is null. Returns where reading stopped.
+     */
+    private Position read(Position from, Position to, FilterVisitor visitor) throws IOException {
+        List<Path> files = filterFiles();
+        Position pos = from;
+        for (int f = from.file(); f < files.size(); f++) {
+            if (to != null && f > to.file()) break;
+            long offset = f == from.file() ? from.offset() : 0;
+            long records = pos.records();
+            boolean stopped = false;
+            try (FileChannel ch = FileChannel.open(files.get(f), StandardOpenOption.READ)) {
+                ByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+                while (!(to != null && f == to.file() && offset >= to.offset())) {
+                    int start = (int) offset;
+                    if (start + 33 > map.limit() || isZero(map, start)) break;
+                    ByteBuffer record = map.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(start + 32);
+                    long length = compactSize(record);
+                    int filterStart = record.position();
+                    if (filterStart + length > map.limit()) break; // still being written
+                    if (visitor != null) {
+                        byte[] key = new byte[16];
+                        map.get(start, key);
+                        stopped = !visitor.visit(records, key, record.slice(filterStart, (int) length));
+                    }
+                    offset = filterStart + length;
+                    records++;
+                    if (stopped) break;
+                }
+            }
+            pos = new Position(f, offset, records);
+            if (stopped) break;
+            // Only the last file may still grow; earlier ones are complete at their padding
+            if (f < files.size() - 1 && (to == null || f < to.file())) pos = new Position(f + 1, 0, records);
+        }
+        return pos;
+    }
+
+    private List<Path> filterFiles() throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.filter(p -> p.getFileName().toString().matches("fltr\\d+\\.dat")).sorted().toList();
+        }
+    }
+
+    private static boolean isZero(ByteBuffer map, int start) {
+        for (int i = 0; i < 32; i += 8) if (map.getLong(start + i) != 0) return false;
+        return true;
+    }
+
+    private static long compactSize(ByteBuffer buf) {
+        int first = buf.get() & 0xFF;
+        return switch (first) {
+            case 0xFD -> buf.getShort() & 0xFFFF;
+            case 0xFE -> buf.getInt() & 0xFFFFFFFFL;
+            case 0xFF -> buf.getLong();
+            default -> first;
+        };
+    }
+
+    /**
+     * Golomb-coded set match against one filter of every script not yet found and not matched past this record.
+     * Returns how many were found.
+     */
+    private static int match(ByteBuffer filter, byte[] sipKey, List<Script> scripts, long record, boolean[] used) {
+        filter.order(ByteOrder.LITTLE_ENDIAN);
+        long n = compactSize(filter);
+        if (n == 0) return 0;
+        long range = n * M;
+
+        SipHash sip = new SipHash();
+        sip.init(new KeyParameter(sipKey));
+        int[] queries = new int[scripts.size()];
+        long[] values = new long[scripts.size()];
+        int count = 0;
+        for (int i = 0; i < scripts.size(); i++) {
+            byte[] script = scripts.get(i).bytes;
+            if (used[i] || scripts.get(i).matchedTo.records() > record) continue;
+            sip.update(script, 0, script.length);
+            queries[count] = i;
+            values[count++] = Math.unsignedMultiplyHigh(sip.doFinal(), range);
+        }
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+
+        Set<Long> hits = new HashSet<>();
+        BitReader bits = new BitReader(filter);
+        long value = 0;
+        int q = 0;
+        for (long i = 0; i < n && q < count; i++) {
+            value += bits.golombRice();
+            while (q < count && sorted[q] < value) q++;
+            while (q < count && sorted[q] == value) hits.add(sorted[q++]);
+        }
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            if (hits.contains(values[i])) {
+                used[queries[i]] = true;
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /** MSB-first bit stream over the filter body. */
+    private static final class BitReader {
+        private final ByteBuffer buf;
+        private int current;
+        private int remaining;
+
+        BitReader(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        long golombRice() {
+            long quotient = 0;
+            while (bit() == 1) quotient++;
+            long remainder = 0;
+            for (int i = 0; i < P; i++) remainder = (remainder << 1) | bit();
+            return (quotient << P) | remainder;
+        }
+
+        private int bit() {
+            if (remaining == 0) {
+                current = buf.get() & 0xFF;
+                remaining = 8;
+            }
+            return (current >>> --remaining) & 1;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.btc.address.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Self-hosted Electrum server (electrs, Fulcrum, ElectrumX). A whole batch is pipelined on one connection as
+ * {@code blockchain.scripthash.get_history} calls, confirmed and mempool transactions alike; an empty history
+ * means unused. Nothing is subscribed, so the server keeps no per-script state for this client.
+ * Enabled by setting {@code bitcoin.provider.electrum.host}.
+ */
+@ApplicationScoped
+public class ElectrumBackend implements ChainBackend {
+
+    @ConfigProperty(name = "bitcoin.provider.electrum.host")
+    Optional<String> host;
+
+    @ConfigProperty(name = "bitcoin.provider.electrum.port", defaultValue = "50001")
+    int port;
+
+    @ConfigProperty(name = "bitcoin.provider.electrum.tls", defaultValue = "false")
+    boolean tls;
+
+    @ConfigProperty(name = "bitcoin.provider.timeout", defaultValue = "PT15S")
+    Duration timeout;
+
+    private volatile ElectrumClient client;
+
+    @PreDestroy
+    void shutdown() {
+        if (client != null) client.close();
+    }
+
+    @Override
+    public String key() {
+        return "electrum";
+    }
+
+    @Override
+    public String label() {
+        return "Electrum";
+    }
+
+    @Override
+    public Limits defaultLimits() {
+        return new Limits(1000, 1000, 100, 1000, false);
+    }
+
+    @Override
+    public int priority() {
+        return 1;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return host.filter(h -> !h.isBlank()).isPresent();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> check(List<String> addresses, Transport transport) {
+        List<String> scripthashes = addresses.stream().map(OutputScripts::electrumScripthash).toList();
+        return transport.call(() -> {
+            ElectrumClient c = client();
+            List<CompletableFuture<JsonNode>> histories = scripthashes.stream()
+                    .map(h -> c.request("blockchain.scripthash.get_history", h))
+                    .toList();
+            return CompletableFuture.allOf(histories.toArray(CompletableFuture[]::new)).thenApply(_ -> {
+                Map<String, Boolean> results = new HashMap<>();
+                for (int i = 0; i < addresses.size(); i++) results.put(addresses.get(i), !histories.get(i).join().isEmpty());
+                return results;
+            });
+        });
+    }
+
+    private ElectrumClient client() {
+        ElectrumClient c = client;
+        if (c != null) return c;
+        synchronized (this) {
+            if (client == null) client = new ElectrumClient(host.orElseThrow().trim(), port, tls, timeout);
+            return client;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.btc.address.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Electrum protocol client (newline-delimited JSON-RPC over TCP or TLS) on one persistent connection.
+ * Requests are pipelined: any number can be outstanding, and a virtual-thread reader matches responses by id.
+ * The connection is opened on first use and reopened after a failure.
+ */
+final class ElectrumClient implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String PROTOCOL_VERSION = "1.4";
+
+    private final String host;
+    private final int port;
+    private final boolean tls;
+    private final Duration timeout;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private Socket socket;
+    private OutputStream out;
+
+    ElectrumClient(String host, int port, boolean tls, Duration timeout) {
+        this.host = host;
+        this.port = port;
+        this.tls = tls;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sends one call; the future holds its {@code result} (a NullNode for JSON null) or fails on an error reply.
+     */
+    CompletableFuture<JsonNode> request(String method, Object... params) {
+        long id = ids.incrementAndGet();
+        CompletableFuture<JsonNode> response = new CompletableFuture<>();
+        pending.put(id, response);
+        ObjectNode message = JSON.createObjectNode().put("jsonrpc", "2.0").put("id", id).put("method", method);
+        message.set("params", JSON.valueToTree(params));
+        try {
+            send(JSON.writeValueAsBytes(message));
+        } catch (IOException e) {
+            response.completeExceptionally(e);
+        }
+        return response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((_, _) -> pending.remove(id));
+    }
+
+    private synchronized void send(byte[] line) throws IOException {
+        if (socket == null || socket.isClosed()) connect();
+        try {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            disconnect(socket, e);
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port), (int) timeout.toMillis());
+            if (tls) {
+                SSLSocket ssl = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(s, host, port, true);
+                SSLParameters params = ssl.getSSLParameters();
+                params.setEndpointIdentificationAlgorithm("HTTPS");
+                ssl.setSSLParameters(params);
+                s = ssl;
+            }
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+        Socket connected = s;
+        socket = connected;
+        out = connected.getOutputStream();
+        Thread.ofVirtual().name("electrum-reader").start(() -> readLoop(connected));
+
+        // Servers expect the version handshake first; its reply is not needed
+        ObjectNode hello = JSON.createObjectNode().put("jsonrpc", "2.0").put("id", ids.incrementAndGet())
+                .put("method", "server.version");
+        hello.set("params", JSON.valueToTree(new String[] {"btc-next-address", PROTOCOL_VERSION}));
+        out.write(JSON.writeValueAsBytes(hello));
+        out.write('\n');
+    }
+
+    private void readLoop(Socket s) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                JsonNode message = JSON.readTree(line);
+                // Notifications carry a method instead of an id
+                if (!message.hasNonNull("id")) continue;
+                CompletableFuture<JsonNode> response = pending.get(message.get("id").asLong());
+                if (response == null) continue;
+                if (message.hasNonNull("error")) {
+                    response.completeExceptionally(new RuntimeException("Electrum error: " + message.get("error")));
+                } else {
+                    response.complete(message.path("result"));
+                }
+            }
+            disconnect(s, new IOException("Electrum server closed the connection"));
+        } catch (IOException e) {
+            disconnect(s, e);
+        }
+    }
+
+    private synchronized void disconnect(Socket s, IOException cause) {
+        // A reader of an already replaced connection must not fail the new connection's calls
+        if (socket != s) return;
+        socket = null;
+        out = null;
+        try {
+            s.close();
+        } catch (IOException _) {
+            // Already broken
+        }
+        pending.values().forEach(f -> f.completeExceptionally(cause));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (socket != null) disconnect(socket, new IOException("Electrum client closed"));
+    }
+}
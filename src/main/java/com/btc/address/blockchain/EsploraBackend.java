@@ -0,0 +1,50 @@
+package com.btc.address.blockchain;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Self-hosted Esplora (electrs --http-addr, or a private mempool instance): same API as Mempool.space,
+ * without a third-party quota. Enabled by setting {@code bitcoin.provider.esplora.url}.
+ */
+@ApplicationScoped
+public class EsploraBackend implements ChainBackend {
+
+    @ConfigProperty(name = "bitcoin.provider.esplora.url")
+    Optional<String> baseUrl;
+
+    @Override
+    public String key() {
+        return "esplora";
+    }
+
+    @Override
+    public String label() {
+        return "Esplora";
+    }
+
+    @Override
+    public Limits defaultLimits() {
+        return new Limits(200, 200, 20, 100, true);
+    }
+
+    @Override
+    public int priority() {
+        return 2;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return baseUrl.filter(url -> !url.isBlank()).isPresent();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> check(List<String> addresses, Transport transport) {
+        return MempoolBackend.checkEsplora(baseUrl.orElseThrow(), addresses, transport);
+    }
+}
@@ -0,0 +1,35 @@
+package com.btc.address.blockchain;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Sliding window of recent successful response times for one provider.
+ */
+final class LatencyTracker {
+
+    private static final int WINDOW = 128;
+    private static final int MIN_SAMPLES = 8;
+
+    private final long[] samples = new long[WINDOW];
+    private int count;
+    private int next;
+
+    synchronized void record(Duration latency) {
+        samples[next] = latency.toNanos();
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) count++;
+    }
+
+    /**
+     * Returns the given percentile (0..1) of the window, or empty until enough samples were seen.
+     */
+    synchronized Optional<Duration> percentile(double p) {
+        if (count < MIN_SAMPLES) return Optional.empty();
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.min(count - 1, Math.ceil(p * count) - 1);
+        return Optional.of(Duration.ofNanos(sorted[Math.max(rank, 0)]));
+    }
+}
@@ -0,0 +1,60 @@
+package com.btc.address.blockchain;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mempool.space, which speaks the Esplora REST API: one request per address.
+ */
+@ApplicationScoped
+public class MempoolBackend implements ChainBackend {
+
+    @ConfigProperty(name = "bitcoin.provider.mempool.url", defaultValue = "https://mempool.space/api")
+    String baseUrl;
+
+    @Override
+    public String key() {
+        return "mempool";
+    }
+
+    @Override
+    public String label() {
+        return "Mempool.space";
+    }
+
+    @Override
+    public Limits defaultLimits() {
+        return new Limits(4, 4, 5, 20, true);
+    }
+
+    @Override
+    public int priority() {
+        return 30;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Boolean>> check(List<String> addresses, Transport transport) {
+        return checkEsplora(baseUrl, addresses, transport);
+    }
+
+    /**
+     * Sequential {@code GET <baseUrl>/address/<addr>} calls, paced by the token bucket rather than a fixed sleep.
+     */
+    static CompletableFuture<Map<String, Boolean>> checkEsplora(String baseUrl, List<String> addresses, Transport transport) {
+        Map<String, Boolean> results = new ConcurrentHashMap<>();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (String addr : addresses) {
+            chain = chain
+                    .thenCompose(_ -> transport.send(transport.get(baseUrl + "/address/" + addr).build(), true,
+                            ProviderResponseDecoder::mempoolUsed))
+                    .thenAccept(used -> results.put(addr, used));
+        }
+        return chain.thenApply(_ -> new HashMap<>(results));
+    }
+}
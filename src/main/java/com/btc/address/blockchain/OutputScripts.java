@@ -0,0 +1,49 @@
+package com.btc.address.blockchain;
+
+import org.bitcoinj.base.BitcoinNetwork;
+import org.bitcoinj.base.SegwitAddress;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * scriptPubKey forms of the addresses this service hands out, for backends that index scripts rather than addresses.
+ */
+final class OutputScripts {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private OutputScripts() {}
+
+    /**
+     * {@code OP_n <program>} for a Bech32/Bech32m address.
+     */
+    static byte[] forAddress(String address) {
+        SegwitAddress segwit = SegwitAddress.fromBech32(address, BitcoinNetwork.MAINNET);
+        byte[] program = segwit.getWitnessProgram();
+        int version = segwit.getWitnessVersion();
+        byte[] script = new byte[program.length + 2];
+        script[0] = (byte) (version == 0 ? 0x00 : 0x50 + version);
+        script[1] = (byte) program.length;
+        System.arraycopy(program, 0, script, 2, program.length);
+        return script;
+    }
+
+    /**
+     * Electrum protocol script hash: SHA-256 of the script, byte-reversed, hex.
+     */
+    static String electrumScripthash(String address) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(forAddress(address));
+            for (int i = 0, j = hash.length - 1; i < j; i++, j--) {
+                byte t = hash[i];
+                hash[i] = hash[j];
+                hash[j] = t;
+            }
+            return HEX.formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
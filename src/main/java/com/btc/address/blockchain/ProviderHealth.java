@@ -0,0 +1,89 @@
+package com.btc.address.blockchain;
+
+import java.time.Duration;
+
+/**
+ * Runtime health of one provider: request budget, circuit breaker, latency window and
+ * an adaptive batch size (additive increase while fast, multiplicative decrease on 429, failures, slow or heavy responses).
+ */
+final class ProviderHealth {
+
+    private final ChainBackend.Limits limits;
+    private final Duration fastResponse;
+    private final Duration slowResponse;
+    private final long largeResponseBytes;
+    final TokenBucket bucket;
+    final CircuitBreaker breaker;
+    final LatencyTracker latency = new LatencyTracker();
+    private int batchSize;
+
+    ProviderHealth(ChainBackend.Limits limits, CircuitBreaker breaker, Duration fastResponse, Duration slowResponse,
+            long largeResponseBytes) {
+        this.limits = limits;
+        this.breaker = breaker;
+        this.fastResponse = fastResponse;
+        this.slowResponse = slowResponse;
+        this.largeResponseBytes = largeResponseBytes;
+        this.bucket = new TokenBucket(limits.burst(), limits.ratePerSecond());
+        this.batchSize = limits.initialBatch();
+    }
+
+    synchronized int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Tokens needed to check {@code addresses} addresses with this provider.
+     */
+    double cost(int addresses) {
+        return limits.costPerAddress() ? addresses : Math.ceil(addresses / (double) batchSize());
+    }
+
+    /**
+     * True when the circuit lets calls through.
+     */
+    boolean isAvailable() {
+        return breaker.isAvailable();
+    }
+
+    /**
+     * Fraction of the budget left after checking {@code addresses} addresses; used to rank providers.
+     */
+    double remainingBudget(int addresses) {
+        return bucket.remainingAfter(cost(addresses));
+    }
+
+    void onResponse(Duration elapsed, long bodyBytes) {
+        latency.record(elapsed);
+        breaker.onSuccess();
+        synchronized (this) {
+            if (bodyBytes > largeResponseBytes || elapsed.compareTo(slowResponse) >= 0) {
+                shrink();
+            } else if (elapsed.compareTo(fastResponse) < 0) {
+                batchSize = Math.min(limits.maxBatch(), batchSize + 1);
+            }
+        }
+    }
+
+    void onRateLimited(Duration retryAfter) {
+        bucket.drain(retryAfter);
+        breaker.trip(retryAfter);
+        synchronized (this) {
+            batchSize = Math.max(1, batchSize / 2);
+        }
+    }
+
+    /**
+     * A failed request (error status, timeout, unreadable body) may have been too big to answer in time.
+     */
+    void onFailure() {
+        breaker.onFailure();
+        synchronized (this) {
+            shrink();
+        }
+    }
+
+    private void shrink() {
+        batchSize = Math.max(1, batchSize * 3 / 4);
+    }
+}
@@ -0,0 +1,70 @@
+package com.btc.address.blockchain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Micrometer meters of the provider layer, pre-registered per provider so the hot path never looks them up.
+ */
+final class ProviderMetrics {
+
+    enum Outcome { SUCCESS, RATE_LIMITED, ERROR }
+
+    /** Why a further provider was started for the same check. */
+    enum FallbackReason { FAILURE, HEDGE, QUORUM, CONFIRMATION }
+
+    private final MeterRegistry registry;
+    private final Map<String, Map<Outcome, Timer>> latency = new HashMap<>();
+    private final Map<String, Map<FallbackReason, Counter>> fallbacks = new HashMap<>();
+
+    ProviderMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    void register(ChainBackend backend, ProviderHealth health) {
+        Map<Outcome, Timer> timers = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            timers.put(outcome, Timer.builder("btc.provider.requests")
+                    .description("Provider requests, by outcome")
+                    .tag("provider", backend.key())
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        latency.put(backend.key(), timers);
+
+        Map<FallbackReason, Counter> counters = new EnumMap<>(FallbackReason.class);
+        for (FallbackReason reason : FallbackReason.values()) {
+            counters.put(reason, Counter.builder("btc.provider.fallbacks")
+                    .description("Checks handed to this provider after another one failed, was slow, disagreed or had to confirm a hint")
+                    .tag("provider", backend.key())
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(registry));
+        }
+        fallbacks.put(backend.key(), counters);
+
+        Gauge.builder("btc.provider.batch.size", health, ProviderHealth::batchSize)
+                .description("Current adaptive batch size")
+                .tag("provider", backend.key())
+                .register(registry);
+        Gauge.builder("btc.provider.circuit.open", health, h -> h.isAvailable() ? 0 : 1)
+                .description("1 while the circuit breaker rejects calls")
+                .tag("provider", backend.key())
+                .register(registry);
+    }
+
+    void record(ChainBackend backend, Outcome outcome, Duration elapsed) {
+        latency.get(backend.key()).get(outcome).record(elapsed);
+    }
+
+    void fallback(ChainBackend backend, FallbackReason reason) {
+        fallbacks.get(backend.key()).get(reason).increment();
+    }
+}
@@ -0,0 +1,141 @@
+package com.btc.address.blockchain;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Token-level decoders for provider responses. Only the transaction counts are read; everything else
+ * is skipped without being materialized, and parsing stops as soon as every requested address is resolved.
+ * Addresses missing from a response count as unused, like the previous tree-based parsing.
+ */
+final class ProviderResponseDecoder {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private ProviderResponseDecoder() {}
+
+    /**
+     * Blockchair dashboard: {@code {"data": {"<addr>": {"address": {"transaction_count": n, ...}, ...}}, ...}}
+     */
+    static Map<String, Boolean> blockchair(InputStream body, List<String> addresses) throws IOException {
+        Map<String, Boolean> results = unresolved(addresses);
+        Set<String> pending = new HashSet<>(addresses);
+        try (JsonParser p = FACTORY.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("Unexpected Blockchair response");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if (!"data".equals(field) || p.currentToken() != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String addr = p.currentName();
+                    p.nextToken();
+                    if (!pending.contains(addr) || p.currentToken() != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    results.put(addr, readNested(p, "address", "transaction_count") > 0);
+                    pending.remove(addr);
+                    if (pending.isEmpty()) return results;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Blockchain.info balance: {@code {"<addr>": {"final_balance": .., "n_tx": n, ...}, ...}}
+     */
+    static Map<String, Boolean> blockchainInfo(InputStream body, List<String> addresses) throws IOException {
+        Map<String, Boolean> results = unresolved(addresses);
+        Set<String> pending = new HashSet<>(addresses);
+        try (JsonParser p = FACTORY.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("Unexpected Blockchain.info response");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String addr = p.currentName();
+                p.nextToken();
+                if (!pending.contains(addr) || p.currentToken() != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    continue;
+                }
+                results.put(addr, readField(p, "n_tx") > 0);
+                pending.remove(addr);
+                if (pending.isEmpty()) return results;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Mempool.space / Esplora address: {@code {"chain_stats": {"tx_count": n}, "mempool_stats": {"tx_count": m}}}
+     */
+    static boolean mempoolUsed(InputStream body) throws IOException {
+        long txCount = 0;
+        int statsSeen = 0;
+        try (JsonParser p = FACTORY.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("Unexpected Mempool.space response");
+            while (statsSeen < 2 && p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if (("chain_stats".equals(field) || "mempool_stats".equals(field)) && p.currentToken() == JsonToken.START_OBJECT) {
+                    txCount += readField(p, "tx_count");
+                    statsSeen++;
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return txCount > 0;
+    }
+
+    private static Map<String, Boolean> unresolved(List<String> addresses) {
+        Map<String, Boolean> results = new HashMap<>(addresses.size() * 2);
+        addresses.forEach(addr -> results.put(addr, false));
+        return results;
+    }
+
+    /**
+     * Reads an integer field of the object the parser is positioned on, consuming the whole object.
+     */
+    private static long readField(JsonParser p, String name) throws IOException {
+        long value = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            if (name.equals(field) && token == JsonToken.VALUE_NUMBER_INT) {
+                value = p.getLongValue();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Reads {@code outer.inner} from the object the parser is positioned on, consuming the whole object.
+     */
+    private static long readNested(JsonParser p, String outer, String inner) throws IOException {
+        long value = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            if (outer.equals(field) && token == JsonToken.START_OBJECT) {
+                value = readField(p, inner);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,63 @@
+package com.btc.address.blockchain;
+
+import java.time.Duration;
+
+/**
+ * Classic token bucket: {@code capacity} tokens, refilled continuously at {@code ratePerSecond}.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double ratePerNano;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private long pausedUntil;
+
+    TokenBucket(double capacity, double ratePerSecond) {
+        this.capacity = capacity;
+        this.ratePerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+    }
+
+    synchronized boolean tryAcquire(double n) {
+        refill();
+        if (tokens < n) return false;
+        tokens -= n;
+        return true;
+    }
+
+    /**
+     * Time until {@code n} tokens are available (zero if they already are).
+     */
+    synchronized Duration timeUntil(double n) {
+        refill();
+        long now = System.nanoTime();
+        long pause = Math.max(0, pausedUntil - now);
+        if (tokens >= n) return Duration.ofNanos(pause);
+        return Duration.ofNanos(pause + (long) Math.ceil((n - tokens) / ratePerNano));
+    }
+
+    /**
+     * Fraction of the bucket left after spending {@code n} tokens; negative if it cannot afford them.
+     */
+    synchronized double remainingAfter(double n) {
+        refill();
+        return (tokens - n) / capacity;
+    }
+
+    /**
+     * Empties the bucket and stops refilling for a while, e.g. after an HTTP 429.
+     */
+    synchronized void drain(Duration pause) {
+        tokens = 0;
+        pausedUntil = System.nanoTime() + pause.toNanos();
+        lastRefill = pausedUntil;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (now <= lastRefill) return;
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+    }
+}
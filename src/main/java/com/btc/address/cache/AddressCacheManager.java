@@ -1,75 +1,280 @@
 package com.btc.address.cache;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.file.*;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
+/**
+ * Address usage cache keyed by salted SHA-256 hashes, sharded by wallet.
+ * Each shard lives in a primitive {@link DigestTable} (40 bytes per entry) and is persisted as a
+ * memory-mappable binary snapshot plus an append-only journal (see {@link CacheFile}).
+ * Shards are opened on first use, so memory follows the wallets actually served, and answer from
+ * the mapped snapshot while their table warms up in the background.
+ * <p>
+ * In cluster mode ({@code bitcoin.cluster.peers} set), local changes are also kept in a {@link ReplicationLog}
+ * that peers pull, and their changes and snapshots are merged back in; conflicts resolve with
+ * {@link DigestTable#supersedes}, so replicas converge whatever the order of delivery.
+ */
 @ApplicationScoped
 public class AddressCacheManager {
 
+    /** Shard of the wallet configured with {@code bitcoin.xpub}; keeps the historical file names. */
+    public static final String DEFAULT_SHARD = "default";
+
     @Inject
     @ConfigProperty(name = "bitcoin.cache.path", defaultValue = "/data")
     String dataPath;
 
-    private static final String FILE_NAME = "address-cache.json";
-    private Path cachePath;
-    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "bitcoin.cache.compaction-threshold", defaultValue = "4194304")
+    long compactionThreshold;
+
+    @ConfigProperty(name = "bitcoin.cache.compaction-interval", defaultValue = "PT5M")
+    Duration compactionInterval;
+
+    @ConfigProperty(name = "bitcoin.cache.async-warmup", defaultValue = "true")
+    boolean asyncWarmup;
+
+    /** Where shards warm up with {@code asyncWarmup}: a virtual thread each. */
+    Executor warmupExecutor = task -> Thread.ofVirtual().name("cache-warmup").start(task);
 
-    private final ObjectMapper mapper = new ObjectMapper()
-            .registerModule(new JavaTimeModule())
-            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    @ConfigProperty(name = "bitcoin.cluster.peers")
+    Optional<List<String>> clusterPeers;
+
+    @ConfigProperty(name = "bitcoin.cluster.log-records", defaultValue = "65536")
+    int replicationLogRecords;
+
+    /**
+     * Header of a batch of peer changes: the peer's epoch, the cursor to pull from next, the records received
+     * and how many of them changed this cache.
+     */
+    public record PulledChanges(long epoch, long next, int count, int applied) {}
+
+    /** Point in a replica's change log, valid for the lifetime of its process (the epoch). */
+    @RegisterForReflection
+    public record ReplicationPosition(long epoch, long sequence) {}
+
+    private static final String FILE_PREFIX = "address-cache";
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int MERGE_CHUNK_RECORDS = 4096;
+    private final Map<String, CacheShard> shards = new ConcurrentHashMap<>();
+    /** Local changes for peers; null unless clustered. */
+    private ReplicationLog replicationLog;
+    private Counter hits;
+    private Counter misses;
+    private Timer saveTimer;
+    private Timer warmupTimer;
 
     @PostConstruct
     void init() {
-        this.cachePath = Paths.get(dataPath, FILE_NAME);
-        try {
-            Files.createDirectories(cachePath.getParent());
-            if (Files.exists(cachePath)) {
-                var type = mapper.getTypeFactory().constructMapType(Map.class, String.class, CacheEntry.class);
-                Map<String, CacheEntry> loaded = mapper.readValue(cachePath.toFile(), type);
-                if (loaded != null) cache.putAll(loaded);
+        if (clusterPeers.filter(peers -> peers.stream().anyMatch(p -> !p.isBlank())).isPresent()) {
+            replicationLog = new ReplicationLog(replicationLogRecords);
+        }
+        hits = Counter.builder("btc.cache.lookups").tag("result", "hit").register(registry);
+        misses = Counter.builder("btc.cache.lookups").tag("result", "miss").register(registry);
+        saveTimer = Timer.builder("btc.cache.save").description("Snapshot write and journal truncation").register(registry);
+        warmupTimer = Timer.builder("btc.cache.warmup").description("Snapshot copy into memory after a shard opens").register(registry);
+        Gauge.builder("btc.cache.entries", shards, m -> m.values().stream().mapToInt(CacheShard::size).sum())
+                .register(registry);
+        Gauge.builder("btc.cache.shards", shards, Map::size).description("Open wallet cache shards").register(registry);
+        Gauge.builder("btc.cache.warming", shards, m -> m.values().stream().filter(s -> !s.isWarm()).count())
+                .description("Shards still answering from their mapped snapshot").register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        shards.values().forEach(CacheShard::close);
+    }
+
+    /**
+     * Writes a full snapshot of every open shard and empties their journals.
+     */
+    public void saveCache() {
+        shards.values().forEach(CacheShard::save);
+    }
+
+    public Map<String, Boolean> getMultiStatus(String walletId, Iterable<String> hashes) {
+        Map<String, Boolean> result = new HashMap<>();
+        forEachStamp(walletId, hashes, (h, stamp) -> result.putIfAbsent(h, DigestTable.isUsed(stamp)));
+        return result;
+    }
+
+    /**
+     * Like {@link #getMultiStatus}, with the time each entry was last written.
+     */
+    public Map<String, CachedStatus> getEntries(String walletId, Iterable<String> hashes) {
+        Map<String, CachedStatus> result = new HashMap<>();
+        forEachStamp(walletId, hashes, (h, stamp) ->
+                result.putIfAbsent(h, new CachedStatus(DigestTable.isUsed(stamp), DigestTable.epochMillis(stamp))));
+        return result;
+    }
+
+    /**
+     * True once the wallet's shard has been opened, i.e. the wallet has been used since startup.
+     */
+    public boolean isOpen(String walletId) {
+        return shards.containsKey(walletId);
+    }
+
+    private void forEachStamp(String walletId, Iterable<String> hashes, BiConsumer<String, Long> sink) {
+        CacheShard shard = shard(walletId);
+        int found = 0, missing = 0;
+        for (String h : hashes) {
+            long stamp = shard.get(HEX.parseHex(h), 0);
+            if (stamp != 0) {
+                sink.accept(h, stamp);
+                found++;
+            } else {
+                missing++;
             }
-        } catch (IOException e) {
-            System.err.println("❌ Initialisation du cache échouée: " + e.getMessage());
         }
+        hits.increment(found);
+        misses.increment(missing);
+    }
+
+    /**
+     * Applies the entries and blocks until they are durable in the journal.
+     * Cost is proportional to the update, not to the cache size.
+     */
+    public void addEntries(String walletId, Map<String, Boolean> newEntries) {
+        applyLocal(walletId, records(newEntries)).exceptionally(_ -> null).join();
+    }
+
+    public void addEntry(String walletId, String hash, boolean used) {
+        applyLocal(walletId, records(Map.of(hash, used)));
+    }
+
+    private CompletableFuture<Void> applyLocal(String walletId, ByteBuffer records) {
+        CacheShard.Applied applied = shard(walletId).apply(records);
+        if (replicationLog != null) replicationLog.append(walletId, applied.changes());
+        return applied.durable();
+    }
+
+    /**
+     * True in cluster mode, when local changes are logged for peers.
+     */
+    public boolean isReplicated() {
+        return replicationLog != null;
+    }
+
+    /**
+     * Current end of the replication log: a peer that merges every snapshot taken after this call, then
+     * pulls changes from here, misses nothing.
+     */
+    public ReplicationPosition replicationPosition() {
+        return new ReplicationPosition(replicationLog.epoch(), replicationLog.next());
+    }
+
+    /**
+     * Writes up to {@code max} local changes from a peer's cursor; false if the cursor is from another
+     * epoch (this process restarted) or fell out of the log, in which case the peer has to bootstrap again.
+     */
+    public boolean writeChanges(long epoch, long since, int max, OutputStream out) throws IOException {
+        return replicationLog.write(epoch, since, max, new DataOutputStream(out));
+    }
+
+    /**
+     * Writes the wallet's whole cache in the snapshot format.
+     */
+    public void writeSnapshot(String walletId, OutputStream out) throws IOException {
+        shard(walletId).writeSnapshot(Channels.newChannel(out));
+        out.flush();
+    }
+
+    /**
+     * Merges a batch written by a peer's {@link #writeChanges}. Peer changes are journaled but not logged
+     * again, since every replica pulls from every other one. Changes of wallets not {@code served} here
+     * are skipped: wallet IDs end up in file names.
+     */
+    public PulledChanges mergeChanges(InputStream in, Predicate<String> served) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        long epoch = data.readLong();
+        long next = data.readLong();
+        int count = data.readInt();
+        Map<String, ByteBuffer> byWallet = new HashMap<>();
+        byte[] digest = new byte[DigestTable.DIGEST_BYTES];
+        for (int i = 0; i < count; i++) {
+            String walletId = data.readUTF();
+            data.readFully(digest);
+            long stamp = data.readLong();
+            if (!served.test(walletId)) continue;
+            byWallet.computeIfAbsent(walletId, _ -> ByteBuffer.allocate(count * CacheFile.RECORD_BYTES))
+                    .put(digest).putLong(stamp);
+        }
+        int applied = 0;
+        for (var entry : byWallet.entrySet()) {
+            applied += shard(entry.getKey()).apply(entry.getValue().flip()).changes().remaining() / CacheFile.RECORD_BYTES;
+        }
+        return new PulledChanges(epoch, next, count, applied);
     }
 
-    public synchronized void saveCache() {
-        Path temp = null;
-        try {
-            temp = Files.createTempFile(cachePath.getParent(), "btc-", ".tmp");
-            mapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), cache);
-            Files.move(temp, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-        } catch (IOException e) {
-            System.err.println("❌ Erreur de sauvegarde: " + e.getMessage());
-        } finally {
-            if (temp != null) try { Files.deleteIfExists(temp); } catch (IOException _) {}
+    /**
+     * Merges a peer's {@link #writeSnapshot} of the wallet. Returns the number of entries that changed.
+     */
+    public int mergeSnapshot(String walletId, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != CacheFile.MAGIC) throw new IOException("Not a cache snapshot");
+        if (data.readInt() != CacheFile.VERSION) throw new IOException("Unsupported cache snapshot version");
+        long remaining = data.readLong();
+        CacheShard shard = shard(walletId);
+        byte[] chunk = new byte[MERGE_CHUNK_RECORDS * CacheFile.RECORD_BYTES];
+        int applied = 0;
+        while (remaining > 0) {
+            int records = (int) Math.min(MERGE_CHUNK_RECORDS, remaining);
+            data.readFully(chunk, 0, records * CacheFile.RECORD_BYTES);
+            applied += shard.apply(ByteBuffer.wrap(chunk, 0, records * CacheFile.RECORD_BYTES)).changes().remaining()
+                    / CacheFile.RECORD_BYTES;
+            remaining -= records;
         }
+        return applied;
     }
 
-    public Map<String, Boolean> getMultiStatus(Iterable<String> hashes) {
-        return StreamSupport.stream(hashes.spliterator(), false)
-                .filter(cache::containsKey)
-                .collect(Collectors.toMap(h -> h, h -> cache.get(h).used(), (old, _) -> old));
+    private CacheShard shard(String walletId) {
+        CacheShard shard = shards.get(walletId);
+        return shard != null ? shard : shards.computeIfAbsent(walletId, this::open);
     }
 
-    public void addEntries(Map<String, Boolean> newEntries) {
-        newEntries.forEach((h, u) -> cache.put(h, new CacheEntry(u)));
-        saveCache();
+    private CacheShard open(String walletId) {
+        boolean isDefault = DEFAULT_SHARD.equals(walletId);
+        // Wallet IDs are validated by the registry, so they are safe in file names
+        String baseName = isDefault ? FILE_PREFIX : FILE_PREFIX + "-" + walletId;
+        return CacheShard.open(Paths.get(dataPath), baseName, isDefault, compactionThreshold, compactionInterval,
+                asyncWarmup ? warmupExecutor : Runnable::run, saveTimer, warmupTimer);
     }
 
-    public void addEntry(String hash, boolean used) {
-        cache.put(hash, new CacheEntry(used));
+    private static ByteBuffer records(Map<String, Boolean> entries) {
+        long now = System.currentTimeMillis();
+        ByteBuffer records = ByteBuffer.allocate(entries.size() * CacheFile.RECORD_BYTES);
+        entries.forEach((h, used) -> CacheFile.putRecord(records, HEX.parseHex(h), DigestTable.stamp(used, now)));
+        return records.flip();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package com.btc.address.cache;
+
+import com.btc.address.bitcoin.BIP84Deriver;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent hash -> derivation index lookup, one append-only file per xpub.
+ * Like the address cache, only salted hashes are stored, never addresses. In memory, each xpub's
+ * hashes are kept as raw digests in a {@link DigestTable}.
+ */
+@ApplicationScoped
+public class AddressIndexManager {
+
+    @Inject
+    @ConfigProperty(name = "bitcoin.cache.path", defaultValue = "/data")
+    String dataPath;
+
+    private static final String FILE_PREFIX = "address-index-";
+    private static final int HASH_BYTES = 32;
+    private static final int RECORD_BYTES = Integer.BYTES + HASH_BYTES;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Map<String, XpubIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the derivation index of a hash, if it has already been derived.
+     */
+    public OptionalInt lookup(String salt, String hash) {
+        long value = indexFor(salt).hashToIndex.get(HEX.parseHex(hash), 0);
+        return value == 0 ? OptionalInt.empty() : OptionalInt.of((int) (value - 1));
+    }
+
+    /**
+     * Returns true if the given derivation index is already recorded.
+     */
+    public boolean isCovered(String salt, int index) {
+        XpubIndex idx = indexFor(salt);
+        synchronized (idx) {
+            return idx.covered.get(index);
+        }
+    }
+
+    /**
+     * Records newly derived (index -> hash) pairs and appends them to disk.
+     */
+    public void recordAll(String salt, Map<Integer, String> entries) {
+        if (entries.isEmpty()) return;
+        XpubIndex idx = indexFor(salt);
+        synchronized (idx) {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(idx.file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                for (var e : entries.entrySet()) {
+                    if (idx.covered.get(e.getKey())) continue;
+                    byte[] hash = HEX.parseHex(e.getValue());
+                    out.writeInt(e.getKey());
+                    out.write(hash);
+                    idx.covered.set(e.getKey());
+                    idx.hashToIndex.put(hash, 0, e.getKey() + 1L);
+                }
+            } catch (IOException e) {
+                System.err.println("❌ Address index save failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private XpubIndex indexFor(String salt) {
+        return indexes.computeIfAbsent(salt, this::load);
+    }
+
+    private XpubIndex load(String salt) {
+        // The file name is derived from the salt so the xpub fingerprint never appears on disk
+        String id = BIP84Deriver.generateHash(FILE_PREFIX, salt).substring(0, 16);
+        Path file = Paths.get(dataPath, FILE_PREFIX + id + ".bin");
+        XpubIndex idx = new XpubIndex(file, 0);
+        try {
+            Files.createDirectories(file.getParent());
+            if (Files.exists(file)) {
+                byte[] bytes = Files.readAllBytes(file);
+                idx = new XpubIndex(file, bytes.length / RECORD_BYTES);
+                ByteBuffer buf = ByteBuffer.wrap(bytes);
+                while (buf.remaining() >= RECORD_BYTES) {
+                    int index = buf.getInt();
+                    idx.covered.set(index);
+                    idx.hashToIndex.put(bytes, buf.position(), index + 1L);
+                    buf.position(buf.position() + HASH_BYTES);
+                }
+                // Drop a record truncated by a crash so later appends stay aligned
+                if (buf.hasRemaining()) {
+                    try (var ch = FileChannel.open(idx.file, StandardOpenOption.WRITE)) {
+                        ch.truncate(buf.position());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Address index load failed: " + e.getMessage());
+        }
+        return idx;
+    }
+
+    private static final class XpubIndex {
+        final Path file;
+        /** Derivation index + 1 by hash, since 0 marks an absent digest. */
+        final DigestTable hashToIndex;
+        final BitSet covered = new BitSet();
+
+        XpubIndex(Path file, int expectedEntries) {
+            this.file = file;
+            this.hashToIndex = new DigestTable(expectedEntries);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.btc.address.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-record binary cache format, shared by the snapshot and the journal.
+ * <pre>
+ * snapshot: header [magic:int][version:int][count:long], then count records sorted by digest
+ * record:   [digest:32 bytes][stamp:long]   (stamp = epoch millis << 1 | used)
+ * </pre>
+ * All values are big-endian, so the snapshot can be memory-mapped and read in place (see {@link MappedSnapshot}).
+ */
+final class CacheFile {
+
+    static final int MAGIC = 0x42544343; // "BTCC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = DigestTable.DIGEST_BYTES + Long.BYTES;
+
+    private static final int WRITE_BUFFER_RECORDS = 8192;
+
+    private CacheFile() {}
+
+    static void putRecord(ByteBuffer buf, byte[] digest, long stamp) {
+        buf.put(digest, 0, DigestTable.DIGEST_BYTES).putLong(stamp);
+    }
+
+    /**
+     * Writes a sorted snapshot of a private table copy to a temp file, then atomically replaces the target.
+     * Returns once the new snapshot is durable, rename included, so callers may drop what it supersedes.
+     */
+    static void write(Path snapshot, DigestTable table) throws IOException {
+        Path temp = Files.createTempFile(snapshot.getParent(), "btc-", ".tmp");
+        try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(ch, table);
+            ch.force(true);
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        syncDirectory(snapshot.getParent());
+    }
+
+    private static void syncDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException _) {
+            // Some platforms (Windows) cannot open a directory; the rename is as durable as the file system makes it
+        }
+    }
+
+    /**
+     * Writes a sorted snapshot of a private table copy to any channel, e.g. a peer's HTTP response.
+     */
+    static void write(WritableByteChannel ch, DigestTable table) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(HEADER_BYTES, WRITE_BUFFER_RECORDS * RECORD_BYTES));
+        buf.putInt(MAGIC).putInt(VERSION).putLong(table.size());
+        IOException[] failure = new IOException[1];
+        table.forEachSorted((k0, k1, k2, k3, stamp) -> {
+            if (failure[0] != null) return;
+            if (buf.remaining() < RECORD_BYTES) failure[0] = drain(ch, buf);
+            buf.putLong(k0).putLong(k1).putLong(k2).putLong(k3).putLong(stamp);
+        });
+        if (failure[0] != null) throw failure[0];
+        IOException last = drain(ch, buf);
+        if (last != null) throw last;
+    }
+
+    static long readHeader(ByteBuffer map, long fileSize) throws IOException {
+        if (fileSize < HEADER_BYTES || map.getInt(0) != MAGIC) throw new IOException("Not a cache snapshot");
+        if (map.getInt(4) != VERSION) throw new IOException("Unsupported cache snapshot version " + map.getInt(4));
+        long count = map.getLong(8);
+        // Divided rather than multiplied, so a corrupt count cannot overflow past the check
+        if (count < 0 || count > (fileSize - HEADER_BYTES) / RECORD_BYTES) throw new IOException("Truncated cache snapshot");
+        return count;
+    }
+
+    private static IOException drain(WritableByteChannel ch, ByteBuffer buf) {
+        try {
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+            return null;
+        } catch (IOException e) {
+            buf.clear();
+            return e;
+        }
+    }
+}
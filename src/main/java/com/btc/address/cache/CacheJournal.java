@@ -0,0 +1,191 @@
+package com.btc.address.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only write-ahead journal of cache mutations, in the fixed {@link CacheFile} record format.
+ * A single (virtual) writer thread drains every pending update into one write + fsync (group commit)
+ * and triggers compaction once the journal grows past a threshold or an interval elapses. Compaction
+ * always runs on that thread (or after it has stopped), so it never truncates records committed after
+ * its snapshot was taken.
+ */
+final class CacheJournal implements AutoCloseable {
+
+    /** Records to commit, or a compaction request when {@code records} is null. */
+    private record PendingWrite(ByteBuffer records, CompletableFuture<Void> done) {
+        boolean isCompaction() {
+            return records == null;
+        }
+    }
+
+    private static final PendingWrite SHUTDOWN = new PendingWrite(ByteBuffer.allocate(0), null);
+
+    private final Path path;
+    private final long compactionThreshold;
+    private final Duration compactionInterval;
+    private final Runnable compaction;
+    private final LinkedBlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private FileChannel channel;
+    private Thread writer;
+    private long lastCompaction = System.nanoTime();
+
+    CacheJournal(Path path, long compactionThreshold, Duration compactionInterval, Runnable compaction) {
+        this.path = path;
+        this.compactionThreshold = compactionThreshold;
+        this.compactionInterval = compactionInterval;
+        this.compaction = compaction;
+    }
+
+    /**
+     * Replays every complete record in order, under the table's merge rule. A trailing partial record left
+     * by a crash is truncated.
+     */
+    void replay(DigestTable table) throws IOException {
+        if (!Files.exists(path)) return;
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        byte[] digest = new byte[DigestTable.DIGEST_BYTES];
+        while (data.remaining() >= CacheFile.RECORD_BYTES) {
+            data.get(digest);
+            table.merge(digest, 0, data.getLong());
+        }
+        if (data.hasRemaining()) {
+            try (var ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ch.truncate(data.position());
+            }
+        }
+    }
+
+    void start() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = Thread.ofVirtual().name("journal-" + path.getFileName()).start(this::writeLoop);
+    }
+
+    /**
+     * Queues entries for the next group commit. The future completes once they are durable.
+     */
+    CompletableFuture<Void> append(ByteBuffer records) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!records.hasRemaining() || writer == null || !writer.isAlive()) {
+            // Nothing to write, or the journal could not be opened: keep the in-memory update only
+            done.complete(null);
+        } else {
+            queue.add(new PendingWrite(records, done));
+        }
+        return done;
+    }
+
+    /**
+     * Runs the compaction on the writer thread, after every write queued before it is durable.
+     * The future completes once the compaction has run.
+     */
+    CompletableFuture<Void> compact() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (writer == null || !writer.isAlive()) {
+            // No writer (never started, or stopped): nothing can append concurrently
+            compaction.run();
+            done.complete(null);
+        } else {
+            // A request that races close() is completed by close(), after its final compaction
+            queue.add(new PendingWrite(null, done));
+        }
+        return done;
+    }
+
+    /**
+     * Empties the journal once its content has been folded into a snapshot.
+     * Only called from the writer thread, or after it has stopped.
+     */
+    void truncate() throws IOException {
+        if (channel == null || !channel.isOpen()) return;
+        channel.truncate(0);
+        channel.force(true);
+        lastCompaction = System.nanoTime();
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> group = new ArrayList<>();
+        while (true) {
+            try {
+                PendingWrite first = queue.poll(compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    group.add(first);
+                    queue.drainTo(group);
+                }
+                boolean stop = group.remove(SHUTDOWN);
+                List<PendingWrite> compactions = group.stream().filter(PendingWrite::isCompaction).toList();
+                group.removeIf(PendingWrite::isCompaction);
+                // Records queued after a compaction request are already in the table it snapshots
+                commit(group);
+                group.clear();
+                if (!compactions.isEmpty()) {
+                    compaction.run();
+                    compactions.forEach(c -> c.done().complete(null));
+                } else if (!stop) {
+                    maybeCompact();
+                }
+                if (stop) return;
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite> group) {
+        if (group.isEmpty()) return;
+        try {
+            ByteBuffer[] buffers = group.stream().map(PendingWrite::records).toArray(ByteBuffer[]::new);
+            long total = 0;
+            for (ByteBuffer b : buffers) total += b.remaining();
+            for (long written = 0; written < total; ) written += channel.write(buffers);
+            channel.force(false);
+            group.forEach(w -> w.done().complete(null));
+        } catch (IOException e) {
+            System.err.println("❌ Journal write failed: " + e.getMessage());
+            group.forEach(w -> w.done().completeExceptionally(e));
+        }
+    }
+
+    private void maybeCompact() {
+        try {
+            long size = channel.size();
+            boolean intervalElapsed = System.nanoTime() - lastCompaction >= compactionInterval.toNanos();
+            if (size >= compactionThreshold || (size > 0 && intervalElapsed)) {
+                compaction.run();
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Journal compaction check failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Flushes pending writes, stops the writer and folds the journal into a final snapshot.
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            queue.add(SHUTDOWN);
+            try {
+                writer.join();
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        compaction.run();
+        // Queued after the writer stopped: compactions are covered by the one above, and writes stay
+        // in memory only, as with a journal that could not be opened
+        for (PendingWrite late; (late = queue.poll()) != null; ) late.done().complete(null);
+        if (channel != null) channel.close();
+    }
+}
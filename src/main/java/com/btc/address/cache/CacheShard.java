@@ -0,0 +1,244 @@
+package com.btc.address.cache;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Cache of one wallet: an in-memory {@link DigestTable} backed by its own snapshot file and journal.
+ * The snapshot is memory-mapped at open and copied into the table in the background; until that
+ * warmup finishes, table misses fall through to a binary search of the mapping, so opening a shard
+ * costs the journal replay only, whatever the cache size.
+ * <p>
+ * The files are locked for the shard's lifetime. A second process pointed at the same directory (replicas
+ * sharing a volume) keeps its shard in memory instead of overwriting the first one's snapshot.
+ */
+final class CacheShard {
+
+    private static final int WARMUP_CHUNK_RECORDS = 4096;
+
+    /** Records that changed the table, and the future of their journal write. */
+    record Applied(ByteBuffer changes, CompletableFuture<Void> durable) {}
+
+    private final String name;
+    private final Path cachePath;
+    private final CacheJournal journal;
+    private final Timer saveTimer;
+    private volatile DigestTable table = new DigestTable(0);
+    /** Snapshot still being copied into {@link #table}; null once warm. */
+    private volatile MappedSnapshot warming;
+    /** Held until {@link #close}; null when another process owns the files. */
+    private FileChannel lockFile;
+
+    private CacheShard(Path dir, String baseName, long compactionThreshold, Duration compactionInterval, Timer saveTimer) {
+        this.name = baseName;
+        this.cachePath = dir.resolve(baseName + ".bin");
+        this.saveTimer = saveTimer;
+        this.journal = new CacheJournal(dir.resolve(baseName + ".wal"), compactionThreshold, compactionInterval, this::compact);
+    }
+
+    /**
+     * Maps the snapshot, replays the journal, starts the journal writer and then warms the table up
+     * on {@code warmup}: in the background, or before returning with a caller-runs executor.
+     * With {@code migrateLegacy}, a JSON cache found in {@code dir} is imported first.
+     * Failures are logged and leave an empty, memory-only shard; so does a lock held by another process,
+     * except that its snapshot is still read.
+     */
+    static CacheShard open(Path dir, String baseName, boolean migrateLegacy, long compactionThreshold,
+            Duration compactionInterval, Executor warmup, Timer saveTimer, Timer warmupTimer) {
+        CacheShard shard = new CacheShard(dir, baseName, compactionThreshold, compactionInterval, saveTimer);
+        try {
+            Files.createDirectories(dir);
+            if (!shard.tryLock(dir)) {
+                System.err.println("❌ Cache " + baseName + " is in use by another process, keeping it in memory only");
+            }
+            if (Files.exists(shard.cachePath)) {
+                shard.warming = MappedSnapshot.open(shard.cachePath);
+            } else if (migrateLegacy && shard.lockFile != null) {
+                JsonCacheMigration migration = new JsonCacheMigration(dir);
+                if (migration.isNeeded()) {
+                    shard.table = migration.read();
+                    // Durable before the JSON files are retired, so a crash in between just migrates again
+                    CacheFile.write(shard.cachePath, shard.table.copy());
+                    migration.markDone();
+                    System.out.println("Migrated " + shard.table.size() + " cache entries from JSON to " + shard.cachePath.getFileName());
+                }
+            }
+            if (shard.lockFile != null) {
+                // Mutations newer than the snapshot
+                shard.journal.replay(shard.table);
+                shard.journal.start();
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Cache initialization failed for " + baseName + ": " + e.getMessage());
+            // Memory only: a snapshot of what was loaded would replace the files that failed to load
+            shard.unlock();
+        }
+        if (shard.warming != null) warmup.execute(() -> shard.warmUp(warmupTimer));
+        return shard;
+    }
+
+    private boolean tryLock(Path dir) throws IOException {
+        FileChannel ch = FileChannel.open(dir.resolve(name + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (ch.tryLock() != null) {
+                lockFile = ch;
+                return true;
+            }
+        } catch (OverlappingFileLockException _) {
+            // Still held by an earlier shard of this process that was not closed
+        }
+        ch.close();
+        return false;
+    }
+
+    private void unlock() {
+        if (lockFile == null) return;
+        try {
+            lockFile.close();
+        } catch (IOException _) {
+            // Released with the process anyway
+        }
+        lockFile = null;
+    }
+
+    /**
+     * Returns the stamp stored for the digest at {@code offset}, or 0 if absent.
+     */
+    long get(byte[] digest, int offset) {
+        long stamp = table.get(digest, offset);
+        MappedSnapshot snapshot = warming;
+        if (snapshot == null || DigestTable.isUsed(stamp)) return stamp;
+        // An "unused" written since startup has not been merged with the snapshot's entry yet
+        long mapped = snapshot.get(digest, offset);
+        return stamp == 0 || DigestTable.supersedes(mapped, stamp) ? mapped : stamp;
+    }
+
+    boolean isWarm() {
+        return warming == null;
+    }
+
+    /**
+     * Entry count; during warmup, an estimate that ignores overlap between the journal and the snapshot.
+     */
+    int size() {
+        MappedSnapshot snapshot = warming;
+        int loaded = table.size();
+        return snapshot != null ? Math.max(loaded, snapshot.count()) : loaded;
+    }
+
+    /**
+     * Merges the mapped snapshot into the table. Entries already there came from the journal, live updates
+     * or peers; the merge rule keeps whichever write wins.
+     */
+    private void warmUp(Timer warmupTimer) {
+        MappedSnapshot snapshot = warming;
+        Timer.Sample sample = Timer.start();
+        try {
+            DigestTable t = table;
+            t.reserve((int) Math.min(DigestTable.MAX_ENTRIES, (long) t.size() + snapshot.count()));
+            foldInto(t, snapshot);
+            warming = null;
+            long nanos = sample.stop(warmupTimer);
+            System.out.println("Cache " + name + " warmed up: " + snapshot.count() + " entries in "
+                    + Duration.ofNanos(nanos).toMillis() + " ms");
+        } catch (RuntimeException | InternalError e) {
+            // The mapping stays in place, so lookups keep working from the snapshot
+            System.err.println("❌ Cache warmup failed for " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void foldInto(DigestTable t, MappedSnapshot snapshot) {
+        long[] chunk = new long[WARMUP_CHUNK_RECORDS * 5];
+        for (int from = 0; from < snapshot.count(); from += WARMUP_CHUNK_RECORDS) {
+            int to = Math.min(snapshot.count(), from + WARMUP_CHUNK_RECORDS);
+            int[] n = {0};
+            snapshot.forEach(from, to, (k0, k1, k2, k3, stamp) -> {
+                int k = n[0]++ * 5;
+                chunk[k] = k0;
+                chunk[k + 1] = k1;
+                chunk[k + 2] = k2;
+                chunk[k + 3] = k3;
+                chunk[k + 4] = stamp;
+            });
+            // Short lock holds keep readers on the optimistic path between chunks
+            t.mergeAll(chunk, to - from);
+        }
+    }
+
+    /**
+     * Merges {@link CacheFile} records in memory and queues those that changed the table for the journal.
+     */
+    Applied apply(ByteBuffer records) {
+        DigestTable t = table;
+        byte[] digest = new byte[DigestTable.DIGEST_BYTES];
+        ByteBuffer view = records.duplicate();
+        ByteBuffer changes = ByteBuffer.allocate(view.remaining());
+        while (view.remaining() >= CacheFile.RECORD_BYTES) {
+            view.get(digest);
+            long stamp = view.getLong();
+            if (t.merge(digest, 0, stamp)) CacheFile.putRecord(changes, digest, stamp);
+        }
+        changes.flip();
+        return new Applied(changes, journal.append(changes.duplicate()));
+    }
+
+    /**
+     * Writes the shard's whole content, warmed up or not, in the snapshot format.
+     */
+    void writeSnapshot(WritableByteChannel ch) throws IOException {
+        CacheFile.write(ch, contentCopy());
+    }
+
+    /**
+     * Writes a full snapshot and empties the journal, and waits for it. The work is handed to the journal
+     * writer, so records committed while the snapshot is written are never truncated.
+     */
+    void save() {
+        journal.compact().join();
+    }
+
+    /**
+     * Journal compaction: runs on the journal writer thread, or once it has stopped.
+     */
+    private synchronized void compact() {
+        if (lockFile == null) return;
+        Timer.Sample sample = Timer.start();
+        try {
+            CacheFile.write(cachePath, contentCopy());
+            journal.truncate();
+        } catch (IOException e) {
+            System.err.println("❌ Cache save failed for " + name + ": " + e.getMessage());
+        } finally {
+            sample.stop(saveTimer);
+        }
+    }
+
+    private DigestTable contentCopy() {
+        // Entries not warmed up yet belong in the copy too; read before copying,
+        // since a null here means the table already holds all of them
+        MappedSnapshot snapshot = warming;
+        DigestTable copy = table.copy();
+        if (snapshot != null) foldInto(copy, snapshot);
+        return copy;
+    }
+
+    void close() {
+        try {
+            journal.close();
+            if (lockFile != null) lockFile.close();
+        } catch (IOException e) {
+            System.err.println("❌ Journal close failed for " + name + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.btc.address.cache;
+
+import java.time.Duration;
+
+/**
+ * Cached usage of one address hash and when it was last confirmed by a provider.
+ */
+public record CachedStatus(boolean used, long checkedAtMillis) {
+
+    /**
+     * "Used" never expires; "unused" is trusted for {@code unusedTtl} after the last check.
+     */
+    public boolean isFresh(Duration unusedTtl, long nowMillis) {
+        return used || nowMillis - checkedAtMillis < unusedTtl.toMillis();
+    }
+}
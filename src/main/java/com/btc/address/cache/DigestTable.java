@@ -0,0 +1,317 @@
+package com.btc.address.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing hash table keyed by raw 32-byte digests, backed by primitive arrays.
+ * Each slot costs 40 bytes: four longs of digest and one "stamp" long packing
+ * (epoch millis << 1 | used). A zero stamp marks an empty slot. {@link AddressIndexManager} keeps
+ * derivation indexes in the stamp long instead, through {@link #put} and {@link #get} only.
+ * Reads are optimistic and lock-free unless they race with a write.
+ * <p>
+ * Capacity stops at 2^28 slots (the key array then has 2^30 longs), so a table holds at most
+ * {@link #MAX_ENTRIES} entries, about 188 million; adding a new digest beyond that throws.
+ */
+final class DigestTable {
+
+    static final int DIGEST_BYTES = 32;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final double LOAD_FACTOR = 0.7;
+    private static final int MAX_CAPACITY = 1 << 28;
+    static final int MAX_ENTRIES = maxEntries(MAX_CAPACITY);
+
+    /** Arrays are swapped as a unit on resize so optimistic readers never mix generations. */
+    private record Slots(long[] keys, long[] stamps, int mask) {
+        static Slots withCapacity(int capacity) {
+            return new Slots(new long[capacity * 4], new long[capacity], capacity - 1);
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordSink {
+        void accept(long k0, long k1, long k2, long k3, long stamp);
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxCapacity;
+    private Slots slots;
+    private int size;
+
+    DigestTable(int expectedEntries) {
+        this(expectedEntries, MAX_CAPACITY);
+    }
+
+    /** With a smaller capacity limit than {@link #MAX_CAPACITY}, for tests. */
+    DigestTable(int expectedEntries, int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        this.slots = Slots.withCapacity(capacityFor(expectedEntries));
+    }
+
+    private DigestTable(Slots slots, int size, int maxCapacity) {
+        this.slots = slots;
+        this.size = size;
+        this.maxCapacity = maxCapacity;
+    }
+
+    static long stamp(boolean used, long epochMillis) {
+        return (epochMillis << 1) | (used ? 1 : 0);
+    }
+
+    static boolean isUsed(long stamp) {
+        return (stamp & 1) != 0;
+    }
+
+    static long epochMillis(long stamp) {
+        return stamp >>> 1;
+    }
+
+    /**
+     * Returns the stamp stored for the digest at {@code offset}, or 0 if absent.
+     */
+    long get(byte[] digest, int offset) {
+        long k0 = (long) LONGS.get(digest, offset);
+        long k1 = (long) LONGS.get(digest, offset + 8);
+        long k2 = (long) LONGS.get(digest, offset + 16);
+        long k3 = (long) LONGS.get(digest, offset + 24);
+
+        long lockStamp = lock.tryOptimisticRead();
+        long result = find(slots, k0, k1, k2, k3);
+        if (!lock.validate(lockStamp)) {
+            lockStamp = lock.readLock();
+            try {
+                result = find(slots, k0, k1, k2, k3);
+            } finally {
+                lock.unlockRead(lockStamp);
+            }
+        }
+        return result;
+    }
+
+    void put(byte[] digest, int offset, long stamp) {
+        put((long) LONGS.get(digest, offset), (long) LONGS.get(digest, offset + 8),
+                (long) LONGS.get(digest, offset + 16), (long) LONGS.get(digest, offset + 24), stamp);
+    }
+
+    void put(long k0, long k1, long k2, long k3, long stamp) {
+        long lockStamp = lock.writeLock();
+        try {
+            if (find(slots, k0, k1, k2, k3) == 0) makeRoom();
+            if (insert(slots, k0, k1, k2, k3, stamp)) size++;
+        } finally {
+            lock.unlockWrite(lockStamp);
+        }
+    }
+
+    /**
+     * Stores the stamp unless the entry already holds one that {@linkplain #supersedes supersedes} it.
+     * Returns true if the table changed.
+     */
+    boolean merge(byte[] digest, int offset, long stamp) {
+        return merge((long) LONGS.get(digest, offset), (long) LONGS.get(digest, offset + 8),
+                (long) LONGS.get(digest, offset + 16), (long) LONGS.get(digest, offset + 24), stamp);
+    }
+
+    boolean merge(long k0, long k1, long k2, long k3, long stamp) {
+        long lockStamp = lock.writeLock();
+        try {
+            return mergeLocked(k0, k1, k2, k3, stamp);
+        } finally {
+            lock.unlockWrite(lockStamp);
+        }
+    }
+
+    /**
+     * Merges {@code count} packed records (k0, k1, k2, k3, stamp) under one lock acquisition:
+     * used to fold in bulk data, such as a snapshot being warmed up.
+     */
+    void mergeAll(long[] records, int count) {
+        long lockStamp = lock.writeLock();
+        try {
+            for (int r = 0; r < count; r++) {
+                int k = r * 5;
+                mergeLocked(records[k], records[k + 1], records[k + 2], records[k + 3], records[k + 4]);
+            }
+        } finally {
+            lock.unlockWrite(lockStamp);
+        }
+    }
+
+    /**
+     * Conflict rule between two writes of one entry, wherever they come from: "used" always wins, since an
+     * address never loses its history; otherwise the later write wins.
+     */
+    static boolean supersedes(long stamp, long existing) {
+        return isUsed(stamp) != isUsed(existing) ? isUsed(stamp) : stamp > existing;
+    }
+
+    private boolean mergeLocked(long k0, long k1, long k2, long k3, long stamp) {
+        long existing = find(slots, k0, k1, k2, k3);
+        if (existing != 0 && !supersedes(stamp, existing)) return false;
+        if (existing == 0) makeRoom();
+        if (insert(slots, k0, k1, k2, k3, stamp)) size++;
+        return true;
+    }
+
+    /**
+     * Grows the table once so that {@code expectedEntries} fit without further resizes.
+     */
+    void reserve(int expectedEntries) {
+        int capacity = capacityFor(expectedEntries);
+        long lockStamp = lock.writeLock();
+        try {
+            if (capacity > slots.mask() + 1) rehash(Slots.withCapacity(capacity));
+        } finally {
+            lock.unlockWrite(lockStamp);
+        }
+    }
+
+    int size() {
+        long lockStamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(lockStamp);
+        }
+    }
+
+    /**
+     * Point-in-time copy, so snapshots can be written without holding the lock.
+     */
+    DigestTable copy() {
+        long lockStamp = lock.readLock();
+        try {
+            Slots s = slots;
+            return new DigestTable(new Slots(s.keys().clone(), s.stamps().clone(), s.mask()), size, maxCapacity);
+        } finally {
+            lock.unlockRead(lockStamp);
+        }
+    }
+
+    /**
+     * Emits every entry in unsigned digest order. Only meant for private copies.
+     */
+    void forEachSorted(RecordSink sink) {
+        Slots s = slots;
+        long[] firstWords = new long[size];
+        int n = 0;
+        for (int i = 0; i <= s.mask(); i++) {
+            // Flipping the sign bit makes the signed sort an unsigned one
+            if (s.stamps()[i] != 0) firstWords[n++] = s.keys()[i * 4] ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(firstWords, 0, n);
+
+        int[] pending = new int[0];
+        for (int j = 0; j < n; j++) {
+            if (j > 0 && firstWords[j] == firstWords[j - 1]) continue;
+            long k0 = firstWords[j] ^ Long.MIN_VALUE;
+            // Full 64-bit prefix collisions are practically impossible, but stay correct anyway
+            int matches = 0;
+            for (int probe = 0, i = slot(k0, s.mask()); probe <= s.mask() && s.stamps()[i] != 0; probe++, i = (i + 1) & s.mask()) {
+                if (s.keys()[i * 4] != k0) continue;
+                if (matches == pending.length) pending = Arrays.copyOf(pending, Math.max(4, matches * 2));
+                pending[matches++] = i;
+            }
+            if (matches > 1) sortByRemainingWords(s, pending, matches);
+            for (int m = 0; m < matches; m++) {
+                int i = pending[m];
+                sink.accept(k0, s.keys()[i * 4 + 1], s.keys()[i * 4 + 2], s.keys()[i * 4 + 3], s.stamps()[i]);
+            }
+        }
+    }
+
+    private static void sortByRemainingWords(Slots s, int[] slotIndexes, int count) {
+        for (int a = 1; a < count; a++) {
+            for (int b = a; b > 0 && compareSlots(s, slotIndexes[b - 1], slotIndexes[b]) > 0; b--) {
+                int t = slotIndexes[b];
+                slotIndexes[b] = slotIndexes[b - 1];
+                slotIndexes[b - 1] = t;
+            }
+        }
+    }
+
+    private static int compareSlots(Slots s, int a, int b) {
+        for (int w = 1; w < 4; w++) {
+            int c = Long.compareUnsigned(s.keys()[a * 4 + w], s.keys()[b * 4 + w]);
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    private static long find(Slots s, long k0, long k1, long k2, long k3) {
+        long[] keys = s.keys();
+        long[] stamps = s.stamps();
+        int mask = s.mask();
+        for (int probe = 0, i = slot(k0, mask); probe <= mask; probe++, i = (i + 1) & mask) {
+            long stamp = stamps[i];
+            if (stamp == 0) return 0;
+            int k = i * 4;
+            if (keys[k] == k0 && keys[k + 1] == k1 && keys[k + 2] == k2 && keys[k + 3] == k3) return stamp;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns true if a new slot was taken, false if an existing entry was overwritten.
+     */
+    private static boolean insert(Slots s, long k0, long k1, long k2, long k3, long stamp) {
+        long[] keys = s.keys();
+        int mask = s.mask();
+        for (int i = slot(k0, mask); ; i = (i + 1) & mask) {
+            int k = i * 4;
+            if (s.stamps()[i] == 0) {
+                keys[k] = k0;
+                keys[k + 1] = k1;
+                keys[k + 2] = k2;
+                keys[k + 3] = k3;
+                s.stamps()[i] = stamp;
+                return true;
+            }
+            if (keys[k] == k0 && keys[k + 1] == k1 && keys[k + 2] == k2 && keys[k + 3] == k3) {
+                s.stamps()[i] = stamp;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Grows the table if one more entry would exceed the load factor. A full table throws instead of
+     * filling its last slots, where probes would get long and an insert with no free slot would never end.
+     */
+    private void makeRoom() {
+        int capacity = slots.mask() + 1;
+        if (size + 1 <= capacity * LOAD_FACTOR) return;
+        if (capacity >= maxCapacity) {
+            throw new IllegalStateException("Cache shard is full: " + maxEntries(maxCapacity) + " entries at most");
+        }
+        rehash(Slots.withCapacity(capacity * 2));
+    }
+
+    private void rehash(Slots grown) {
+        Slots old = slots;
+        for (int i = 0; i <= old.mask(); i++) {
+            if (old.stamps()[i] == 0) continue;
+            int k = i * 4;
+            insert(grown, old.keys()[k], old.keys()[k + 1], old.keys()[k + 2], old.keys()[k + 3], old.stamps()[i]);
+        }
+        slots = grown;
+    }
+
+    private static int slot(long k0, int mask) {
+        // Keys are SHA-256 output, so the high bits are already uniformly distributed
+        return (int) (k0 ^ (k0 >>> 32)) & mask;
+    }
+
+    /** Reservations beyond the limit are capped: entries past it fail when they are added. */
+    private int capacityFor(int expectedEntries) {
+        long needed = (long) Math.ceil(Math.max(expectedEntries, 16) / LOAD_FACTOR);
+        return (int) Math.min(maxCapacity, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    private static int maxEntries(int capacity) {
+        return (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,72 @@
+package com.btc.address.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * One-time import of the legacy JSON cache (snapshot + line journal) into a {@link DigestTable}.
+ * The JSON files are renamed with a ".migrated" suffix once the binary snapshot is written.
+ */
+final class JsonCacheMigration {
+
+    static final String LEGACY_SNAPSHOT = "address-cache.json";
+    static final String LEGACY_JOURNAL = "address-cache.journal";
+
+    private static final HexFormat HEX = HexFormat.of();
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final Path dir;
+
+    JsonCacheMigration(Path dir) {
+        this.dir = dir;
+    }
+
+    boolean isNeeded() {
+        return Files.exists(dir.resolve(LEGACY_SNAPSHOT)) || Files.exists(dir.resolve(LEGACY_JOURNAL));
+    }
+
+    DigestTable read() throws IOException {
+        DigestTable table = new DigestTable(0);
+        Path snapshot = dir.resolve(LEGACY_SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            var type = mapper.getTypeFactory().constructMapType(Map.class, String.class, CacheEntry.class);
+            Map<String, CacheEntry> loaded = mapper.readValue(snapshot.toFile(), type);
+            if (loaded != null) loaded.forEach((h, e) -> put(table, h, e.used(), e.timestamp()));
+        }
+        Path journal = dir.resolve(LEGACY_JOURNAL);
+        if (Files.exists(journal)) {
+            for (String line : Files.readAllLines(journal)) {
+                try {
+                    JsonNode r = mapper.readTree(line);
+                    put(table, r.path("h").asText(), r.path("u").asBoolean(), Instant.parse(r.path("t").asText()));
+                } catch (Exception _) {
+                    // Partial trailing record from a crash
+                }
+            }
+        }
+        return table;
+    }
+
+    void markDone() throws IOException {
+        for (String name : new String[]{LEGACY_SNAPSHOT, LEGACY_JOURNAL}) {
+            Path legacy = dir.resolve(name);
+            if (Files.exists(legacy)) {
+                Files.move(legacy, dir.resolve(name + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void put(DigestTable table, String hexHash, boolean used, Instant timestamp) {
+        if (hexHash.length() != DigestTable.DIGEST_BYTES * 2) return;
+        long millis = timestamp != null ? timestamp.toEpochMilli() : System.currentTimeMillis();
+        table.put(HEX.parseHex(hexHash), 0, DigestTable.stamp(used, millis));
+    }
+}
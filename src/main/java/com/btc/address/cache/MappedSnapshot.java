@@ -0,0 +1,105 @@
+package com.btc.address.cache;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of a {@link CacheFile} snapshot.
+ * Records are sorted by digest, so a lookup is a binary search over the mapping and only touches
+ * the pages it visits; nothing is loaded up front. Absolute reads keep it safe for concurrent use.
+ * <p>
+ * A single mapping is limited to 2 GB, so the records are mapped in segments of whole records;
+ * snapshots of more than {@link DigestTable#MAX_ENTRIES} entries, which no shard could hold, are rejected.
+ */
+final class MappedSnapshot {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    /** Records per mapping: as many as fit in 1 GB. */
+    private static final int SEGMENT_RECORDS = (1 << 30) / CacheFile.RECORD_BYTES;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentRecords;
+    private final int count;
+
+    private MappedSnapshot(MappedByteBuffer[] segments, int segmentRecords, int count) {
+        this.segments = segments;
+        this.segmentRecords = segmentRecords;
+        this.count = count;
+    }
+
+    static MappedSnapshot open(Path snapshot) throws IOException {
+        return open(snapshot, SEGMENT_RECORDS);
+    }
+
+    /** With smaller segments, for tests. */
+    static MappedSnapshot open(Path snapshot, int segmentRecords) throws IOException {
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(CacheFile.HEADER_BYTES);
+            ch.read(header, 0);
+            long count = CacheFile.readHeader(header, ch.size());
+            if (count > DigestTable.MAX_ENTRIES) {
+                throw new IOException("Cache snapshot holds " + count + " entries, more than the limit of " + DigestTable.MAX_ENTRIES);
+            }
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((count + segmentRecords - 1) / segmentRecords)];
+            for (int s = 0; s < segments.length; s++) {
+                long first = (long) s * segmentRecords;
+                long records = Math.min(segmentRecords, count - first);
+                segments[s] = ch.map(FileChannel.MapMode.READ_ONLY, CacheFile.HEADER_BYTES + first * CacheFile.RECORD_BYTES,
+                        records * CacheFile.RECORD_BYTES);
+            }
+            return new MappedSnapshot(segments, segmentRecords, (int) count);
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Returns the stamp stored for the digest at {@code offset}, or 0 if absent.
+     */
+    long get(byte[] digest, int offset) {
+        long k0 = (long) LONGS.get(digest, offset);
+        long k1 = (long) LONGS.get(digest, offset + 8);
+        long k2 = (long) LONGS.get(digest, offset + 16);
+        long k3 = (long) LONGS.get(digest, offset + 24);
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            MappedByteBuffer map = segments[mid / segmentRecords];
+            int pos = position(mid);
+            int c = Long.compareUnsigned(map.getLong(pos), k0);
+            if (c == 0) c = Long.compareUnsigned(map.getLong(pos + 8), k1);
+            if (c == 0) c = Long.compareUnsigned(map.getLong(pos + 16), k2);
+            if (c == 0) c = Long.compareUnsigned(map.getLong(pos + 24), k3);
+            if (c == 0) return map.getLong(pos + DigestTable.DIGEST_BYTES);
+            if (c < 0) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Emits records {@code [from, to)} in file order.
+     */
+    void forEach(int from, int to, DigestTable.RecordSink sink) {
+        for (int r = from; r < to; r++) {
+            MappedByteBuffer map = segments[r / segmentRecords];
+            int pos = position(r);
+            sink.accept(map.getLong(pos), map.getLong(pos + 8), map.getLong(pos + 16), map.getLong(pos + 24),
+                    map.getLong(pos + DigestTable.DIGEST_BYTES));
+        }
+    }
+
+    /** Offset of the record in its segment; segments are at most 1 GB, so it fits in an int. */
+    private int position(int record) {
+        return (record % segmentRecords) * CacheFile.RECORD_BYTES;
+    }
+}
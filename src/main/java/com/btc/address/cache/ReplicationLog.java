@@ -0,0 +1,90 @@
+package com.btc.address.cache;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded ring of the cache changes made by this process, numbered by a sequence that peers pull from.
+ * Only local changes are logged: every replica pulls from every other, so relaying would only echo.
+ * <p>
+ * The epoch is random per process, so a peer holding a cursor from before a restart (or one that fell
+ * more than the ring behind) is told to start over from a snapshot instead of silently missing changes.
+ */
+final class ReplicationLog {
+
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final String[] wallets;
+    private final byte[] digests;
+    private final long[] stamps;
+    /** Sequence number of the next change. */
+    private long next;
+
+    ReplicationLog(int capacity) {
+        this.wallets = new String[capacity];
+        this.digests = new byte[capacity * DigestTable.DIGEST_BYTES];
+        this.stamps = new long[capacity];
+    }
+
+    long epoch() {
+        return epoch;
+    }
+
+    synchronized long next() {
+        return next;
+    }
+
+    /**
+     * Appends {@link CacheFile} records, evicting the oldest changes once the ring is full.
+     */
+    synchronized void append(String walletId, ByteBuffer records) {
+        ByteBuffer view = records.duplicate();
+        while (view.remaining() >= CacheFile.RECORD_BYTES) {
+            int slot = (int) (next++ % stamps.length);
+            wallets[slot] = walletId;
+            view.get(digests, slot * DigestTable.DIGEST_BYTES, DigestTable.DIGEST_BYTES);
+            stamps[slot] = view.getLong();
+        }
+    }
+
+    /**
+     * Writes up to {@code max} changes from {@code since} as
+     * {@code [epoch:long][next:long][count:int]} then {@code count x [wallet:UTF][digest:32 bytes][stamp:long]},
+     * where {@code next} is the cursor to resume from.
+     *
+     * @return false, writing nothing, if the cursor belongs to another epoch or was evicted
+     */
+    boolean write(long cursorEpoch, long since, int max, DataOutputStream out) throws IOException {
+        String[] w;
+        byte[] d;
+        long[] s;
+        long from;
+        int count;
+        synchronized (this) {
+            if (cursorEpoch != epoch || since > next || since < next - stamps.length || since < 0) return false;
+            from = since;
+            count = (int) Math.min(max, next - since);
+            // Copy out so the response is written without holding the lock
+            w = new String[count];
+            d = new byte[count * DigestTable.DIGEST_BYTES];
+            s = new long[count];
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((from + i) % stamps.length);
+                w[i] = wallets[slot];
+                System.arraycopy(digests, slot * DigestTable.DIGEST_BYTES, d, i * DigestTable.DIGEST_BYTES, DigestTable.DIGEST_BYTES);
+                s[i] = stamps[slot];
+            }
+        }
+        out.writeLong(epoch);
+        out.writeLong(from + count);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeUTF(w[i]);
+            out.write(d, i * DigestTable.DIGEST_BYTES, DigestTable.DIGEST_BYTES);
+            out.writeLong(s[i]);
+        }
+        out.flush();
+        return true;
+    }
+}
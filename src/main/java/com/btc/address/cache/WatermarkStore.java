@@ -0,0 +1,89 @@
+package com.btc.address.cache;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Highest derivation index known to be used, per wallet ({@code address-watermark-<id>.bin}).
+ * It only moves forward; scans start right after it instead of re-confirming the used prefix.
+ */
+@ApplicationScoped
+public class WatermarkStore {
+
+    /** No used address seen yet. */
+    public static final int NONE = -1;
+
+    @Inject
+    @ConfigProperty(name = "bitcoin.cache.path", defaultValue = "/data")
+    String dataPath;
+
+    private static final String FILE_PREFIX = "address-watermark-";
+
+    private final Map<String, AtomicInteger> watermarks = new ConcurrentHashMap<>();
+
+    public int get(String walletId) {
+        return watermarkFor(walletId).get();
+    }
+
+    /**
+     * Raises the watermark to {@code usedIndex} if it is higher, persisting the new value.
+     */
+    public void advance(String walletId, int usedIndex) {
+        AtomicInteger watermark = watermarkFor(walletId);
+        int current;
+        do {
+            current = watermark.get();
+            if (usedIndex <= current) return;
+        } while (!watermark.compareAndSet(current, usedIndex));
+        persist(walletId, watermark);
+    }
+
+    private AtomicInteger watermarkFor(String walletId) {
+        AtomicInteger watermark = watermarks.get(walletId);
+        return watermark != null ? watermark : watermarks.computeIfAbsent(walletId, this::load);
+    }
+
+    private AtomicInteger load(String walletId) {
+        Path file = fileFor(walletId);
+        try {
+            if (Files.exists(file)) {
+                byte[] data = Files.readAllBytes(file);
+                if (data.length == Integer.BYTES) return new AtomicInteger(ByteBuffer.wrap(data).getInt());
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Watermark load failed for " + walletId + ": " + e.getMessage());
+        }
+        return new AtomicInteger(NONE);
+    }
+
+    /**
+     * Writes the latest value; concurrent advances of one wallet are serialized and re-read the counter,
+     * so the file never goes backwards.
+     */
+    private void persist(String walletId, AtomicInteger watermark) {
+        synchronized (watermark) {
+            Path file = fileFor(walletId);
+            try {
+                Files.createDirectories(file.getParent());
+                Path temp = Files.createTempFile(file.getParent(), "btc-", ".tmp");
+                Files.write(temp, ByteBuffer.allocate(Integer.BYTES).putInt(watermark.get()).array());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("❌ Watermark save failed for " + walletId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Path fileFor(String walletId) {
+        // Wallet IDs are validated by the registry, so they are safe in file names
+        return Paths.get(dataPath, FILE_PREFIX + walletId + ".bin");
+    }
+}
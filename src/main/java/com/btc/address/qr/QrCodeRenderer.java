@@ -0,0 +1,90 @@
+package com.btc.address.qr;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders address QR codes at module resolution and keeps recent renderings in an LRU cache.
+ * SVGs scale through their viewBox, so a single rendering serves every display size.
+ */
+@ApplicationScoped
+public class QrCodeRenderer {
+
+    private static final int QUIET_ZONE = 4;
+    private static final Map<EncodeHintType, Object> HINTS = Map.of(EncodeHintType.CHARACTER_SET, "ISO-8859-1");
+
+    private final Map<CacheKey, QrImage> cache;
+
+    @ConfigProperty(name = "bitcoin.qr.png-scale", defaultValue = "8")
+    int pngScale;
+
+    private record CacheKey(String content, QrFormat format) {}
+
+    public QrCodeRenderer(@ConfigProperty(name = "bitcoin.qr.cache-size", defaultValue = "1024") int cacheSize) {
+        this.cache = new LinkedHashMap<>(Math.max(16, cacheSize * 4 / 3), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, QrImage> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the QR code for {@code content}, rendering it on first use.
+     */
+    public QrImage render(String content, QrFormat format) {
+        CacheKey key = new CacheKey(content, format);
+        synchronized (cache) {
+            QrImage cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+
+        QrImage image = draw(content, format);
+        synchronized (cache) {
+            cache.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * SVG as a data URI, for inline JSON responses.
+     */
+    public String svgDataUri(String content) {
+        return "data:image/svg+xml;base64," + Base64.getEncoder().encodeToString(render(content, QrFormat.SVG).bytes());
+    }
+
+    private QrImage draw(String content, QrFormat format) {
+        ByteMatrix matrix;
+        try {
+            matrix = Encoder.encode(content, ErrorCorrectionLevel.L, HINTS).getMatrix();
+        } catch (WriterException e) {
+            throw new RuntimeException("Error generating QR code", e);
+        }
+        byte[] bytes = switch (format) {
+            case SVG -> QrWriters.svg(matrix, QUIET_ZONE);
+            case PNG -> QrWriters.png(matrix, QUIET_ZONE, pngScale);
+        };
+        return new QrImage(bytes, format.contentType, etag(bytes));
+    }
+
+    private static String etag(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
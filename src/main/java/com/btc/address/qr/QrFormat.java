@@ -0,0 +1,12 @@
+package com.btc.address.qr;
+
+public enum QrFormat {
+    SVG("image/svg+xml"),
+    PNG("image/png");
+
+    public final String contentType;
+
+    QrFormat(String contentType) {
+        this.contentType = contentType;
+    }
+}
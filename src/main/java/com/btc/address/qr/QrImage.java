@@ -0,0 +1,6 @@
+package com.btc.address.qr;
+
+/**
+ * Rendered QR code. {@code etag} is a strong validator derived from the bytes.
+ */
+public record QrImage(byte[] bytes, String contentType, String etag) {}
@@ -0,0 +1,163 @@
+package com.btc.address.qr;
+
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Byte-level SVG and PNG writers for a module-resolution QR matrix (one cell per module).
+ */
+final class QrWriters {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] SVG_HEAD = ascii("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ");
+    private static final byte[] SVG_BODY = ascii("\" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#ffffff\"/><path fill=\"#000000\" d=\"");
+    private static final byte[] SVG_TAIL = ascii("\"/></svg>");
+
+    private QrWriters() {}
+
+    /**
+     * SVG scaled by its viewBox: one unit per module, horizontal runs merged into single path segments.
+     */
+    static byte[] svg(ByteMatrix matrix, int quietZone) {
+        int size = matrix.getWidth() + 2 * quietZone;
+        AsciiBuffer out = new AsciiBuffer(2048);
+        out.put(SVG_HEAD).putInt(size).put(' ').putInt(size).put(SVG_BODY);
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                if (matrix.get(x, y) != 1) continue;
+                int width = 1;
+                while (x + width < matrix.getWidth() && matrix.get(x + width, y) == 1) width++;
+                out.put('M').putInt(x + quietZone).put(' ').putInt(y + quietZone)
+                        .put('h').putInt(width).put('v').put('1').put('h').put('-').putInt(width).put('z');
+                x += width - 1;
+            }
+        }
+        return out.put(SVG_TAIL).toByteArray();
+    }
+
+    /**
+     * 1-bit grayscale PNG with {@code scale} pixels per module.
+     */
+    static byte[] png(ByteMatrix matrix, int quietZone, int scale) {
+        int pixels = (matrix.getWidth() + 2 * quietZone) * scale;
+        int rowBytes = (pixels + 7) / 8;
+        byte[] raw = new byte[(rowBytes + 1) * pixels];
+        for (int py = 0; py < pixels; py++) {
+            int rowStart = py * (rowBytes + 1); // first byte is filter type 0 (none)
+            int my = py / scale - quietZone;
+            for (int px = 0; px < pixels; px++) {
+                int mx = px / scale - quietZone;
+                boolean dark = my >= 0 && mx >= 0 && my < matrix.getHeight() && mx < matrix.getWidth() && matrix.get(mx, my) == 1;
+                // In 1-bit grayscale, 1 is white
+                if (!dark) raw[rowStart + 1 + (px >>> 3)] |= (byte) (0x80 >>> (px & 7));
+            }
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        ByteArrayOutputStream idat = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                idat.write(chunk, 0, deflater.deflate(chunk));
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(idat.size() + 64);
+        out.writeBytes(PNG_SIGNATURE);
+        byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, pixels);
+        putInt(ihdr, 4, pixels);
+        ihdr[8] = 1; // bit depth
+        ihdr[9] = 0; // grayscale
+        writeChunk(out, "IHDR", ihdr, ihdr.length);
+        writeChunk(out, "IDAT", idat.toByteArray(), idat.size());
+        writeChunk(out, "IEND", new byte[0], 0);
+        return out.toByteArray();
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data, int length) {
+        byte[] header = new byte[8];
+        putInt(header, 0, length);
+        byte[] typeBytes = ascii(type);
+        System.arraycopy(typeBytes, 0, header, 4, 4);
+        out.write(header, 0, 8);
+        out.write(data, 0, length);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        byte[] trailer = new byte[4];
+        putInt(trailer, 0, (int) crc.getValue());
+        out.write(trailer, 0, 4);
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** Growable ASCII byte buffer with allocation-free integer formatting. */
+    private static final class AsciiBuffer {
+        private byte[] buf;
+        private int len;
+
+        AsciiBuffer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        AsciiBuffer put(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, len, b.length);
+            len += b.length;
+            return this;
+        }
+
+        AsciiBuffer put(char c) {
+            ensure(1);
+            buf[len++] = (byte) c;
+            return this;
+        }
+
+        AsciiBuffer putInt(int v) {
+            // Matrix coordinates are small and non-negative
+            ensure(10);
+            if (v == 0) {
+                buf[len++] = '0';
+                return this;
+            }
+            int start = len;
+            while (v > 0) {
+                buf[len++] = (byte) ('0' + v % 10);
+                v /= 10;
+            }
+            for (int i = start, j = len - 1; i < j; i++, j--) {
+                byte t = buf[i];
+                buf[i] = buf[j];
+                buf[j] = t;
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return java.util.Arrays.copyOf(buf, len);
+        }
+
+        private void ensure(int extra) {
+            if (len + extra > buf.length) buf = java.util.Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+}
@@ -1,39 +1,78 @@
 package com.btc.address.resource;
 
+import com.btc.address.qr.QrCodeRenderer;
+import com.btc.address.qr.QrFormat;
+import com.btc.address.qr.QrImage;
 import com.btc.address.service.AddressService;
+import com.btc.address.wallet.WalletRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.util.Optional;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 @Path("/api/address")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class AddressResource {
 
+    /** Lowercase mainnet Bech32 address, as produced by the deriver. */
+    private static final Pattern BECH32_ADDRESS = Pattern.compile("bc1[02-9ac-hj-np-z]{8,87}");
+
     @Inject
     AddressService addressService;
 
-    @ConfigProperty(name = "bitcoin.xpub")
-    Optional<String> xpub;
+    @Inject
+    ObjectMapper mapper;
+
+    @ConfigProperty(name = "bitcoin.verify.max-addresses", defaultValue = "10000")
+    int maxVerifyAddresses;
+
+    @Inject
+    QrCodeRenderer qrRenderer;
+
+    @Inject
+    WalletRegistry wallets;
 
     @POST
     @Path("/next")
     @RunOnVirtualThread // Efficiently handles blocking blockchain I/O on virtual threads
     public NextAddressResult getNextUnusedAddress(AddressRequest request) {
         // Using Pattern Matching-like flow with Optional
-        return xpub.filter(key -> !key.isBlank())
-                .map(key -> addressService.findNextUnusedAddress(
-                        key,
+        return wallets.defaultWallet()
+                .map(wallet -> addressService.findNextUnusedAddress(
+                        wallet,
                         Math.max(request.startIndex(), 0),
                         request.salt()))
                 .orElseThrow(() -> new BadRequestException("bitcoin.xpub is not configured"));
     }
 
+    /**
+     * Up to {@code count} unused addresses from one scan pass, streamed as NDJSON.
+     * QR codes are only inlined with {@code qr=true}; otherwise use each line's {@code qrCodeUrl}.
+     */
+    @POST
+    @Path("/next/stream")
+    @Produces(AddressStream.NDJSON)
+    @RunOnVirtualThread
+    public Response streamUnusedAddresses(AddressRequest request,
+                                          @QueryParam("count") @DefaultValue("10") int count,
+                                          @QueryParam("qr") @DefaultValue("false") boolean qr) {
+        return wallets.defaultWallet()
+                .map(wallet -> AddressStream.of(addressService, mapper, wallet, request, count, qr))
+                .orElseThrow(() -> new BadRequestException("bitcoin.xpub is not configured"));
+    }
+
     @POST
     @Path("/verify")
     @RunOnVirtualThread
@@ -42,10 +81,63 @@ public class AddressResource {
         if (request.address() == null || request.address().isBlank()) {
             return Response.status(Response.Status.BAD_REQUEST).entity("Address is required").build();
         }
-        return xpub.filter(key -> !key.isBlank())
-                .map(key -> addressService.verifyAddressOwnership(key, request.address()))
+        return wallets.defaultWallet()
+                .map(wallet -> addressService.verifyAddressOwnership(wallet, request.address()))
                 .map(result -> Response.ok(result).build())
                 .orElseGet(() -> Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                         .entity("Server configuration error").build());
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifies a list of addresses in one derivation pass; see {@link BatchVerifyRequest}.
+     */
+    @POST
+    @Path("/verify/batch")
+    @RunOnVirtualThread
+    public Response verifyBatch(BatchVerifyRequest request) {
+        List<String> addresses = request == null ? List.of() : request.distinctAddresses();
+        if (addresses.isEmpty() || addresses.size() > maxVerifyAddresses) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Between 1 and " + maxVerifyAddresses + " addresses are required").build();
+        }
+        return wallets.defaultWallet()
+                .map(wallet -> addressService.verifyAddresses(wallet, addresses, request.ceilingOrZero()))
+                .map(result -> Response.ok(result).build())
+                .orElseGet(() -> Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity("Server configuration error").build());
+    }
+
+    /**
+     * QR code of a {@code bitcoin:} URI. The image only depends on the address,
+     * so responses carry a strong ETag and may be cached forever.
+     */
+    @GET
+    @Path("/{address}/qr")
+    @Produces({"image/svg+xml", "image/png"})
+    public Response qr(@PathParam("address") String address,
+                       @QueryParam("format") @DefaultValue("svg") String format,
+                       @Context Request request) {
+        if (!BECH32_ADDRESS.matcher(address).matches()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid address").build();
+        }
+        QrFormat qrFormat;
+        try {
+            qrFormat = QrFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException _) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Unsupported format").build();
+        }
+
+        QrImage image = qrRenderer.render("bitcoin:" + address, qrFormat);
+        EntityTag etag = new EntityTag(image.etag());
+        CacheControl cacheControl = CacheControl.valueOf("public, max-age=31536000, immutable");
+
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+        return Response.ok(image.bytes(), image.contentType())
+                .tag(etag)
+                .cacheControl(cacheControl)
+                .build();
+    }
+}
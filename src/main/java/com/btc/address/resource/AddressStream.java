@@ -0,0 +1,53 @@
+package com.btc.address.resource;
+
+import com.btc.address.service.AddressService;
+import com.btc.address.wallet.Wallet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Newline-delimited JSON response for bulk address allocation, shared by the unscoped and wallet-scoped resources.
+ * One {@link NextAddressResult} per line, flushed as soon as its scan batch is confirmed; a failure after
+ * the first line is reported as a final {@code {"error": ...}} line since the status is already sent.
+ */
+final class AddressStream {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private AddressStream() {}
+
+    static Response of(AddressService addressService, ObjectMapper mapper, Wallet wallet, AddressRequest request,
+            int count, boolean qr) {
+        if (count < 1) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("count must be at least 1").build();
+        }
+        StreamingOutput body = out -> {
+            try {
+                addressService.streamUnusedAddresses(wallet, Math.max(request.startIndex(), 0), request.salt(), count, qr,
+                        result -> writeLine(mapper, out, result));
+            } catch (UncheckedIOException e) {
+                // Client went away
+                throw e.getCause();
+            } catch (RuntimeException e) {
+                writeLine(mapper, out, Map.of("error", String.valueOf(e.getMessage())));
+            }
+        };
+        return Response.ok(body, NDJSON).build();
+    }
+
+    private static void writeLine(ObjectMapper mapper, OutputStream out, Object value) {
+        try {
+            out.write(mapper.writeValueAsBytes(value));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
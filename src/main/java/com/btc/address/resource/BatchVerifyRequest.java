@@ -0,0 +1,25 @@
+package com.btc.address.resource;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.List;
+
+/**
+ * Addresses to verify; {@code ceiling} optionally extends the search beyond the gap limit.
+ */
+@RegisterForReflection
+public record BatchVerifyRequest(List<String> addresses, Integer ceiling) {
+
+    /** Distinct non-blank addresses, in request order. */
+    List<String> distinctAddresses() {
+        return addresses == null ? List.of() : addresses.stream()
+                .filter(a -> a != null && !a.isBlank())
+                .map(String::trim)
+                .distinct()
+                .toList();
+    }
+
+    int ceilingOrZero() {
+        return ceiling == null ? 0 : ceiling;
+    }
+}
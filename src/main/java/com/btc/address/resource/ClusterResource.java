@@ -0,0 +1,76 @@
+package com.btc.address.resource;
+
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.service.ClusterReplicator;
+import com.btc.address.wallet.WalletRegistry;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Replica-to-replica cache replication, pulled by {@link ClusterReplicator}. Only served in cluster mode,
+ * and only to callers presenting {@code bitcoin.cluster.token} when one is set.
+ */
+@Path("/api/cluster")
+public class ClusterResource {
+
+    @Inject
+    AddressCacheManager cacheManager;
+
+    @Inject
+    ClusterReplicator replicator;
+
+    @Inject
+    WalletRegistry wallets;
+
+    @GET
+    @Path("/position")
+    @Produces(MediaType.APPLICATION_JSON)
+    public AddressCacheManager.ReplicationPosition position(@HeaderParam(ClusterReplicator.TOKEN_HEADER) String token) {
+        guard(token);
+        return cacheManager.replicationPosition();
+    }
+
+    /**
+     * Changes made by this replica from a cursor; 410 Gone when the caller has to bootstrap again.
+     */
+    @GET
+    @Path("/changes")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @RunOnVirtualThread
+    public Response changes(@HeaderParam(ClusterReplicator.TOKEN_HEADER) String token,
+                            @QueryParam("epoch") long epoch,
+                            @QueryParam("since") long since,
+                            @QueryParam("max") @DefaultValue("16384") int max) throws IOException {
+        guard(token);
+        // Buffered, so that the status is known before anything is sent
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (!cacheManager.writeChanges(epoch, since, Math.clamp(max, 1, 65536), body)) {
+            return Response.status(Response.Status.GONE).build();
+        }
+        return Response.ok(body.toByteArray()).build();
+    }
+
+    @GET
+    @Path("/snapshot/{walletId}")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    @RunOnVirtualThread
+    public Response snapshot(@HeaderParam(ClusterReplicator.TOKEN_HEADER) String token,
+                             @PathParam("walletId") String walletId) {
+        guard(token);
+        if (wallets.find(walletId).isEmpty()) throw new NotFoundException("Unknown wallet: " + walletId);
+        StreamingOutput body = out -> cacheManager.writeSnapshot(walletId, out);
+        return Response.ok(body).build();
+    }
+
+    private void guard(String token) {
+        if (!cacheManager.isReplicated()) throw new NotFoundException();
+        if (!replicator.isAuthorized(token)) throw new ForbiddenException();
+    }
+}
@@ -1,6 +1,7 @@
 package com.btc.address.resource;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
@@ -9,7 +10,8 @@ public record NextAddressResult(
         String address,
         @JsonIgnore String publicKey,
         int index,
-        String qrCodeImage,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String qrCodeImage,
+        String qrCodeUrl,
         @JsonIgnore String salt,
         @JsonIgnore String hash
-) {}
\ No newline at end of file
+) {}
@@ -0,0 +1,86 @@
+package com.btc.address.resource;
+
+import com.btc.address.service.AddressService;
+import com.btc.address.wallet.Wallet;
+import com.btc.address.wallet.WalletRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+
+/**
+ * Wallet-scoped variant of {@link AddressResource}: {@code /api/wallets/{walletId}/address/...}.
+ */
+@Path("/api/wallets")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class WalletAddressResource {
+
+    @Inject
+    AddressService addressService;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @ConfigProperty(name = "bitcoin.verify.max-addresses", defaultValue = "10000")
+    int maxVerifyAddresses;
+
+    @Inject
+    WalletRegistry wallets;
+
+    @GET
+    public List<String> list() {
+        return wallets.all().stream().map(Wallet::id).sorted().toList();
+    }
+
+    @POST
+    @Path("/{walletId}/address/next")
+    @RunOnVirtualThread
+    public NextAddressResult getNextUnusedAddress(@PathParam("walletId") String walletId, AddressRequest request) {
+        return addressService.findNextUnusedAddress(
+                wallet(walletId),
+                Math.max(request.startIndex(), 0),
+                request.salt());
+    }
+
+    @POST
+    @Path("/{walletId}/address/next/stream")
+    @Produces(AddressStream.NDJSON)
+    @RunOnVirtualThread
+    public Response streamUnusedAddresses(@PathParam("walletId") String walletId, AddressRequest request,
+                                          @QueryParam("count") @DefaultValue("10") int count,
+                                          @QueryParam("qr") @DefaultValue("false") boolean qr) {
+        return AddressStream.of(addressService, mapper, wallet(walletId), request, count, qr);
+    }
+
+    @POST
+    @Path("/{walletId}/address/verify")
+    @RunOnVirtualThread
+    public Response verify(@PathParam("walletId") String walletId, VerifyRequest request) {
+        if (request.address() == null || request.address().isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Address is required").build();
+        }
+        return Response.ok(addressService.verifyAddressOwnership(wallet(walletId), request.address())).build();
+    }
+
+    @POST
+    @Path("/{walletId}/address/verify/batch")
+    @RunOnVirtualThread
+    public Response verifyBatch(@PathParam("walletId") String walletId, BatchVerifyRequest request) {
+        List<String> addresses = request == null ? List.of() : request.distinctAddresses();
+        if (addresses.isEmpty() || addresses.size() > maxVerifyAddresses) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Between 1 and " + maxVerifyAddresses + " addresses are required").build();
+        }
+        return Response.ok(addressService.verifyAddresses(wallet(walletId), addresses, request.ceilingOrZero())).build();
+    }
+
+    private Wallet wallet(String walletId) {
+        return wallets.find(walletId).orElseThrow(() -> new NotFoundException("Unknown wallet " + walletId));
+    }
+}
@@ -0,0 +1,344 @@
+package com.btc.address.service;
+
+import com.btc.address.blockchain.BlockchainChecker;
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.cache.WatermarkStore;
+import com.btc.address.resource.AddressData;
+import com.btc.address.wallet.Wallet;
+import com.btc.address.wallet.WalletRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Push-based cache invalidation from a Mempool/Esplora-style WebSocket: the gap-limit window after each
+ * active wallet's watermark (where every handed-out address sits) is tracked with {@code track-addresses},
+ * and cache entries flip to used as transactions arrive.
+ * <p>
+ * While connected, a cached "unused" entry checked after its address was subscribed is trusted by /next
+ * whatever {@code bitcoin.cache.unused-ttl} says, since any later activity would have been pushed.
+ * After each (re)connect the window is re-checked once, to catch what happened while disconnected.
+ * Pushed messages are handled on virtual threads, so persisting a watermark never stalls the socket;
+ * nothing is vouched for while one is still being received or handled.
+ * Disabled unless {@code bitcoin.feed.url} is set.
+ */
+@ApplicationScoped
+public class AddressActivityFeed {
+
+    @Inject
+    AddressService addressService;
+
+    @Inject
+    AddressPool addressPool;
+
+    @Inject
+    AddressCacheManager cacheManager;
+
+    @Inject
+    WatermarkStore watermarks;
+
+    @Inject
+    WalletRegistry wallets;
+
+    @Inject
+    BlockchainChecker blockchainChecker;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "bitcoin.feed.url")
+    Optional<String> url;
+
+    @ConfigProperty(name = "bitcoin.feed.max-addresses", defaultValue = "200")
+    int maxAddresses;
+
+    @ConfigProperty(name = "bitcoin.feed.reconnect-delay", defaultValue = "PT1S")
+    Duration reconnectDelay;
+
+    @ConfigProperty(name = "bitcoin.gap-limit")
+    int gapLimit;
+
+    private static final Duration MAX_RECONNECT_DELAY = Duration.ofMinutes(1);
+    /** Time for the server to apply a subscription before checks are trusted on its behalf. */
+    private static final Duration SUBSCRIBE_GRACE = Duration.ofSeconds(5);
+
+    /** A tracked address, and the earliest cache check that pushes for it can vouch for. */
+    private record Watched(String walletId, String hash, int index, long trustedFromMillis) {}
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("activity-feed").factory());
+    private final ExecutorService messageExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Watched> byAddress = new ConcurrentHashMap<>();
+    private final Map<String, Watched> byHash = new ConcurrentHashMap<>();
+    private volatile WebSocket socket;
+    private volatile boolean live;
+    /** Messages from their first fragment until they are handled. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong handled = new AtomicLong();
+    private int failures;
+    private Counter pushedUsed;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!isEnabled()) return;
+        pushedUsed = Counter.builder("btc.feed.events").description("Addresses flipped to used by the activity feed")
+                .register(registry);
+        Gauge.builder("btc.feed.connected", this, f -> f.live ? 1 : 0).register(registry);
+        connect();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+        WebSocket ws = socket;
+        if (ws != null) ws.abort();
+        messageExecutor.shutdownNow();
+    }
+
+    boolean isEnabled() {
+        return url.filter(u -> !u.isBlank()).isPresent();
+    }
+
+    /**
+     * Number of pushed messages handled so far; read it before reading the cache entries passed to {@link #covers}.
+     */
+    long handledMessages() {
+        return handled.get();
+    }
+
+    /**
+     * True when the feed would have reported activity on this entry since it was checked, and every message
+     * received so far was handled before the entry was read ({@code handledBefore}, from {@link #handledMessages}).
+     * A message still queued, or handled after the read, may have flipped the entry to used.
+     */
+    boolean covers(String walletId, String hash, long checkedAtMillis, long handledBefore) {
+        // In-flight first: a message that is done has already been counted as handled
+        if (!live || inFlight.get() != 0 || handled.get() != handledBefore) return false;
+        Watched w = byHash.get(hash);
+        return w != null && w.walletId().equals(walletId) && checkedAtMillis >= w.trustedFromMillis();
+    }
+
+    /**
+     * Follows the window as watermarks advance and keeps the connection alive.
+     */
+    @Scheduled(every = "{bitcoin.feed.refresh-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh() {
+        WebSocket ws = socket;
+        if (!live || ws == null) return;
+        try {
+            subscribe(ws, false);
+        } catch (RuntimeException e) {
+            System.err.println("Activity feed refresh failed: " + e.getMessage());
+        }
+    }
+
+    private void connect() {
+        httpClient.newWebSocketBuilder()
+                .buildAsync(URI.create(url.orElseThrow().trim()), new Listener())
+                .whenComplete((_, error) -> {
+                    if (error == null) return;
+                    System.err.println("❌ Activity feed connection failed: " + error.getMessage());
+                    reconnectLater();
+                });
+    }
+
+    private synchronized void reconnectLater() {
+        long delay = Math.min(MAX_RECONNECT_DELAY.toMillis(), reconnectDelay.toMillis() << Math.min(failures++, 16));
+        timer.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void onConnected(WebSocket ws) {
+        failures = 0;
+        socket = ws;
+        subscribe(ws, true);
+        live = true;
+        System.out.println("Activity feed connected, tracking " + byAddress.size() + " addresses");
+        // Activity while disconnected was never pushed: look once the subscription has settled
+        timer.schedule(() -> Thread.ofVirtual().name("activity-feed-backfill").start(this::backfill),
+                SUBSCRIBE_GRACE.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Called at most once per connection. */
+    private synchronized void onDisconnected(WebSocket ws, String reason) {
+        if (socket == ws) socket = null;
+        live = false;
+        // Nothing is vouched for until the next connection has resubscribed
+        byAddress.clear();
+        byHash.clear();
+        System.err.println("❌ Activity feed disconnected: " + reason);
+        reconnectLater();
+    }
+
+    /**
+     * Replaces the tracked set with the current windows. Addresses already tracked keep their trust point
+     * unless {@code reset}, after a reconnect.
+     */
+    private synchronized void subscribe(WebSocket ws, boolean reset) {
+        long trustedFrom = System.currentTimeMillis() + SUBSCRIBE_GRACE.toMillis();
+        Map<String, Watched> next = new LinkedHashMap<>();
+        for (Wallet wallet : wallets.all()) {
+            if (!cacheManager.isOpen(wallet.id())) continue;
+            for (AddressData d : addressService.lookaheadWindow(wallet)) {
+                if (next.size() >= maxAddresses) break;
+                String address = d.derived().address();
+                Watched previous = reset ? null : byAddress.get(address);
+                next.put(address, new Watched(wallet.id(), d.hash(), d.index(),
+                        previous != null ? previous.trustedFromMillis() : trustedFrom));
+            }
+        }
+        try {
+            ws.sendText(mapper.writeValueAsString(Map.of("track-addresses", next.keySet())), true).join();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        byAddress.keySet().retainAll(next.keySet());
+        byAddress.putAll(next);
+        Map<String, Watched> hashes = new HashMap<>();
+        next.values().forEach(w -> hashes.put(w.hash(), w));
+        byHash.keySet().retainAll(hashes.keySet());
+        byHash.putAll(hashes);
+    }
+
+    private void backfill() {
+        for (Wallet wallet : wallets.all()) {
+            if (!cacheManager.isOpen(wallet.id())) continue;
+            try {
+                int from = addressService.afterWatermark(wallet, 0);
+                int end = from + gapLimit;
+                for (int start = from, batchSize; start < end; start += batchSize) {
+                    batchSize = blockchainChecker.preferredBatchSize();
+                    addressService.refreshAgingEntries(wallet, start, Math.min(start + batchSize, end), Duration.ZERO);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Activity feed backfill failed for " + wallet.id() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * {@code {"multi-address-transactions": {"<addr>": {"mempool": [..], "confirmed": [..], "removed": [..]}}}},
+     * or {@code {"address-transactions": [<Esplora tx>, ..]}} from servers that push whole transactions.
+     */
+    private void onMessage(String text) {
+        JsonNode message;
+        try {
+            message = mapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            System.err.println("Activity feed sent invalid JSON: " + e.getMessage());
+            return;
+        }
+        // Anything else is blocks, stats, pongs...
+        for (var entry : message.path("multi-address-transactions").properties()) {
+            JsonNode txs = entry.getValue();
+            // An address stays used even if its only transaction is later "removed" (replaced or evicted)
+            if (txs.path("mempool").isEmpty() && txs.path("confirmed").isEmpty()) continue;
+            markUsed(entry.getKey());
+        }
+        for (JsonNode tx : message.path("address-transactions")) {
+            for (JsonNode out : tx.path("vout")) markUsed(out.path("scriptpubkey_address").asText());
+            for (JsonNode in : tx.path("vin")) markUsed(in.path("prevout").path("scriptpubkey_address").asText());
+        }
+    }
+
+    private void markUsed(String address) {
+        Watched w = byAddress.get(address);
+        if (w == null) return;
+        cacheManager.addEntry(w.walletId(), w.hash(), true);
+        watermarks.advance(w.walletId(), w.index());
+        addressPool.discard(w.walletId(), w.index());
+        pushedUsed.increment();
+    }
+
+    private final class Listener implements WebSocket.Listener {
+        private final StringBuilder text = new StringBuilder();
+        private final AtomicBoolean gone = new AtomicBoolean();
+        /** A message has started arriving and is counted in {@link #inFlight}. */
+        private final AtomicBoolean receiving = new AtomicBoolean();
+
+        @Override
+        public void onOpen(WebSocket ws) {
+            // Subscribing derives addresses and blocks on the send: keep it off the HTTP client threads
+            Thread.ofVirtual().name("activity-feed-subscribe").start(() -> {
+                try {
+                    onConnected(ws);
+                } catch (RuntimeException e) {
+                    ws.abort();
+                    gone(ws, String.valueOf(e.getMessage()));
+                }
+            });
+            ws.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            if (receiving.compareAndSet(false, true)) inFlight.incrementAndGet();
+            text.append(data);
+            if (last) {
+                String message = text.toString();
+                text.setLength(0);
+                boolean counted = receiving.compareAndSet(true, false);
+                // Off the HTTP client thread: handling blocks on the journal and the watermark file
+                messageExecutor.execute(() -> {
+                    try {
+                        onMessage(message);
+                    } finally {
+                        if (counted) {
+                            handled.incrementAndGet();
+                            inFlight.decrementAndGet();
+                        }
+                    }
+                });
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+            gone(ws, "closed (" + statusCode + ")");
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            gone(ws, String.valueOf(error.getMessage()));
+        }
+
+        private void gone(WebSocket ws, String reason) {
+            // A message cut off by the disconnect is never handled
+            if (receiving.compareAndSet(true, false)) inFlight.decrementAndGet();
+            if (gone.compareAndSet(false, true)) onDisconnected(ws, reason);
+        }
+    }
+}
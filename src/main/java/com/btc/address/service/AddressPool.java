@@ -0,0 +1,191 @@
+package com.btc.address.service;
+
+import com.btc.address.blockchain.BlockchainChecker;
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.resource.NextAddressResult;
+import com.btc.address.wallet.Wallet;
+import com.btc.address.wallet.WalletRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background pools of verified-unused addresses, one per wallet, so /next can be answered from memory.
+ * Entries are revalidated on a cadence and refilled as they are handed out. The default wallet's pool
+ * is filled at startup; other wallets get theirs on first use, so idle wallets cost nothing.
+ * Disabled when {@code bitcoin.pool.size} is 0.
+ */
+@ApplicationScoped
+public class AddressPool {
+
+    @Inject
+    AddressService addressService;
+
+    @Inject
+    BlockchainChecker blockchainChecker;
+
+    @Inject
+    AddressCacheManager cacheManager;
+
+    @Inject
+    AddressReservations reservations;
+
+    @Inject
+    WalletRegistry wallets;
+
+    @ConfigProperty(name = "bitcoin.pool.size", defaultValue = "0")
+    int size;
+
+    @ConfigProperty(name = "bitcoin.gap-limit")
+    int gapLimit;
+
+    private final Map<String, WalletPool> pools = new ConcurrentHashMap<>();
+
+    /** Pool state of one wallet. */
+    private final class WalletPool {
+        final Wallet wallet;
+        /** Unused addresses by derivation index. */
+        final ConcurrentSkipListMap<Integer, NextAddressResult> entries = new ConcurrentSkipListMap<>();
+        final AtomicBoolean refilling = new AtomicBoolean();
+        /** Indices discarded while a refill runs, which it must not put back. Guarded by the pool. */
+        final Set<Integer> discardedDuringRefill = new HashSet<>();
+        /**
+         * Every unused address from the window start to here is in {@link #entries} (or was handed out).
+         * Only written by the refill thread.
+         */
+        volatile int scannedUpTo;
+
+        WalletPool(Wallet wallet, int start) {
+            this.wallet = wallet;
+            this.scannedUpTo = start;
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (size > 0) wallets.defaultWallet().ifPresent(this::poolFor);
+    }
+
+    /**
+     * Returns the first pooled address at or after {@code startIndex}, if the pool can answer for that range.
+     * With reservations enabled the address leaves the pool; otherwise it stays until it is seen used.
+     */
+    public Optional<NextAddressResult> take(Wallet wallet, int startIndex) {
+        if (size <= 0) return Optional.empty();
+        WalletPool pool = poolFor(wallet);
+        if (startIndex < pool.scannedUpTo) {
+            for (var entry : pool.entries.tailMap(startIndex).entrySet()) {
+                NextAddressResult candidate = entry.getValue();
+                if (!reservations.isEnabled()) return Optional.of(candidate);
+                if (pool.entries.remove(entry.getKey(), candidate) && reservations.tryReserve(candidate.address())) {
+                    refillAsync(pool);
+                    return Optional.of(candidate);
+                }
+            }
+        }
+        // Drained, or the watermark moved past what was scanned: catch up for the next caller
+        refillAsync(pool);
+        return Optional.empty();
+    }
+
+    /**
+     * Drops pooled addresses that became used, then tops the pools up.
+     */
+    @Scheduled(every = "{bitcoin.pool.revalidate-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void revalidate() {
+        pools.values().forEach(this::revalidate);
+    }
+
+    private void revalidate(WalletPool pool) {
+        if (pool.entries.isEmpty()) {
+            refillAsync(pool);
+            return;
+        }
+        try {
+            List<NextAddressResult> pooled = List.copyOf(pool.entries.values());
+            Map<String, Boolean> statuses = blockchainChecker.checkAddressesBatch(
+                    pooled.stream().map(NextAddressResult::address).toList());
+
+            Map<String, Boolean> nowUsed = new HashMap<>();
+            for (NextAddressResult r : pooled) {
+                if (statuses.getOrDefault(r.address(), false)) {
+                    pool.entries.remove(r.index(), r);
+                    nowUsed.put(r.hash(), true);
+                }
+            }
+            cacheManager.addEntries(pool.wallet.id(), nowUsed);
+        } catch (RuntimeException e) {
+            System.err.println("Address pool revalidation failed for " + pool.wallet.id() + ": " + e.getMessage());
+        }
+        refillAsync(pool);
+    }
+
+    /**
+     * Drops an address seen used outside of a revalidation, e.g. pushed by the activity feed. A refill that
+     * checked the address before it was used would otherwise put it back.
+     */
+    void discard(String walletId, int index) {
+        WalletPool pool = pools.get(walletId);
+        if (pool == null) return;
+        synchronized (pool) {
+            pool.entries.remove(index);
+            if (pool.refilling.get()) pool.discardedDuringRefill.add(index);
+        }
+    }
+
+    private WalletPool poolFor(Wallet wallet) {
+        WalletPool pool = pools.get(wallet.id());
+        if (pool != null) return pool;
+        pool = pools.computeIfAbsent(wallet.id(), _ -> new WalletPool(wallet, addressService.afterWatermark(wallet, 0)));
+        refillAsync(pool);
+        return pool;
+    }
+
+    /**
+     * Tops the pool up within the gap-limit window after the wallet's current watermark. The window
+     * moves forward as addresses get used, and pooled entries it left behind are dropped.
+     */
+    private void refillAsync(WalletPool pool) {
+        int start = addressService.afterWatermark(pool.wallet, 0);
+        pool.entries.headMap(start).clear();
+        int scanned = Math.max(pool.scannedUpTo, start);
+        if (pool.entries.size() >= size || scanned >= start + gapLimit || !pool.refilling.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("address-pool-refill-" + pool.wallet.id()).start(() -> {
+            try {
+                // Discards from before this point are in the cache the scan reads
+                synchronized (pool) {
+                    pool.discardedDuringRefill.clear();
+                }
+                int windowStart = addressService.afterWatermark(pool.wallet, 0);
+                int limit = windowStart + gapLimit;
+                if (pool.scannedUpTo < windowStart) pool.scannedUpTo = windowStart;
+                while (pool.entries.size() < size && pool.scannedUpTo < limit) {
+                    int from = pool.scannedUpTo;
+                    int to = Math.min(limit, from + blockchainChecker.preferredBatchSize());
+                    for (NextAddressResult r : addressService.findUnusedInRange(pool.wallet, from, to)) {
+                        synchronized (pool) {
+                            if (!pool.discardedDuringRefill.contains(r.index())) pool.entries.put(r.index(), r);
+                        }
+                    }
+                    pool.scannedUpTo = to;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Address pool refill failed for " + pool.wallet.id() + ": " + e.getMessage());
+            } finally {
+                pool.refilling.set(false);
+            }
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package com.btc.address.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived, in-memory reservations of handed-out addresses, so concurrent /next callers
+ * receive distinct addresses. Disabled when the TTL is zero: every caller then gets the
+ * first unused address, as before.
+ */
+@ApplicationScoped
+public class AddressReservations {
+
+    @ConfigProperty(name = "bitcoin.reservation.ttl", defaultValue = "PT0S")
+    Duration ttl;
+
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return !ttl.isZero() && !ttl.isNegative();
+    }
+
+    /**
+     * Claims the address for the TTL. Returns false if another caller holds a live reservation.
+     */
+    public boolean tryReserve(String address) {
+        if (!isEnabled()) return true;
+        long now = System.nanoTime();
+        if (expiries.size() > SWEEP_THRESHOLD) expiries.values().removeIf(expiry -> expiry - now <= 0);
+
+        long expiry = now + ttl.toNanos();
+        boolean[] claimed = new boolean[1];
+        expiries.compute(address, (_, current) -> {
+            if (current != null && current - now > 0) return current;
+            claimed[0] = true;
+            return expiry;
+        });
+        return claimed[0];
+    }
+
+    public boolean isReserved(String address) {
+        Long expiry = expiries.get(address);
+        return expiry != null && expiry - System.nanoTime() > 0;
+    }
+}
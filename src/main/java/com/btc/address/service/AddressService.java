@@ -1,22 +1,32 @@
 package com.btc.address.service;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.IntStream;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import com.btc.address.resource.AddressData;
 import com.btc.address.bitcoin.BIP84Deriver;
 import com.btc.address.blockchain.BlockchainChecker;
 import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.cache.AddressIndexManager;
+import com.btc.address.cache.CachedStatus;
+import com.btc.address.cache.WatermarkStore;
 import com.btc.address.resource.NextAddressResult;
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.WriterException;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.btc.address.qr.QrCodeRenderer;
+import com.btc.address.wallet.Wallet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import org.bitcoinj.crypto.DeterministicKey;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @ApplicationScoped
@@ -28,170 +38,525 @@ public class AddressService {
     @Inject
     AddressCacheManager cacheManager;
 
+    @Inject
+    AddressIndexManager addressIndex;
+
+    @Inject
+    AddressReservations reservations;
+
+    @Inject
+    AddressPool addressPool;
+
+    @Inject
+    QrCodeRenderer qrRenderer;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    WatermarkStore watermarks;
+
+    @Inject
+    AddressActivityFeed activityFeed;
+
     @ConfigProperty(name = "bitcoin.gap-limit")
     int gapLimit;
 
+    @ConfigProperty(name = "bitcoin.cache.unused-ttl", defaultValue = "PT0S")
+    Duration unusedTtl;
+
+    @ConfigProperty(name = "bitcoin.scan.watermark.enabled", defaultValue = "true")
+    boolean watermarkEnabled;
+
+    @ConfigProperty(name = "bitcoin.scan.gallop.max-probes", defaultValue = "20")
+    int maxProbes;
+
+    @ConfigProperty(name = "bitcoin.verify.max-ceiling", defaultValue = "100000")
+    int maxVerifyCeiling;
+
+    @ConfigProperty(name = "bitcoin.qr.inline", defaultValue = "false")
+    boolean inlineQr;
+
+    @ConfigProperty(name = "bitcoin.scan.pipeline-depth", defaultValue = "2")
+    int pipelineDepth;
+
+    @ConfigProperty(name = "bitcoin.scan.max-outstanding-requests", defaultValue = "1")
+    int maxOutstandingRequests;
+
+    private Timer scanDerivation;
+    private Timer verifyDerivation;
+    private DistributionSummary batchesPerScan;
+    private Counter revalidatedUnused;
+    private Counter revalidatedUsed;
+    private Counter trustedUnused;
+    private Counter probes;
+
+    @PostConstruct
+    void initMetrics() {
+        scanDerivation = Timer.builder("btc.derivation").tag("operation", "scan").register(registry);
+        verifyDerivation = Timer.builder("btc.derivation").tag("operation", "verify").register(registry);
+        batchesPerScan = DistributionSummary.builder("btc.scan.batches")
+                .description("Batches consumed by one /next scan")
+                .publishPercentileHistogram()
+                .register(registry);
+        // Live double-checks of cached-unused addresses, by what the provider answered
+        revalidatedUnused = Counter.builder("btc.scan.revalidations").tag("result", "unused").register(registry);
+        revalidatedUsed = Counter.builder("btc.scan.revalidations").tag("result", "used").register(registry);
+        // Cached-unused addresses returned without a provider call (fresh under the TTL, or covered by the activity feed)
+        trustedUnused = Counter.builder("btc.scan.revalidations").tag("result", "trusted").register(registry);
+        probes = Counter.builder("btc.scan.probes").description("Single-address probes of the used/unused boundary").register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scanExecutor.shutdownNow();
+    }
+
     @RegisterForReflection
     public record VerificationResult(boolean valid, int index) {}
 
+    /** Identifies one batch scan; batches of different wallets never share a key. */
+    private record BatchKey(String walletId, String salt, int start, int end) {}
+
+    private static final int VERIFY_CHUNK = 32;
+
+    private final SingleFlight<BatchKey, List<AddressData>> derivations = new SingleFlight<>();
+    private final SingleFlight<BatchKey, List<AddressData>> resolutions = new SingleFlight<>();
+    private final ExecutorService scanExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** A batch of one pipelined scan, derived ahead and sent to the provider once the scan lets it. */
+    private record PendingBatch(BatchKey key, CompletableFuture<List<AddressData>> derived) {}
+
     /**
-     * Verifies if a specific address belongs to a provided xpub.
+     * Verifies if a specific address belongs to a wallet, within the gap limit.
      */
-    public VerificationResult verifyAddressOwnership(String xpub, String targetAddress) {
+    @WithSpan("address.verify")
+    public VerificationResult verifyAddressOwnership(Wallet wallet, String targetAddress) {
         if (targetAddress == null || targetAddress.isBlank()) {
             return new VerificationResult(false, -1);
         }
+        return verifyAddresses(wallet, List.of(targetAddress), gapLimit).get(targetAddress);
+    }
+
+    /**
+     * Verifies many addresses in one pass over [0, max(gap limit, ceiling)), the ceiling being capped by
+     * {@code bitcoin.verify.max-ceiling}. Known hashes are answered
+     * from the persistent address index (an indexed address beyond the range is not found), and each
+     * remaining index is derived once and matched against the whole set. Workers stop as soon as every
+     * address has been found.
+     *
+     * @return one result per distinct address, in input order
+     */
+    @WithSpan("address.verify.batch")
+    public Map<String, VerificationResult> verifyAddresses(Wallet wallet, Collection<String> addresses, int ceiling) {
+        final String indexSalt = wallet.indexSalt();
+        final int limit = Math.max(gapLimit, Math.min(ceiling, maxVerifyCeiling));
+        Map<String, VerificationResult> results = new ConcurrentHashMap<>();
+        Set<String> pending = ConcurrentHashMap.newKeySet();
+        for (String address : addresses) {
+            OptionalInt known = addressIndex.lookup(indexSalt, BIP84Deriver.generateHash(address, indexSalt));
+            // The index also holds indices scanned past the gap limit; those are outside this verification
+            if (known.isEmpty()) pending.add(address);
+            else if (known.getAsInt() < limit) results.put(address, new VerificationResult(true, known.getAsInt()));
+        }
+
+        if (!pending.isEmpty()) {
+            AtomicInteger cursor = new AtomicInteger();
+            int chunks = (limit + VERIFY_CHUNK - 1) / VERIFY_CHUNK;
+            int workers = Math.min(chunks, Runtime.getRuntime().availableProcessors());
+            List<Future<?>> running = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                running.add(scanExecutor.submit(() -> verifyChunks(wallet, cursor, limit, pending, results)));
+            }
+            try {
+                for (Future<?> f : running) f.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Verification interrupted", e);
+            } finally {
+                running.forEach(f -> f.cancel(true));
+            }
+        }
 
-        final var masterKey = BIP84Deriver.createMasterKey(xpub);
+        Map<String, VerificationResult> ordered = new LinkedHashMap<>();
+        for (String address : addresses) {
+            ordered.put(address, results.getOrDefault(address, new VerificationResult(false, -1)));
+        }
+        return ordered;
+    }
 
-        return IntStream.range(0, gapLimit)
-                .parallel()
-                .mapToObj(i -> new VerificationResult(targetAddress.equals(BIP84Deriver.deriveAddress(masterKey, i).address()), i))
-                .filter(VerificationResult::valid)
-                .findFirst()
-                .orElse(new VerificationResult(false, -1));
+    /**
+     * Claims chunks of indices until the range is exhausted or nothing is left to find,
+     * recording every newly derived index in the address index as it goes.
+     */
+    private void verifyChunks(Wallet wallet, AtomicInteger cursor, int limit, Set<String> pending,
+            Map<String, VerificationResult> results) {
+        final String indexSalt = wallet.indexSalt();
+        final var chain = wallet.chain();
+        while (!pending.isEmpty()) {
+            int chunkStart = cursor.getAndAdd(VERIFY_CHUNK);
+            if (chunkStart >= limit) return;
+            int chunkEnd = Math.min(chunkStart + VERIFY_CHUNK, limit);
+            // Covered indices cannot match: their hashes were already looked up
+            if (isFullyCovered(indexSalt, chunkStart, chunkEnd)) continue;
+
+            Map<Integer, String> derived = new HashMap<>();
+            for (var address : verifyDerivation.record(() -> chain.deriveRange(chunkStart, chunkEnd))) {
+                if (addressIndex.isCovered(indexSalt, address.index())) continue;
+                derived.put(address.index(), BIP84Deriver.generateHash(address.address(), indexSalt));
+                if (pending.remove(address.address())) {
+                    results.put(address.address(), new VerificationResult(true, address.index()));
+                }
+            }
+            addressIndex.recordAll(indexSalt, derived);
+        }
+    }
+
+    private boolean isFullyCovered(String indexSalt, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!addressIndex.isCovered(indexSalt, i)) return false;
+        }
+        return true;
     }
 
     /**
-     * Main entry point to find the next available Bitcoin address.
+     * Main entry point to find the next available Bitcoin address of a wallet.
      */
-    public NextAddressResult findNextUnusedAddress(String xpub, int startIndex, String salt) {
-        final String effectiveSalt = getEffectiveSalt(xpub, salt);
-        final var masterKey = BIP84Deriver.createMasterKey(xpub);
-        final int batchSize = 20;
+    @WithSpan("address.next")
+    public NextAddressResult findNextUnusedAddress(Wallet wallet, int startIndex, String salt) {
+        int from = afterWatermark(wallet, startIndex);
+        // Pre-verified addresses are only kept for the default salt
+        if (salt == null || salt.isBlank()) {
+            Optional<NextAddressResult> pooled = addressPool.take(wallet, from);
+            if (pooled.isPresent()) return pooled.get();
+        }
 
-        for (int currentStart = startIndex; currentStart < startIndex + gapLimit; currentStart += batchSize) {
-            int currentEnd = Math.min(currentStart + batchSize, startIndex + gapLimit);
+        final String effectiveSalt = (salt == null || salt.isBlank()) ? wallet.indexSalt() : salt;
+        from = gallop(wallet, from, effectiveSalt);
+        List<NextAddressResult> found = new ArrayList<>(1);
+        pipelinedScan(wallet, from, from + gapLimit, effectiveSalt, 1, inlineQr, found::add);
+        if (found.isEmpty()) {
+            throw new RuntimeException("Gap limit reached: No unused address found within " + gapLimit + " indices.");
+        }
+        return found.getFirst();
+    }
 
-            // Step 1: Generate batch data
-            List<AddressData> batch = deriveBatch(masterKey, currentStart, currentEnd, effectiveSalt);
+    /**
+     * Hands out up to {@code count} unused addresses (at most the gap limit) in one scan pass,
+     * passing each one to {@code sink} as soon as its batch is confirmed. The scan covers the usual
+     * gap-limit window plus room for the additional addresses.
+     *
+     * @return the number of addresses handed out
+     */
+    @WithSpan("address.bulk")
+    public int streamUnusedAddresses(Wallet wallet, int startIndex, String salt, int count, boolean withQr,
+            Consumer<NextAddressResult> sink) {
+        int wanted = Math.min(count, gapLimit);
+        if (wanted <= 0) return 0;
+        final String effectiveSalt = (salt == null || salt.isBlank()) ? wallet.indexSalt() : salt;
+        int from = gallop(wallet, afterWatermark(wallet, startIndex), effectiveSalt);
+        return pipelinedScan(wallet, from, from + gapLimit + wanted - 1, effectiveSalt, wanted, withQr, sink);
+    }
+
+    /**
+     * First index worth scanning: right after the wallet's highest known-used index, unless the caller asked for later.
+     */
+    int afterWatermark(Wallet wallet, int startIndex) {
+        if (!watermarkEnabled) return startIndex;
+        return Math.max(startIndex, watermarks.get(wallet.id()) + 1);
+    }
 
-            // Step 2: Check cache and attempt early exit
-            Optional<NextAddressResult> cachedResult = checkCacheAndVerify(batch, effectiveSalt);
-            if (cachedResult.isPresent()) return cachedResult.get();
+    /**
+     * Skips a used prefix in O(log n) single-address probes: while the probe at {@code from + 2^k - 1} is
+     * used, doubles the step, then binary-searches between the last used and the first unused probe.
+     * Only starts when the cache already knows {@code from} is used (e.g. replicated from a peer ahead of
+     * the watermark); otherwise {@code from} is returned unchanged without a provider call, since the
+     * scan's first batch checks it anyway. Unused gaps inside the used history may be skipped, like with
+     * the watermark itself.
+     */
+    private int gallop(Wallet wallet, int from, String salt) {
+        if (!watermarkEnabled || maxProbes <= 0 || !isCachedUsed(wallet, from, salt)) return from;
+
+        long lastUsed = from;
+        long firstUnused = -1;
+        for (int probe = 1, step = 2; probe < maxProbes; probe++, step = (int) Math.min(step * 2L, Integer.MAX_VALUE / 2)) {
+            long candidate = lastUsed + step;
+            if (candidate >= Integer.MAX_VALUE) break;
+            if (isUsedAt(wallet, (int) candidate, salt)) {
+                lastUsed = candidate;
+            } else {
+                firstUnused = candidate;
+                break;
+            }
+        }
+        if (firstUnused < 0) return (int) lastUsed + 1;
 
-            // Step 3: Scan unknown addresses on blockchain
-            Optional<NextAddressResult> scannedResult = scanAndProcessUnknowns(batch, effectiveSalt);
-            if (scannedResult.isPresent()) return scannedResult.get();
+        while (firstUnused - lastUsed > 1) {
+            long mid = (lastUsed + firstUnused) >>> 1;
+            if (isUsedAt(wallet, (int) mid, salt)) lastUsed = mid;
+            else firstUnused = mid;
         }
+        return (int) firstUnused;
+    }
+
+    /** Cache only: "used" entries are final, so this never asks a provider. */
+    private boolean isCachedUsed(Wallet wallet, int index, String salt) {
+        String hash = derive(wallet, new BatchKey(wallet.id(), salt, index, index + 1)).getFirst().hash();
+        CachedStatus status = cacheManager.getEntries(wallet.id(), List.of(hash)).get(hash);
+        return status != null && status.used();
+    }
+
+    private boolean isUsedAt(Wallet wallet, int index, String salt) {
+        probes.increment();
+        return scanBatch(wallet, index, index + 1, salt).isEmpty();
+    }
 
-        throw new RuntimeException("Gap limit reached: No unused address found within " + gapLimit + " indices.");
+    /**
+     * Scans [start, end) with the default salt and returns every unused address in index order.
+     * Feeds the pre-warmed pool; reservations are left to the caller.
+     */
+    List<NextAddressResult> findUnusedInRange(Wallet wallet, int start, int end) {
+        final String indexSalt = wallet.indexSalt();
+        List<NextAddressResult> found = new ArrayList<>();
+
+        for (int currentStart = start, batchSize; currentStart < end; currentStart += batchSize) {
+            batchSize = blockchainChecker.preferredBatchSize();
+            int currentEnd = Math.min(currentStart + batchSize, end);
+            scanBatch(wallet, currentStart, currentEnd, indexSalt)
+                    .forEach(item -> found.add(buildResult(item, indexSalt, inlineQr)));
+        }
+        return found;
     }
 
     // --- Private Helper Methods ---
 
-    private String getEffectiveSalt(String xpub, String salt) {
-        return (salt == null || salt.isBlank()) ? BIP84Deriver.generateSaltFromXpub(xpub) : salt;
+    /**
+     * Scans [start, end) with up to {@code pipelineDepth} batches in flight: later batches are derived
+     * while earlier ones are still waiting on the network. Provider requests start in index order, and
+     * only once every earlier batch but the last {@code maxOutstandingRequests - 1} came back without
+     * answering the scan, so the default of one never checks a batch the scan does not need.
+     * Batches are consumed in index order and the rest are abandoned as soon as {@code wanted}
+     * unused addresses have been handed out.
+     *
+     * @return the number of addresses passed to {@code sink}
+     */
+    private int pipelinedScan(Wallet wallet, int start, int end, String salt, int wanted, boolean withQr,
+            Consumer<NextAddressResult> sink) {
+        AtomicBoolean done = new AtomicBoolean();
+        int depth = Math.max(1, pipelineDepth);
+        int maxResolving = Math.clamp(maxOutstandingRequests, 1, depth);
+        Deque<PendingBatch> derived = new ArrayDeque<>();
+        Deque<CompletableFuture<List<AddressData>>> resolving = new ArrayDeque<>();
+        int next = start;
+        int consumed = 0;
+        int handedOut = 0;
+        try {
+            while (true) {
+                while (derived.size() + resolving.size() < depth && next < end) {
+                    // Follows the adaptive batch size of the provider the scan will be routed to
+                    int from = next;
+                    int to = Math.min(from + blockchainChecker.preferredBatchSize(), end);
+                    BatchKey key = new BatchKey(wallet.id(), salt, from, to);
+                    derived.add(new PendingBatch(key, CompletableFuture.supplyAsync(
+                            () -> done.get() ? List.<AddressData>of() : derive(wallet, key), scanExecutor)));
+                    next = to;
+                }
+                while (resolving.size() < maxResolving && !derived.isEmpty()) {
+                    PendingBatch batch = derived.poll();
+                    resolving.add(batch.derived().thenApplyAsync(
+                            items -> done.get() ? List.<AddressData>of() : resolve(wallet, batch.key(), items), scanExecutor));
+                }
+                if (resolving.isEmpty()) return handedOut;
+
+                List<AddressData> unused;
+                try {
+                    unused = resolving.poll().join();
+                    consumed++;
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException re) throw re;
+                    throw e;
+                }
+
+                // Reservations hand distinct addresses to concurrent callers (no-op when disabled)
+                for (AddressData item : unused) {
+                    if (!reservations.tryReserve(item.derived().address())) continue;
+                    sink.accept(buildResult(item, salt, withQr));
+                    if (++handedOut == wanted) return handedOut;
+                }
+            }
+        } finally {
+            // Stages not started yet see the flag and skip their work
+            done.set(true);
+            derived.forEach(b -> b.derived().cancel(false));
+            resolving.forEach(f -> f.cancel(false));
+            batchesPerScan.record(consumed);
+        }
+    }
+
+    /**
+     * Derives and resolves one batch.
+     */
+    private List<AddressData> scanBatch(Wallet wallet, int start, int end, String salt) {
+        BatchKey key = new BatchKey(wallet.id(), salt, start, end);
+        return resolve(wallet, key, derive(wallet, key));
+    }
+
+    /** Concurrent callers deriving the same batch share one derivation. */
+    private List<AddressData> derive(Wallet wallet, BatchKey key) {
+        return derivations.run(key, () -> deriveBatch(wallet, key.start(), key.end(), key.salt()));
+    }
+
+    /** Concurrent callers resolving the same batch share one provider round-trip. */
+    private List<AddressData> resolve(Wallet wallet, BatchKey key, List<AddressData> batch) {
+        return resolutions.run(key, () -> resolveBatch(wallet, batch));
     }
 
     /**
-     * Derives a batch of addresses and calculates their internal hashes.
+     * Derives a batch of addresses, calculates their internal hashes and feeds the address index.
      */
-    private List<AddressData> deriveBatch(DeterministicKey masterKey, int start, int end, String salt) {
+    private List<AddressData> deriveBatch(Wallet wallet, int start, int end, String salt) {
+        final var chain = wallet.chain();
+        final String indexSalt = wallet.indexSalt();
         List<AddressData> batch = new ArrayList<>(end - start);
-        for (int i = start; i < end; i++) {
-            var derived = BIP84Deriver.deriveAddress(masterKey, i);
+        Map<Integer, String> indexEntries = new HashMap<>();
+        for (var derived : scanDerivation.record(() -> chain.deriveRange(start, end))) {
+            int i = derived.index();
             var hash = BIP84Deriver.generateHash(derived.address(), salt);
             batch.add(new AddressData(i, derived, hash));
+            if (!addressIndex.isCovered(indexSalt, i)) {
+                indexEntries.put(i, salt.equals(indexSalt) ? hash : BIP84Deriver.generateHash(derived.address(), indexSalt));
+            }
         }
+        addressIndex.recordAll(indexSalt, indexEntries);
         return batch;
     }
 
     /**
-     * Filters batch for addresses present in cache and performs a live double-check.
+     * Resolves a batch and returns its unused addresses in index order.
+     * Cached "used" entries are final and cached "unused" ones are trusted while younger than
+     * {@code bitcoin.cache.unused-ttl}; unknown and stale entries go to the provider in a single call.
      */
-    private Optional<NextAddressResult> checkCacheAndVerify(List<AddressData> batch, String salt) {
-        List<String> hashes = batch.stream().map(AddressData::hash).toList();
-        Map<String, Boolean> cachedStatuses = cacheManager.getMultiStatus(hashes);
+    private List<AddressData> resolveBatch(Wallet wallet, List<AddressData> batch) {
+        long feedHandled = activityFeed.handledMessages();
+        Map<String, CachedStatus> cached = cacheManager.getEntries(wallet.id(), batch.stream().map(AddressData::hash).toList());
+        long now = System.currentTimeMillis();
+
+        List<AddressData> toCheck = batch.stream()
+                .filter(item -> !isTrusted(wallet, item, cached.get(item.hash()), now, feedHandled))
+                .toList();
+        trustedUnused.increment(batch.size() - toCheck.size() - countUsed(cached));
+
+        Map<String, Boolean> scanResults = toCheck.isEmpty() ? Map.of() : blockchainChecker.checkAddressesBatch(
+                toCheck.stream().map(d -> d.derived().address()).toList()
+        );
+
+        if (!toCheck.isEmpty()) {
+            // Update cache with all results from this scan
+            Map<String, Boolean> newEntries = new HashMap<>();
+            toCheck.forEach(item -> {
+                Boolean used = scanResults.get(item.derived().address());
+                if (used != null) newEntries.put(item.hash(), used);
+            });
+            cacheManager.addEntries(wallet.id(), newEntries);
+            recordRevalidations(toCheck, cached, scanResults);
+        }
 
-        return batch.stream()
-                .filter(item -> cachedStatuses.getOrDefault(item.hash(), true) == false)
-                .findFirst()
-                .flatMap(item -> {
-                    if (isStillUnusedOnChain(item.derived().address())) {
-                        return Optional.of(buildResult(item, salt));
-                    } else {
-                        cacheManager.addEntries(Map.of(item.hash(), true));
-                        return Optional.empty();
-                    }
-                });
+        List<AddressData> unused = new ArrayList<>();
+        int highestUsed = WatermarkStore.NONE;
+        for (AddressData item : batch) {
+            CachedStatus status = cached.get(item.hash());
+            boolean used = isTrusted(wallet, item, status, now, feedHandled)
+                    ? status.used()
+                    : scanResults.getOrDefault(item.derived().address(), true);
+            // Missing answers count as used for safety, but only confirmed usage moves the watermark
+            if (!used) unused.add(item);
+            else if ((status != null && status.used()) || Boolean.TRUE.equals(scanResults.get(item.derived().address()))) {
+                highestUsed = Math.max(highestUsed, item.index());
+            }
+        }
+        if (highestUsed != WatermarkStore.NONE) watermarks.advance(wallet.id(), highestUsed);
+        return unused;
     }
 
     /**
-     * Identifies unknown addresses, scans them, updates cache, and returns the first unused one.
+     * A cached status can be used without a provider call when it is fresh under {@code bitcoin.cache.unused-ttl},
+     * or when the activity feed has been tracking the address since it was checked and had no push pending
+     * when it was read ({@code feedHandled}).
      */
-    private Optional<NextAddressResult> scanAndProcessUnknowns(List<AddressData> batch, String salt) {
-        List<String> hashes = batch.stream().map(AddressData::hash).toList();
-        Map<String, Boolean> cachedStatuses = cacheManager.getMultiStatus(hashes);
+    private boolean isTrusted(Wallet wallet, AddressData item, CachedStatus status, long now, long feedHandled) {
+        return status != null && (status.isFresh(unusedTtl, now)
+                || activityFeed.covers(wallet.id(), item.hash(), status.checkedAtMillis(), feedHandled));
+    }
 
-        List<AddressData> toScan = batch.stream()
-                .filter(item -> !cachedStatuses.containsKey(item.hash()))
-                .toList();
+    /**
+     * The gap-limit window after the wallet's watermark (default salt), which the activity feed tracks.
+     */
+    List<AddressData> lookaheadWindow(Wallet wallet) {
+        int from = afterWatermark(wallet, 0);
+        return deriveBatch(wallet, from, from + gapLimit, wallet.indexSalt());
+    }
 
-        if (toScan.isEmpty()) return Optional.empty();
+    /**
+     * Re-checks cached-unused entries of [start, end) (default salt) that are older than {@code minAge},
+     * so requests keep finding them fresh. Used by the background sweeper.
+     *
+     * @return the number of entries refreshed
+     */
+    int refreshAgingEntries(Wallet wallet, int start, int end, Duration minAge) {
+        List<AddressData> batch = deriveBatch(wallet, start, end, wallet.indexSalt());
+        Map<String, CachedStatus> cached = cacheManager.getEntries(wallet.id(), batch.stream().map(AddressData::hash).toList());
+        long now = System.currentTimeMillis();
+
+        List<AddressData> aging = batch.stream()
+                .filter(item -> {
+                    CachedStatus status = cached.get(item.hash());
+                    return status != null && !status.used() && now - status.checkedAtMillis() >= minAge.toMillis();
+                })
+                .toList();
+        if (aging.isEmpty()) return 0;
 
         Map<String, Boolean> scanResults = blockchainChecker.checkAddressesBatch(
-                toScan.stream().map(d -> d.derived().address()).toList()
-        );
-
-        // Update cache with all results from this scan
+                aging.stream().map(d -> d.derived().address()).toList());
         Map<String, Boolean> newEntries = new HashMap<>();
-        toScan.forEach(item -> {
+        aging.forEach(item -> {
             Boolean used = scanResults.get(item.derived().address());
             if (used != null) newEntries.put(item.hash(), used);
         });
-        cacheManager.addEntries(newEntries);
+        cacheManager.addEntries(wallet.id(), newEntries);
+        recordRevalidations(aging, cached, scanResults);
+        return newEntries.size();
+    }
 
-        // Return the first one found as unused during the scan
-        return toScan.stream()
-                .filter(item -> scanResults.getOrDefault(item.derived().address(), true) == false)
-                .findFirst()
-                .map(item -> buildResult(item, salt));
+    private static long countUsed(Map<String, CachedStatus> cached) {
+        return cached.values().stream().filter(CachedStatus::used).count();
     }
 
-    private boolean isStillUnusedOnChain(String address) {
-        return blockchainChecker.checkAddressesBatch(Collections.singletonList(address))
-                .getOrDefault(address, true) == false;
+    private void recordRevalidations(List<AddressData> checked, Map<String, CachedStatus> cached,
+            Map<String, Boolean> scanResults) {
+        for (AddressData item : checked) {
+            if (!cached.containsKey(item.hash())) continue;
+            Boolean used = scanResults.get(item.derived().address());
+            if (used == null) continue;
+            (used ? revalidatedUsed : revalidatedUnused).increment();
+        }
     }
 
-    private NextAddressResult buildResult(AddressData data, String salt) {
+    /**
+     * The QR code is inlined only when asked for; otherwise clients fetch the cacheable {@code qrCodeUrl}.
+     */
+    private NextAddressResult buildResult(AddressData data, String salt, boolean withQr) {
+        String address = data.derived().address();
         return new NextAddressResult(
-                data.derived().address(),
+                address,
                 data.derived().publicKey(),
                 data.index(),
-                generateQrCodeSvgBase64("bitcoin:" + data.derived().address()),
+                withQr ? qrRenderer.svgDataUri("bitcoin:" + address) : null,
+                "/api/address/" + address + "/qr",
                 salt,
                 data.hash()
         );
     }
-
-    /**
-     * Generates a QR code with horizontal path merging to reduce SVG size.
-     */
-    private String generateQrCodeSvgBase64(String text) {
-        try {
-            BitMatrix matrix = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 200, 200);
-            StringBuilder sb = new StringBuilder(4000);
-
-            sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 200 200\" shape-rendering=\"crispEdges\">")
-                    .append("<rect width=\"100%\" height=\"100%\" fill=\"#ffffff\"/>")
-                    .append("<path fill=\"#000000\" d=\"");
-
-            for (int y = 0; y < matrix.getHeight(); y++) {
-                for (int x = 0; x < matrix.getWidth(); x++) {
-                    if (matrix.get(x, y)) {
-                        int width = 1;
-                        while (x + width < matrix.getWidth() && matrix.get(x + width, y)) width++;
-                        sb.append("M").append(x).append(" ").append(y).append("h").append(width).append("v1h-").append(width).append("z ");
-                        x += (width - 1);
-                    }
-                }
-            }
-            sb.append("\"/></svg>");
-
-            return "data:image/svg+xml;base64," + Base64.getEncoder().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
-        } catch (WriterException _) {
-            return "";
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.btc.address.service;
+
+import com.btc.address.blockchain.BlockchainChecker;
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.wallet.Wallet;
+import com.btc.address.wallet.WalletRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+/**
+ * Optional background refresh of aging "unused" cache entries, so /next keeps finding them fresh
+ * under {@code bitcoin.cache.unused-ttl} instead of revalidating them on the request path.
+ * Only the gap-limit window after each active wallet's used watermark is swept, for the default salt.
+ * Disabled unless {@code bitcoin.cache.sweep-interval} is set. Refreshed entries are counted in
+ * {@code btc.cache.sweep.refreshed}.
+ */
+@ApplicationScoped
+public class CacheSweeper {
+
+    @Inject
+    AddressService addressService;
+
+    @Inject
+    AddressCacheManager cacheManager;
+
+    @Inject
+    BlockchainChecker blockchainChecker;
+
+    @Inject
+    WalletRegistry wallets;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "bitcoin.cache.unused-ttl", defaultValue = "PT0S")
+    Duration unusedTtl;
+
+    @ConfigProperty(name = "bitcoin.gap-limit")
+    int gapLimit;
+
+    private Counter refreshedEntries;
+
+    @PostConstruct
+    void init() {
+        refreshedEntries = Counter.builder("btc.cache.sweep.refreshed")
+                .description("Aging unused cache entries revalidated by the background sweep").register(registry);
+    }
+
+    @Scheduled(every = "{bitcoin.cache.sweep-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void sweep() {
+        if (unusedTtl.isZero()) return;
+        // Refresh entries in the last quarter of their lifetime
+        Duration minAge = unusedTtl.multipliedBy(3).dividedBy(4);
+        for (Wallet wallet : wallets.all()) {
+            if (!cacheManager.isOpen(wallet.id())) continue;
+            try {
+                int from = addressService.afterWatermark(wallet, 0);
+                int end = from + gapLimit;
+                for (int start = from, batchSize; start < end; start += batchSize) {
+                    batchSize = blockchainChecker.preferredBatchSize();
+                    refreshedEntries.increment(addressService.refreshAgingEntries(wallet, start, Math.min(start + batchSize, end), minAge));
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Cache sweep failed for " + wallet.id() + ": " + e.getMessage());
+            }
+        }
+    }
+}
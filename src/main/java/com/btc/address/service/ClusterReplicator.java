@@ -0,0 +1,209 @@
+package com.btc.address.service;
+
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.wallet.Wallet;
+import com.btc.address.wallet.WalletRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cluster mode: replicas behind a load balancer share what they learn from the providers, so provider calls
+ * follow distinct addresses rather than the replica count. Every replica pulls from every peer in
+ * {@code bitcoin.cluster.peers}, over {@code /api/cluster}:
+ * <ul>
+ *   <li>on first contact, or when the peer restarted or its log moved past our cursor, its log position
+ *   and then a snapshot of every wallet (bootstrap);</li>
+ *   <li>then, every {@code bitcoin.cluster.pull-interval}, the changes it made since the cursor.</li>
+ * </ul>
+ * Both merge with the cache's conflict rule ("used" wins, then the latest check), so the order in which
+ * peers are heard from does not matter. Requests carry {@code bitcoin.cluster.token} when set.
+ */
+@ApplicationScoped
+public class ClusterReplicator {
+
+    public static final String TOKEN_HEADER = "X-Cluster-Token";
+
+    @Inject
+    AddressCacheManager cacheManager;
+
+    @Inject
+    WalletRegistry wallets;
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "bitcoin.cluster.peers")
+    Optional<List<String>> peers;
+
+    /** This replica's own URL, so that every replica can share one peer list. */
+    @ConfigProperty(name = "bitcoin.cluster.self")
+    Optional<String> self;
+
+    @ConfigProperty(name = "bitcoin.cluster.token")
+    Optional<String> token;
+
+    @ConfigProperty(name = "bitcoin.cluster.batch-records", defaultValue = "16384")
+    int batchRecords;
+
+    @ConfigProperty(name = "bitcoin.cluster.timeout", defaultValue = "PT30S")
+    Duration timeout;
+
+    /** Pull state of one peer, only touched by one pull at a time. */
+    private static final class Peer {
+        final String url;
+        long epoch;
+        /** Next change to pull; negative until bootstrapped. */
+        long cursor = -1;
+        volatile boolean reachable;
+        /** Set after a failure was logged, so that a dead peer is reported once. */
+        boolean failing;
+
+        Peer(String url) {
+            this.url = url;
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private List<Peer> targets = List.of();
+    private Counter replicated;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!cacheManager.isReplicated()) return;
+        String own = self.map(ClusterReplicator::normalize).orElse("");
+        targets = peers.orElseThrow().stream()
+                .map(ClusterReplicator::normalize)
+                .filter(p -> !p.isEmpty() && !p.equals(own))
+                .distinct()
+                .map(Peer::new)
+                .toList();
+        replicated = Counter.builder("btc.cluster.replicated").description("Cache entries changed by peer replication")
+                .register(registry);
+        Gauge.builder("btc.cluster.peers.reachable", this, r -> r.targets.stream().filter(p -> p.reachable).count())
+                .register(registry);
+        if (token.filter(t -> !t.isBlank()).isEmpty()) {
+            System.err.println("❌ bitcoin.cluster.token is not set: anyone reaching /api/cluster can read and feed the cache");
+        }
+        System.out.println("Replicating the address cache with " + targets.size() + " peer(s)");
+    }
+
+    /**
+     * Whether a request to {@code /api/cluster} presented the shared token (always true without one).
+     */
+    public boolean isAuthorized(String presented) {
+        String expected = token.filter(t -> !t.isBlank()).orElse(null);
+        if (expected == null) return true;
+        return presented != null && MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Scheduled(every = "{bitcoin.cluster.pull-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void pull() {
+        if (targets.isEmpty()) return;
+        // One slow or dead peer must not hold the others back
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            targets.forEach(peer -> executor.submit(() -> pull(peer)));
+        }
+    }
+
+    private void pull(Peer peer) {
+        try {
+            if (peer.cursor < 0) bootstrap(peer);
+            AddressCacheManager.PulledChanges batch;
+            do {
+                HttpResponse<InputStream> response = get(peer,
+                        "/api/cluster/changes?epoch=" + peer.epoch + "&since=" + peer.cursor + "&max=" + batchRecords);
+                if (response.statusCode() == 410) {
+                    response.body().close();
+                    System.out.println("Cache replication cursor for " + peer.url + " expired, bootstrapping again");
+                    peer.cursor = -1;
+                    return;
+                }
+                try (InputStream in = ok(response)) {
+                    batch = cacheManager.mergeChanges(in, id -> wallets.find(id).isPresent());
+                }
+                peer.cursor = batch.next();
+                replicated.increment(batch.applied());
+            } while (batch.count() >= batchRecords);
+            if (peer.failing) System.out.println("Cache replication from " + peer.url + " recovered");
+            peer.failing = false;
+            peer.reachable = true;
+        } catch (IOException | RuntimeException e) {
+            if (!peer.failing) System.err.println("❌ Cache replication from " + peer.url + " failed: " + e.getMessage());
+            peer.failing = true;
+            peer.reachable = false;
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes the peer's log position first, so that changes made while the snapshots are copied get pulled
+     * afterwards (merging them twice is harmless).
+     */
+    private void bootstrap(Peer peer) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        AddressCacheManager.ReplicationPosition position;
+        try (InputStream in = ok(get(peer, "/api/cluster/position"))) {
+            position = mapper.readValue(in, AddressCacheManager.ReplicationPosition.class);
+        }
+        int applied = 0;
+        for (Wallet wallet : wallets.all()) {
+            HttpResponse<InputStream> response = get(peer, "/api/cluster/snapshot/" + wallet.id());
+            if (response.statusCode() == 404) {
+                // Not served by that peer: nothing to share
+                response.body().close();
+                continue;
+            }
+            try (InputStream in = ok(response)) {
+                applied += cacheManager.mergeSnapshot(wallet.id(), in);
+            }
+        }
+        peer.epoch = position.epoch();
+        peer.cursor = position.sequence();
+        replicated.increment(applied);
+        System.out.println("Cache bootstrapped from " + peer.url + ": " + applied + " entries merged in "
+                + Duration.ofNanos(System.nanoTime() - started).toMillis() + " ms");
+    }
+
+    private HttpResponse<InputStream> get(Peer peer, String path) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(peer.url + path)).timeout(timeout).GET();
+        token.filter(t -> !t.isBlank()).ifPresent(t -> request.header(TOKEN_HEADER, t));
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private static InputStream ok(HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() == 200) return response.body();
+        response.body().close();
+        throw new IOException("HTTP " + response.statusCode() + " from " + response.uri());
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
@@ -0,0 +1,52 @@
+package com.btc.address.wallet;
+
+import com.btc.address.bitcoin.BIP84Deriver;
+import com.btc.address.bitcoin.ExternalChainDeriver;
+
+/**
+ * A registered wallet. The derivation state (external chain key and scratch buffers) is built on first use.
+ */
+public final class Wallet {
+
+    private final String id;
+    private final String xpub;
+    private final String indexSalt;
+    private volatile ExternalChainDeriver chain;
+
+    Wallet(String id, String xpub) {
+        this.id = id;
+        this.xpub = xpub;
+        this.indexSalt = BIP84Deriver.generateSaltFromXpub(xpub);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String xpub() {
+        return xpub;
+    }
+
+    /**
+     * Salt derived from the xpub; also the default cache salt.
+     */
+    public String indexSalt() {
+        return indexSalt;
+    }
+
+    public ExternalChainDeriver chain() {
+        ExternalChainDeriver c = chain;
+        if (c == null) {
+            synchronized (this) {
+                c = chain;
+                if (c == null) chain = c = ExternalChainDeriver.create(xpub);
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public String toString() {
+        return "Wallet[" + id + "]";
+    }
+}
@@ -0,0 +1,63 @@
+package com.btc.address.wallet;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Wallets served by this process, by ID: every {@code bitcoin.wallets.<id>.xpub} entry, plus the
+ * {@value #DEFAULT_ID} wallet from {@code bitcoin.xpub} (used by the unscoped /api/address endpoints).
+ */
+@ApplicationScoped
+public class WalletRegistry {
+
+    public static final String DEFAULT_ID = "default";
+
+    /** IDs end up in cache file names, so they are restricted to a safe alphabet. */
+    private static final Pattern WALLET_KEY = Pattern.compile("bitcoin\\.wallets\\.([a-z0-9_-]{1,64})\\.xpub");
+
+    @ConfigProperty(name = "bitcoin.xpub")
+    Optional<String> defaultXpub;
+
+    private Map<String, Wallet> wallets = Map.of();
+
+    @PostConstruct
+    void init() {
+        var config = ConfigProvider.getConfig();
+        Map<String, Wallet> found = new TreeMap<>();
+        defaultXpub.filter(key -> !key.isBlank()).ifPresent(key -> found.put(DEFAULT_ID, new Wallet(DEFAULT_ID, key.trim())));
+
+        for (String name : config.getPropertyNames()) {
+            Matcher m = WALLET_KEY.matcher(name);
+            if (!m.matches()) {
+                if (name.startsWith("bitcoin.wallets.")) System.err.println("❌ Ignoring invalid wallet property " + name);
+                continue;
+            }
+            config.getOptionalValue(name, String.class)
+                    .filter(key -> !key.isBlank())
+                    .ifPresent(key -> found.put(m.group(1), new Wallet(m.group(1), key.trim())));
+        }
+        wallets = Map.copyOf(found);
+        System.out.println("Serving " + wallets.size() + " wallet(s)");
+    }
+
+    public Optional<Wallet> find(String id) {
+        return Optional.ofNullable(wallets.get(id));
+    }
+
+    public Optional<Wallet> defaultWallet() {
+        return find(DEFAULT_ID);
+    }
+
+    public Collection<Wallet> all() {
+        return wallets.values();
+    }
+}
@@ -0,0 +1,116 @@
+package com.btc.address.bitcoin;
+
+import org.bitcoinj.base.Base58;
+import org.bitcoinj.base.BitcoinNetwork;
+import org.bitcoinj.base.Sha256Hash;
+import org.bitcoinj.crypto.ChildNumber;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.HDKeyDerivation;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bit-for-bit parity of the fast CKDpub path with bitcoinj's derivation.
+ */
+class ExternalChainDeriverTest {
+
+    /** BIP84 test vector: account 0 of "abandon abandon ... about". */
+    private static final String BIP84_ZPUB =
+            "zpub6rFR7y4Q2AijBEqTUquhVz398htDFrtymD9xYYfG1m4wAcvPhXNfE3EfH1r1ADqtfSdVCToUG868RvUUkgDKf31mGDtKsAYz2oz2AGutZYs";
+    private static final int ZPUB_VERSION = 0x04B24746;
+    private static final int INDICES = 4096;
+    private static final int CHUNK = 100;
+
+    @Test
+    void matchesBip84TestVector() {
+        ExternalChainDeriver chain = ExternalChainDeriver.create(BIP84_ZPUB);
+        assertTrue(chain.usesFastPath());
+        assertEquals("bc1qcr8te4kr609gcawutmrza0j4xv80jy8z306fyu", chain.deriveAddress(0).address());
+        assertEquals("bc1qnjg0jd8228aq7egyzacy8cys3knf9xvrerkf9g", chain.deriveAddress(1).address());
+        assertEquals("0330d54fd0dd420a6e5f8d3624f5f3482cae350f79d5f0753bf5beef9c2d91af3c",
+                chain.deriveAddress(0).publicKey());
+    }
+
+    @Test
+    void matchesBitcoinjOverThousandsOfIndices() {
+        int leadingZeroX = 0;
+        int leadingZeroHash160 = 0;
+        int oddY = 0;
+        for (String key : keys()) {
+            ExternalChainDeriver chain = ExternalChainDeriver.create(key);
+            assertTrue(chain.usesFastPath(), "parity guard fell back to bitcoinj for " + key);
+            DeterministicKey external = BIP84Deriver.createMasterKey(key);
+
+            // Uneven chunks, so batch normalization is exercised across different range sizes
+            List<BIP84Deriver.DerivedAddress> fast = new ArrayList<>(INDICES);
+            for (int from = 0, size = 1; from < INDICES; from += size, size = size % CHUNK + 7) {
+                fast.addAll(chain.deriveRange(from, Math.min(from + size, INDICES)));
+            }
+            assertEquals(INDICES, fast.size());
+            for (int i = 0; i < INDICES; i++) {
+                BIP84Deriver.DerivedAddress expected = BIP84Deriver.deriveAddress(external, i);
+                assertEquals(expected, fast.get(i), "index " + i + " of " + key);
+                if (expected.publicKey().startsWith("00", 2)) leadingZeroX++;
+                // "bc1q" + witness version, then the first 5 bits of HASH160
+                if (expected.address().charAt(4) == 'q') leadingZeroHash160++;
+                if (expected.publicKey().startsWith("03")) oddY++;
+            }
+        }
+        // The fixed seeds hit the encodings most likely to break: a zero high byte in the x coordinate,
+        // a HASH160 starting with zero bits and both y parities
+        assertTrue(leadingZeroX > 0, "no public key with a leading zero x byte");
+        assertTrue(leadingZeroHash160 > 0, "no HASH160 with leading zero bits");
+        assertTrue(oddY > 0 && oddY < keys().size() * INDICES);
+    }
+
+    @Test
+    void matchesBitcoinjAtTheTopOfTheNonHardenedRange() {
+        for (String key : keys()) {
+            ExternalChainDeriver chain = ExternalChainDeriver.create(key);
+            DeterministicKey external = BIP84Deriver.createMasterKey(key);
+            int start = Integer.MAX_VALUE - 64;
+            List<BIP84Deriver.DerivedAddress> fast = chain.deriveRange(start, Integer.MAX_VALUE);
+            for (int i = start; i < Integer.MAX_VALUE; i++) {
+                assertEquals(BIP84Deriver.deriveAddress(external, i), fast.get(i - start));
+            }
+            assertEquals(BIP84Deriver.deriveAddress(external, Integer.MAX_VALUE - 1),
+                    chain.deriveAddress(Integer.MAX_VALUE - 1));
+        }
+    }
+
+    /**
+     * Account xpubs (m/84'/0'/0') of fixed random seeds, plus zpub encodings of some of them.
+     */
+    private static List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        keys.add(BIP84_ZPUB);
+        Random random = new Random(84);
+        for (int i = 0; i < 3; i++) {
+            byte[] seed = new byte[32];
+            random.nextBytes(seed);
+            DeterministicKey account = HDKeyDerivation.createMasterPrivateKey(seed);
+            for (ChildNumber child : List.of(new ChildNumber(84, true), ChildNumber.ZERO_HARDENED, ChildNumber.ZERO_HARDENED)) {
+                account = HDKeyDerivation.deriveChildKey(account, child);
+            }
+            String xpub = account.dropPrivateBytes().dropParent().serializePubB58(BitcoinNetwork.MAINNET);
+            keys.add(i == 0 ? toZpub(xpub) : xpub);
+        }
+        return keys;
+    }
+
+    private static String toZpub(String xpub) {
+        byte[] data = Base58.decodeChecked(xpub);
+        ByteBuffer.wrap(data).putInt(ZPUB_VERSION);
+        byte[] checked = Arrays.copyOf(data, data.length + 4);
+        System.arraycopy(Sha256Hash.hashTwice(data), 0, checked, data.length, 4);
+        return Base58.encode(checked);
+    }
+}
@@ -0,0 +1,387 @@
+package com.btc.address.blockchain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.TracerProvider;
+import jakarta.enterprise.inject.Instance;
+import org.bitcoinj.base.BitcoinNetwork;
+import org.bitcoinj.base.SegwitAddress;
+import org.bouncycastle.crypto.macs.SipHash;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link BlockchainChecker} routing, fan-out and confirmation over fake backends; nothing leaves the process.
+ */
+class BlockchainCheckerTest {
+
+    private static final String PAID = address(0xa1);
+    private static final Duration OPEN = Duration.ofMillis(150);
+
+    @TempDir
+    Path dir;
+
+    private BlockchainChecker checker;
+
+    @AfterEach
+    void stop() {
+        if (checker != null) checker.shutdown();
+    }
+
+    @Test
+    void filterCollisionIsConfirmedAsUnused() throws IOException {
+        byte[] block = CompactFilterIndexTest.blockHash("00000000000000000001" + "5a".repeat(22));
+        String collision = collidingAddress(block, OutputScripts.forAddress(PAID));
+        FakeBackend explorer = FakeBackend.answering("explorer", 1, addresses -> Map.of(PAID, true, collision, false));
+        checker = checker(filters(block, PAID), explorer);
+
+        assertEquals(Map.of(PAID, true, collision, false), checker.checkAddressesBatch(List.of(PAID, collision)));
+        assertEquals(List.of(List.of(PAID, collision)), explorer.calls);
+        assertEquals(1.0, checker.registry.get("btc.provider.fallbacks")
+                .tags("provider", "explorer", "reason", "confirmation").counter().count());
+    }
+
+    @Test
+    void filterMatchWithoutAConclusiveBackendFailsTheCheck() throws IOException {
+        byte[] block = CompactFilterIndexTest.blockHash("00000000000000000002" + "5a".repeat(22));
+        String collision = collidingAddress(block, OutputScripts.forAddress(PAID));
+        checker = checker(filters(block, PAID));
+
+        assertThrows(RuntimeException.class, () -> checker.checkAddressesBatch(List.of(collision)));
+    }
+
+    @Test
+    void filterMissesStandWithoutAConclusiveBackend() throws IOException {
+        byte[] block = CompactFilterIndexTest.blockHash("00000000000000000003" + "5a".repeat(22));
+        String fresh = address(0xb2);
+        checker = checker(filters(block, PAID));
+
+        assertEquals(Map.of(fresh, false), checker.checkAddressesBatch(List.of(fresh)));
+    }
+
+    @Test
+    void checksGoToTheProviderWithTheMostBudgetLeft() {
+        FakeBackend first = FakeBackend.answering("first", 1, a -> all(a, false));
+        FakeBackend second = FakeBackend.answering("second", 2, a -> all(a, false));
+        checker = checker(first, second);
+
+        // Ties go by priority; each check spends a token of the provider it went to
+        for (int i = 0; i < 3; i++) checker.checkAddressesBatch(List.of(PAID));
+
+        assertEquals(2, first.calls.size());
+        assertEquals(1, second.calls.size());
+    }
+
+    @Test
+    void preferredBatchSizeShrinksAfterFailuresAndGrowsBackAfterFastAnswers() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        FakeBackend only = new FakeBackend("only", 1, a -> failing.get()
+                ? CompletableFuture.failedFuture(new IllegalStateException("timeout"))
+                : CompletableFuture.completedFuture(all(a, false)));
+        checker = checker(c -> c.breakerFailureThreshold = 100, only);
+        assertEquals(20, checker.preferredBatchSize());
+
+        for (int i = 0; i < 2; i++) assertThrows(RuntimeException.class, () -> checker.checkAddressesBatch(List.of(PAID)));
+        assertEquals(11, checker.preferredBatchSize());
+
+        failing.set(false);
+        for (int i = 0; i < 3; i++) checker.checkAddressesBatch(List.of(PAID));
+        assertEquals(14, checker.preferredBatchSize());
+    }
+
+    @Test
+    void hedgeFiresAfterTheDelayAndCancelsTheSlowProvider() throws InterruptedException {
+        FakeBackend slow = new FakeBackend("slow", 1, _ -> new CompletableFuture<>());
+        FakeBackend fast = FakeBackend.answering("fast", 2, a -> all(a, true));
+        checker = checker(c -> {
+            c.hedgeEnabled = true;
+            c.hedgeInitialDelay = Duration.ofMillis(200);
+        }, slow, fast);
+
+        long started = System.nanoTime();
+        assertEquals(Map.of(PAID, true), checker.checkAddressesBatch(List.of(PAID)));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() >= 200);
+        // Losers are cancelled right after the winner's answer is published
+        waitFor(() -> slow.replies.getFirst().isCancelled());
+        assertEquals(1.0, fallbacks("fast", "hedge"));
+    }
+
+    @Test
+    void noHedgeWhenTheFirstProviderAnswersInTime() throws InterruptedException {
+        FakeBackend first = FakeBackend.answering("first", 1, a -> all(a, false));
+        FakeBackend second = FakeBackend.answering("second", 2, a -> all(a, true));
+        checker = checker(c -> {
+            c.hedgeEnabled = true;
+            c.hedgeInitialDelay = Duration.ofMillis(100);
+        }, first, second);
+
+        assertEquals(Map.of(PAID, false), checker.checkAddressesBatch(List.of(PAID)));
+        Thread.sleep(200);
+
+        assertEquals(List.of(), second.calls);
+    }
+
+    @Test
+    void quorumDisagreementReportsUsedIfAnyProviderSawIt() {
+        FakeBackend first = FakeBackend.answering("first", 1, a -> all(a, false));
+        FakeBackend second = FakeBackend.answering("second", 2, a -> all(a, true));
+        checker = checker(c -> c.quorum = true, first, second);
+
+        assertEquals(Map.of(PAID, true), checker.checkAddressesBatch(List.of(PAID)));
+        assertEquals(1.0, fallbacks("second", "quorum"));
+    }
+
+    @Test
+    void quorumDisagreementIsBrokenByAThirdProvider() {
+        FakeBackend first = FakeBackend.answering("first", 1, a -> all(a, false));
+        FakeBackend second = FakeBackend.answering("second", 2, a -> all(a, true));
+        FakeBackend third = FakeBackend.answering("third", 3, a -> all(a, false));
+        checker = checker(c -> c.quorum = true, first, second, third);
+
+        assertEquals(Map.of(PAID, false), checker.checkAddressesBatch(List.of(PAID)));
+        assertEquals(1, third.calls.size());
+    }
+
+    @Test
+    void openCircuitLetsExactlyOneHalfOpenProbeThrough() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        AtomicBoolean hold = new AtomicBoolean();
+        FakeBackend flaky = new FakeBackend("flaky", 1, _ -> hold.get()
+                ? CompletableFuture.supplyAsync(() -> {
+                    await(held);
+                    throw new IllegalStateException("down");
+                })
+                : CompletableFuture.failedFuture(new IllegalStateException("down")));
+        FakeBackend steady = FakeBackend.answering("steady", 2, a -> all(a, false));
+        checker = checker(c -> c.breakerOpenDuration = OPEN, flaky, steady);
+
+        tripBreaker(flaky);
+
+        // Half-open: the first check claims the only probe, the concurrent one skips the provider
+        Thread.sleep(OPEN.toMillis() + 50);
+        hold.set(true);
+        CompletableFuture<Map<String, Boolean>> probing = CompletableFuture.supplyAsync(() -> checker.checkAddressesBatch(List.of(PAID)));
+        waitFor(() -> flaky.calls.size() == 4);
+        assertEquals(Map.of(PAID, false), checker.checkAddressesBatch(List.of(PAID)));
+        assertEquals(4, flaky.calls.size());
+
+        // The failed probe opens the circuit again instead of keeping the slot
+        held.countDown();
+        assertEquals(Map.of(PAID, false), probing.get(5, TimeUnit.SECONDS));
+        checker.checkAddressesBatch(List.of(PAID));
+        assertEquals(4, flaky.calls.size());
+        Thread.sleep(OPEN.toMillis() + 50);
+        checker.checkAddressesBatch(List.of(PAID));
+        assertEquals(5, flaky.calls.size());
+    }
+
+    @Test
+    void timedOutHalfOpenProbeOpensTheCircuitAgain() throws Exception {
+        AtomicBoolean hang = new AtomicBoolean();
+        FakeBackend flaky = new FakeBackend("flaky", 1, _ -> hang.get()
+                ? new CompletableFuture<Map<String, Boolean>>().orTimeout(100, TimeUnit.MILLISECONDS)
+                : CompletableFuture.failedFuture(new IllegalStateException("down")));
+        FakeBackend steady = FakeBackend.answering("steady", 2, a -> all(a, false));
+        checker = checker(c -> c.breakerOpenDuration = OPEN, flaky, steady);
+
+        tripBreaker(flaky);
+        Thread.sleep(OPEN.toMillis() + 50);
+        hang.set(true);
+        assertEquals(Map.of(PAID, false), checker.checkAddressesBatch(List.of(PAID)));
+        assertEquals(4, flaky.calls.size());
+
+        checker.checkAddressesBatch(List.of(PAID));
+        assertEquals(4, flaky.calls.size());
+        Thread.sleep(OPEN.toMillis() + 50);
+        checker.checkAddressesBatch(List.of(PAID));
+        assertEquals(5, flaky.calls.size());
+    }
+
+    /** Three failed checks of {@code flaky} (answered by the fallback) open its circuit. */
+    private void tripBreaker(FakeBackend flaky) {
+        for (int i = 0; i < 3; i++) assertEquals(Map.of(PAID, false), checker.checkAddressesBatch(List.of(PAID)));
+        assertEquals(3, flaky.calls.size());
+        checker.checkAddressesBatch(List.of(PAID));
+        assertEquals(3, flaky.calls.size());
+    }
+
+    private double fallbacks(String provider, String reason) {
+        return checker.registry.get("btc.provider.fallbacks").tags("provider", provider, "reason", reason).counter().count();
+    }
+
+    private static Map<String, Boolean> all(List<String> addresses, boolean used) {
+        Map<String, Boolean> usage = new HashMap<>();
+        addresses.forEach(a -> usage.put(a, used));
+        return usage;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    /** A compact filter backend over one block that pays {@code paid}. */
+    private CompactFilterBackend filters(byte[] block, String paid) throws IOException {
+        byte[] filter = CompactFilterIndexTest.filter(block, OutputScripts.forAddress(paid));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(block);
+        out.write(filter.length);
+        out.writeBytes(filter);
+        out.writeBytes(new byte[256]);
+        Files.write(dir.resolve("fltr00000.dat"), out.toByteArray());
+
+        CompactFilterBackend backend = new CompactFilterBackend();
+        backend.path = Optional.of(dir.toString());
+        backend.timeout = Duration.ofSeconds(30);
+        return backend;
+    }
+
+    /**
+     * A P2WPKH address whose script hashes to the same filter value as {@code script} in {@code block}'s
+     * one-element filter, so the filter matches it although the block never paid it.
+     */
+    private static String collidingAddress(byte[] block, byte[] script) {
+        SipHash sip = new SipHash();
+        sip.init(new KeyParameter(Arrays.copyOf(block, 16)));
+        long target = filterValue(sip, script);
+        byte[] candidate = new byte[22];
+        candidate[1] = 20;
+        for (long i = 0; ; i++) {
+            for (int b = 0; b < 8; b++) candidate[2 + b] = (byte) (i >>> (8 * b));
+            if (filterValue(sip, candidate) == target) {
+                return SegwitAddress.fromProgram(BitcoinNetwork.MAINNET, 0, Arrays.copyOfRange(candidate, 2, 22)).toString();
+            }
+        }
+    }
+
+    private static long filterValue(SipHash sip, byte[] script) {
+        sip.update(script, 0, script.length);
+        return Math.unsignedMultiplyHigh(sip.doFinal(), 784931L);
+    }
+
+    static BlockchainChecker checker(ChainBackend... backends) {
+        return checker(_ -> {}, backends);
+    }
+
+    /** A checker over {@code backends}, with {@code config} applied to the defaults before it starts. */
+    static BlockchainChecker checker(Consumer<BlockchainChecker> config, ChainBackend... backends) {
+        BlockchainChecker checker = new BlockchainChecker();
+        checker.registry = new SimpleMeterRegistry();
+        checker.tracer = TracerProvider.noop().get("test");
+        checker.backends = instance(List.of(backends));
+        checker.requestTimeout = Duration.ofSeconds(5);
+        checker.hedgePercentile = 0.9;
+        checker.hedgeInitialDelay = Duration.ofSeconds(1);
+        checker.hedgeMinDelay = Duration.ofMillis(100);
+        checker.breakerFailureThreshold = 3;
+        checker.breakerOpenDuration = Duration.ofSeconds(30);
+        checker.fastResponse = Duration.ofSeconds(1);
+        checker.slowResponse = Duration.ofSeconds(5);
+        checker.largeResponseBytes = 524288;
+        config.accept(checker);
+        checker.init();
+        return checker;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Instance<ChainBackend> instance(List<ChainBackend> backends) {
+        return (Instance<ChainBackend>) Proxy.newProxyInstance(Instance.class.getClassLoader(), new Class<?>[]{Instance.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "stream" -> backends.stream();
+                    case "iterator" -> backends.iterator();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static String address(int seed) {
+        byte[] program = new byte[20];
+        Arrays.fill(program, (byte) seed);
+        return SegwitAddress.fromProgram(BitcoinNetwork.MAINNET, 0, program).toString();
+    }
+
+    /** Replies to every batch through the checker's transport, so budgets, breakers and cancellation apply. */
+    static final class FakeBackend implements ChainBackend {
+        final String key;
+        final int priority;
+        final List<List<String>> calls = new CopyOnWriteArrayList<>();
+        final List<CompletableFuture<Map<String, Boolean>>> replies = new CopyOnWriteArrayList<>();
+        private final Function<List<String>, CompletableFuture<Map<String, Boolean>>> reply;
+
+        FakeBackend(String key, int priority, Function<List<String>, CompletableFuture<Map<String, Boolean>>> reply) {
+            this.key = key;
+            this.priority = priority;
+            this.reply = reply;
+        }
+
+        static FakeBackend answering(String key, int priority, Function<List<String>, Map<String, Boolean>> answers) {
+            return new FakeBackend(key, priority, addresses -> CompletableFuture.supplyAsync(() -> answers.apply(addresses)));
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+
+        @Override
+        public String label() {
+            return key;
+        }
+
+        @Override
+        public Limits defaultLimits() {
+            return new Limits(10, 10, 20, 100, false);
+        }
+
+        @Override
+        public int priority() {
+            return priority;
+        }
+
+        @Override
+        public CompletableFuture<Map<String, Boolean>> check(List<String> addresses, Transport transport) {
+            return transport.call(() -> {
+                calls.add(List.copyOf(addresses));
+                CompletableFuture<Map<String, Boolean>> future = reply.apply(addresses);
+                replies.add(future);
+                return future;
+            });
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.btc.address.blockchain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN = Duration.ofMillis(100);
+
+    private final CircuitBreaker breaker = new CircuitBreaker(3, OPEN);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.currentState());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.isAvailable());
+    }
+
+    @Test
+    void halfOpenLetsOneProbeThroughAndItsSuccessCloses() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN.toMillis() + 20);
+
+        assertTrue(breaker.isAvailable());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.isAvailable());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.currentState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbeOpensAgain() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN.toMillis() + 20);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.currentState());
+        assertFalse(breaker.tryAcquire());
+        Thread.sleep(OPEN.toMillis() + 20);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void releasedProbeFreesTheSlot() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN.toMillis() + 20);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.release();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.currentState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void tripHonoursALongerRetryAfter() throws InterruptedException {
+        breaker.trip(Duration.ofSeconds(30));
+        Thread.sleep(OPEN.toMillis() + 20);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.currentState());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.currentState());
+    }
+}
@@ -0,0 +1,189 @@
+package com.btc.address.blockchain;
+
+import org.bouncycastle.crypto.macs.SipHash;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * BIP158 filter matching against the reference test vector, and incremental matching as filters are appended.
+ */
+class CompactFilterIndexTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    // BIP158 test vector: testnet genesis block, whose basic filter holds only the coinbase output script
+    private static final byte[] GENESIS_HASH = blockHash("000000000933ea01ad0ee984209779baaec3ced90fa3f408719526f8d77f4943");
+    private static final byte[] GENESIS_FILTER = HEX.parseHex("019dfca8");
+    private static final byte[] GENESIS_COINBASE = HEX.parseHex("4104678afdb0fe5548271967f1a67130b7105cd6a828e03909a67962e0ea1f61"
+            + "deb649f6bc3f4cef38c4f35504e51ec112de5c384df7ba0b8d578a4c702b6bf11d5fac");
+
+    private static final byte[] SCRIPT_A = p2wpkh(0xa1);
+    private static final byte[] SCRIPT_B = p2wpkh(0xb2);
+    private static final byte[] SCRIPT_C = p2wpkh(0xc3);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void genesisFilterMatchesItsCoinbaseScriptOnly() throws IOException {
+        writeFilters("fltr00000.dat", GENESIS_HASH, GENESIS_FILTER);
+
+        Map<String, Boolean> usage = new CompactFilterIndex(dir, 0).lookup(Map.of("coinbase", GENESIS_COINBASE, "a", SCRIPT_A));
+
+        assertEquals(Map.of("coinbase", true, "a", false), usage);
+    }
+
+    @Test
+    void skippedFiltersAreNotMatched() throws IOException {
+        writeFilters("fltr00000.dat", GENESIS_HASH, GENESIS_FILTER);
+
+        assertEquals(Map.of("coinbase", false), new CompactFilterIndex(dir, 1).lookup(Map.of("coinbase", GENESIS_COINBASE)));
+    }
+
+    @Test
+    void testEncoderReproducesTheReferenceFilter() {
+        assertArrayEquals(GENESIS_FILTER, filter(GENESIS_HASH, GENESIS_COINBASE));
+    }
+
+    @Test
+    void appendedFiltersReachKnownAndNewScripts() throws IOException {
+        writeFilters("fltr00000.dat", GENESIS_HASH, GENESIS_FILTER);
+        CompactFilterIndex index = new CompactFilterIndex(dir, 0);
+        assertEquals(Map.of("a", false), index.lookup(Map.of("a", SCRIPT_A)));
+
+        // Block 1 pays A and B; Bitcoin Core appends it over the padding of the same file
+        byte[] block1 = blockHash("0000000001" + "11".repeat(27));
+        writeFilters("fltr00000.dat", GENESIS_HASH, GENESIS_FILTER, block1, filter(block1, SCRIPT_A, SCRIPT_B));
+        assertEquals(Map.of("a", true, "b", true, "c", false, "coinbase", true),
+                index.lookup(Map.of("a", SCRIPT_A, "b", SCRIPT_B, "c", SCRIPT_C, "coinbase", GENESIS_COINBASE)));
+
+        // Block 2 pays C and starts the next file
+        byte[] block2 = blockHash("0000000002" + "22".repeat(27));
+        writeFilters("fltr00001.dat", block2, filter(block2, SCRIPT_C));
+        assertEquals(Map.of("c", true, "b", true), index.lookup(Map.of("c", SCRIPT_C, "b", SCRIPT_B)));
+    }
+
+    @Test
+    void concurrentLookupsAgree() throws Exception {
+        List<Object> records = new ArrayList<>(List.of(GENESIS_HASH, GENESIS_FILTER));
+        for (int block = 1; block <= 200; block++) {
+            byte[] hash = blockHash("%010x".formatted(block) + "33".repeat(27));
+            records.add(hash);
+            records.add(block == 150 ? filter(hash, SCRIPT_A, SCRIPT_C) : filter(hash, p2wpkh(0x1000 + block)));
+        }
+        writeFilters("fltr00000.dat", records.toArray());
+        CompactFilterIndex index = new CompactFilterIndex(dir, 0);
+
+        Map<String, byte[]> scripts = Map.of("a", SCRIPT_A, "b", SCRIPT_B, "c", SCRIPT_C, "coinbase", GENESIS_COINBASE);
+        Map<String, Boolean> expected = Map.of("a", true, "b", false, "c", true, "coinbase", true);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Map<String, Boolean>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                lookups.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return index.lookup(scripts);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }, executor));
+            }
+            for (CompletableFuture<Map<String, Boolean>> lookup : lookups) assertEquals(expected, lookup.join());
+        }
+    }
+
+    /** Writes {@code [hash][CompactSize length][filter]} records followed by zero padding, like Bitcoin Core. */
+    private void writeFilters(String file, Object... hashesAndFilters) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < hashesAndFilters.length; i += 2) {
+            byte[] filter = (byte[]) hashesAndFilters[i + 1];
+            out.writeBytes((byte[]) hashesAndFilters[i]);
+            writeCompactSize(out, filter.length);
+            out.writeBytes(filter);
+        }
+        out.writeBytes(new byte[256]);
+        Files.write(dir.resolve(file), out.toByteArray());
+    }
+
+    /** BIP158 basic filter construction (P = 19, M = 784931) over the given scripts. */
+    static byte[] filter(byte[] blockHash, byte[]... scripts) {
+        long range = scripts.length * 784931L;
+        SipHash sip = new SipHash();
+        sip.init(new KeyParameter(Arrays.copyOf(blockHash, 16)));
+        long[] values = new long[scripts.length];
+        for (int i = 0; i < scripts.length; i++) {
+            sip.update(scripts[i], 0, scripts[i].length);
+            values[i] = Math.unsignedMultiplyHigh(sip.doFinal(), range);
+        }
+        Arrays.sort(values);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeCompactSize(out, scripts.length);
+        int current = 0;
+        int bits = 0;
+        long previous = 0;
+        for (long value : values) {
+            long delta = value - previous;
+            previous = value;
+            List<Integer> code = new ArrayList<>();
+            for (long q = delta >>> 19; q > 0; q--) code.add(1);
+            code.add(0);
+            for (int b = 18; b >= 0; b--) code.add((int) (delta >>> b) & 1);
+            for (int bit : code) {
+                current = (current << 1) | bit;
+                if (++bits == 8) {
+                    out.write(current);
+                    current = 0;
+                    bits = 0;
+                }
+            }
+        }
+        if (bits > 0) out.write(current << (8 - bits));
+        return out.toByteArray();
+    }
+
+    private static void writeCompactSize(ByteArrayOutputStream out, int n) {
+        if (n < 0xFD) {
+            out.write(n);
+        } else {
+            out.write(0xFD);
+            out.write(n & 0xFF);
+            out.write(n >>> 8);
+        }
+    }
+
+    /** Internal (little-endian) byte order of a block hash given as displayed. */
+    static byte[] blockHash(String displayed) {
+        byte[] hash = HEX.parseHex(displayed);
+        for (int i = 0, j = hash.length - 1; i < j; i++, j--) {
+            byte t = hash[i];
+            hash[i] = hash[j];
+            hash[j] = t;
+        }
+        return hash;
+    }
+
+    private static byte[] p2wpkh(int seed) {
+        byte[] script = new byte[22];
+        script[1] = 20;
+        Arrays.fill(script, 2, 22, (byte) seed);
+        script[21] = (byte) (seed >>> 8);
+        return script;
+    }
+}
@@ -0,0 +1,164 @@
+package com.btc.address.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.bitcoinj.base.BitcoinNetwork;
+import org.bitcoinj.base.SegwitAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link ElectrumBackend} against a stand-in Electrum server speaking newline-delimited JSON-RPC on a local socket.
+ */
+class ElectrumBackendTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String CONFIRMED = address(0x11);
+    private static final String IN_MEMPOOL = address(0x22);
+    private static final String UNUSED = address(0x33);
+
+    /** Runs every call straight away; budgets and accounting belong to the checker. */
+    private static final ChainBackend.Transport DIRECT = new ChainBackend.Transport() {
+        @Override
+        public HttpRequest.Builder get(String url) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> CompletableFuture<T> send(HttpRequest request, boolean waitForToken, ChainBackend.Decoder<T> decoder) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> request) {
+            return request.get();
+        }
+    };
+
+    private final List<String> methods = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private ServerSocket server;
+    private ElectrumBackend backend;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().start(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket client = server.accept();
+                    connections.incrementAndGet();
+                    Thread.ofVirtual().start(() -> serve(client));
+                } catch (IOException _) {
+                    // Closed by the test
+                }
+            }
+        });
+        backend = new ElectrumBackend();
+        backend.host = Optional.of(server.getInetAddress().getHostAddress());
+        backend.port = server.getLocalPort();
+        backend.timeout = Duration.ofSeconds(5);
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        backend.shutdown();
+        server.close();
+    }
+
+    @Test
+    void historyOfConfirmedAndMempoolTransactionsMeansUsed() {
+        Map<String, Boolean> usage = backend.check(List.of(CONFIRMED, IN_MEMPOOL, UNUSED), DIRECT).join();
+
+        assertEquals(Map.of(CONFIRMED, true, IN_MEMPOOL, true, UNUSED, false), usage);
+        assertEquals(List.of("server.version", "blockchain.scripthash.get_history",
+                "blockchain.scripthash.get_history", "blockchain.scripthash.get_history"), methods);
+    }
+
+    @Test
+    void batchesShareOneConnection() {
+        backend.check(List.of(CONFIRMED, UNUSED), DIRECT).join();
+        backend.check(List.of(IN_MEMPOOL), DIRECT).join();
+
+        assertEquals(1, connections.get());
+        assertEquals(1, methods.stream().filter("server.version"::equals).count());
+    }
+
+    @Test
+    void errorReplyFailsTheCheck() {
+        String rejected = address(0x44);
+
+        assertThrows(RuntimeException.class, () -> backend.check(List.of(UNUSED, rejected), DIRECT).join());
+    }
+
+    private void serve(Socket client) {
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8))) {
+            OutputStream out = client.getOutputStream();
+            String line;
+            while ((line = in.readLine()) != null) {
+                JsonNode request = JSON.readTree(line);
+                String method = request.get("method").asText();
+                methods.add(method);
+                ObjectNode reply = JSON.createObjectNode().put("jsonrpc", "2.0");
+                reply.set("id", request.get("id"));
+                switch (method) {
+                    case "server.version" -> reply.set("result", JSON.valueToTree(List.of("stand-in 1.0", "1.4")));
+                    case "blockchain.scripthash.get_history" -> {
+                        JsonNode history = history(request.get("params").get(0).asText());
+                        if (history == null) reply.set("error", JSON.createObjectNode().put("code", 1).put("message", "rejected"));
+                        else reply.set("result", history);
+                    }
+                    default -> reply.set("error", JSON.createObjectNode().put("code", -32601).put("message", "unknown method"));
+                }
+                out.write(JSON.writeValueAsBytes(reply));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException _) {
+            // Client went away
+        }
+    }
+
+    /** History by script hash; null for a script the server refuses. */
+    private static JsonNode history(String scripthash) throws IOException {
+        if (scripthash.equals(OutputScripts.electrumScripthash(CONFIRMED))) {
+            return JSON.readTree("[{\"tx_hash\":\"" + "ab".repeat(32) + "\",\"height\":840000}]");
+        }
+        if (scripthash.equals(OutputScripts.electrumScripthash(IN_MEMPOOL))) {
+            return JSON.readTree("[{\"tx_hash\":\"" + "cd".repeat(32) + "\",\"height\":0,\"fee\":141}]");
+        }
+        if (scripthash.equals(OutputScripts.electrumScripthash(UNUSED))) return JSON.createArrayNode();
+        return null;
+    }
+
+    private static String address(int seed) {
+        byte[] program = new byte[20];
+        Arrays.fill(program, (byte) seed);
+        return SegwitAddress.fromProgram(BitcoinNetwork.MAINNET, 0, program).toString();
+    }
+}
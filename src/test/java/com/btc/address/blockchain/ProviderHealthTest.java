@@ -0,0 +1,76 @@
+package com.btc.address.blockchain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Adaptive batch sizing and the latency window, fed with recorded response times.
+ */
+class ProviderHealthTest {
+
+    private static final Duration FAST = Duration.ofMillis(300);
+    private static final Duration MODERATE = Duration.ofSeconds(2);
+    private static final Duration SLOW = Duration.ofSeconds(8);
+
+    private final ProviderHealth health = new ProviderHealth(new ChainBackend.Limits(10, 10, 20, 24, false),
+            new CircuitBreaker(100, Duration.ofSeconds(30)), Duration.ofSeconds(1), Duration.ofSeconds(5), 1000);
+
+    @Test
+    void batchSizeShrinksAfterSlowOrFailedBatchesAndGrowsBackWhileFast() {
+        record(FAST, FAST, FAST);
+        assertEquals(23, health.batchSize());
+        record(FAST, FAST, FAST);
+        assertEquals(24, health.batchSize(), "capped by max-batch");
+
+        record(MODERATE);
+        assertEquals(24, health.batchSize(), "neither fast nor slow");
+        record(SLOW);
+        assertEquals(18, health.batchSize());
+        health.onFailure();
+        assertEquals(13, health.batchSize());
+        health.onResponse(FAST, 5000);
+        assertEquals(9, health.batchSize(), "large body");
+        health.onRateLimited(Duration.ofSeconds(1));
+        assertEquals(4, health.batchSize());
+
+        record(FAST, FAST, FAST, FAST, FAST);
+        assertEquals(9, health.batchSize());
+    }
+
+    @Test
+    void batchSizeNeverDropsBelowOne() {
+        for (int i = 0; i < 20; i++) health.onFailure();
+
+        assertEquals(1, health.batchSize());
+        record(FAST);
+        assertEquals(2, health.batchSize());
+    }
+
+    @Test
+    void latencyPercentileNeedsEnoughSamples() {
+        LatencyTracker latency = new LatencyTracker();
+        for (int ms = 1; ms <= 7; ms++) latency.record(Duration.ofMillis(ms));
+        assertEquals(Optional.empty(), latency.percentile(0.9));
+
+        for (int ms = 8; ms <= 10; ms++) latency.record(Duration.ofMillis(ms));
+        assertEquals(Optional.of(Duration.ofMillis(9)), latency.percentile(0.9));
+        assertEquals(Optional.of(Duration.ofMillis(5)), latency.percentile(0.5));
+    }
+
+    @Test
+    void latencyWindowForgetsOldSamples() {
+        LatencyTracker latency = new LatencyTracker();
+        for (int i = 0; i < 128; i++) latency.record(SLOW);
+        for (int i = 0; i < 128; i++) latency.record(FAST);
+
+        assertEquals(Optional.of(FAST), latency.percentile(1.0));
+    }
+
+    private void record(Duration... elapsed) {
+        for (Duration e : elapsed) health.onResponse(e, 100);
+    }
+}
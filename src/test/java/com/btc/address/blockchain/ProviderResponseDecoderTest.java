@@ -0,0 +1,161 @@
+package com.btc.address.blockchain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The streaming decoders against the recorded provider responses in {@code fixtures/}, with the previous
+ * tree-based decoding as the reference.
+ */
+class ProviderResponseDecoderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String MISSING = "bc1qmissingmissingmissingmissingmissing0000";
+
+    @Test
+    void blockchairMatchesTreeDecoding() throws IOException {
+        byte[] body = fixture("blockchair-dashboards.json");
+        List<String> addresses = new ArrayList<>(fieldNames(MAPPER.readTree(body).get("data")));
+        addresses.add(MISSING);
+
+        Map<String, Boolean> decoded = ProviderResponseDecoder.blockchair(new ByteArrayInputStream(body), addresses);
+
+        assertEquals(blockchairTree(body, addresses), decoded);
+        assertTrue(decoded.containsValue(true));
+        assertTrue(decoded.containsValue(false));
+        assertFalse(decoded.get(MISSING));
+    }
+
+    @Test
+    void blockchainInfoMatchesTreeDecoding() throws IOException {
+        byte[] body = fixture("blockchain-info-balance.json");
+        List<String> addresses = new ArrayList<>(fieldNames(MAPPER.readTree(body)));
+        addresses.add(MISSING);
+
+        Map<String, Boolean> decoded = ProviderResponseDecoder.blockchainInfo(new ByteArrayInputStream(body), addresses);
+
+        assertEquals(blockchainInfoTree(body, addresses), decoded);
+        assertTrue(decoded.containsValue(true));
+        assertTrue(decoded.containsValue(false));
+        assertFalse(decoded.get(MISSING));
+    }
+
+    @Test
+    void mempoolMatchesTreeDecoding() throws IOException {
+        byte[] used = fixture("mempool-address.json");
+        byte[] unused = new String(used, StandardCharsets.UTF_8).replace("\"tx_count\": 2", "\"tx_count\": 0")
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(used)));
+        assertEquals(mempoolTree(used), ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(used)));
+        assertFalse(ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(unused)));
+        assertEquals(mempoolTree(unused), ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(unused)));
+    }
+
+    @Test
+    void decodingStopsOnceEveryAddressIsResolved() throws IOException {
+        String blockchair = new String(fixture("blockchair-dashboards.json"), StandardCharsets.UTF_8);
+        List<String> firstTwo = fieldNames(MAPPER.readTree(blockchair).get("data")).subList(0, 2);
+        String third = fieldNames(MAPPER.readTree(blockchair).get("data")).get(2);
+
+        // Nothing after the requested addresses is read, so a body cut off there still decodes
+        byte[] cut = truncatedBefore(blockchair, '"' + third + '"');
+        assertEquals(blockchairTree(fixture("blockchair-dashboards.json"), firstTwo),
+                ProviderResponseDecoder.blockchair(new ByteArrayInputStream(cut), firstTwo));
+
+        String mempool = new String(fixture("mempool-address.json"), StandardCharsets.UTF_8);
+        byte[] afterStats = truncatedBefore(mempool, "\n}");
+        assertTrue(ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(afterStats)));
+    }
+
+    @Test
+    void truncatedBodyFails() throws IOException {
+        String blockchair = new String(fixture("blockchair-dashboards.json"), StandardCharsets.UTF_8);
+        List<String> addresses = fieldNames(MAPPER.readTree(blockchair).get("data"));
+        byte[] cut = truncatedBefore(blockchair, '"' + addresses.get(2) + '"');
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.blockchair(new ByteArrayInputStream(cut), addresses));
+
+        String blockchainInfo = new String(fixture("blockchain-info-balance.json"), StandardCharsets.UTF_8);
+        byte[] half = Arrays.copyOf(blockchainInfo.getBytes(StandardCharsets.UTF_8), blockchainInfo.length() / 2);
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.blockchainInfo(new ByteArrayInputStream(half),
+                fieldNames(MAPPER.readTree(blockchainInfo))));
+
+        String mempool = new String(fixture("mempool-address.json"), StandardCharsets.UTF_8);
+        byte[] beforeMempoolStats = truncatedBefore(mempool, "\"mempool_stats\"");
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(beforeMempoolStats)));
+    }
+
+    @Test
+    void malformedBodyFails() {
+        List<String> addresses = List.of(MISSING);
+        byte[] html = "<html><body>502 Bad Gateway</body></html>".getBytes(StandardCharsets.UTF_8);
+        byte[] array = "[]".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.blockchair(new ByteArrayInputStream(html), addresses));
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.blockchair(new ByteArrayInputStream(array), addresses));
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.blockchainInfo(new ByteArrayInputStream(html), addresses));
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.blockchainInfo(new ByteArrayInputStream(array), addresses));
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(html)));
+        assertThrows(IOException.class, () -> ProviderResponseDecoder.mempoolUsed(new ByteArrayInputStream(array)));
+    }
+
+    // Previous decoding: the body as a String, then a JsonNode tree
+
+    private static Map<String, Boolean> blockchairTree(byte[] body, List<String> addresses) throws IOException {
+        Map<String, Boolean> results = new HashMap<>();
+        JsonNode data = MAPPER.readTree(new String(body, StandardCharsets.UTF_8)).path("data");
+        for (String addr : addresses) {
+            results.put(addr, data.path(addr).path("address").path("transaction_count").asInt(0) > 0);
+        }
+        return results;
+    }
+
+    private static Map<String, Boolean> blockchainInfoTree(byte[] body, List<String> addresses) throws IOException {
+        Map<String, Boolean> results = new HashMap<>();
+        JsonNode root = MAPPER.readTree(new String(body, StandardCharsets.UTF_8));
+        for (String addr : addresses) {
+            results.put(addr, root.path(addr).path("n_tx").asInt(0) > 0);
+        }
+        return results;
+    }
+
+    private static boolean mempoolTree(byte[] body) throws IOException {
+        JsonNode root = MAPPER.readTree(new String(body, StandardCharsets.UTF_8));
+        return root.path("chain_stats").path("tx_count").asInt(0) + root.path("mempool_stats").path("tx_count").asInt(0) > 0;
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private static byte[] truncatedBefore(String body, String marker) {
+        int at = body.lastIndexOf(marker);
+        assertTrue(at > 0, marker);
+        return body.substring(0, at).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] fixture(String name) throws IOException {
+        try (InputStream in = ProviderResponseDecoderTest.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IOException("Missing fixture " + name);
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.btc.address.blockchain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void rejectsWhenEmptyAndRefillsOverTime() throws InterruptedException {
+        // One token per 50 ms
+        TokenBucket bucket = new TokenBucket(2, 20);
+
+        assertTrue(bucket.tryAcquire(1));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+        Duration wait = bucket.timeUntil(1);
+        assertTrue(wait.compareTo(Duration.ZERO) > 0 && wait.compareTo(Duration.ofMillis(50)) <= 0, wait.toString());
+
+        Thread.sleep(60);
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    void neverRefillsPastCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(2, 1000);
+        Thread.sleep(20);
+
+        assertEquals(1.0, bucket.remainingAfter(0));
+        assertTrue(bucket.tryAcquire(2));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    void drainPausesRefilling() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(2, 1000);
+
+        bucket.drain(Duration.ofMillis(100));
+        Thread.sleep(30);
+
+        assertFalse(bucket.tryAcquire(1));
+        assertTrue(bucket.timeUntil(1).compareTo(Duration.ofMillis(40)) > 0);
+        Thread.sleep(100);
+        assertTrue(bucket.tryAcquire(1));
+    }
+
+    @Test
+    void remainingBudgetRanksProviders() {
+        TokenBucket bucket = new TokenBucket(10, 0.001);
+
+        assertEquals(0.7, bucket.remainingAfter(3), 0.01);
+        assertTrue(bucket.remainingAfter(11) < 0);
+    }
+}
@@ -0,0 +1,99 @@
+package com.btc.address.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shards answering from their mapped snapshot while the table warms up.
+ */
+class AddressCacheManagerTest {
+
+    private static final String WALLET = "shop";
+    private static final int ENTRIES = 10_000;
+
+    @TempDir
+    Path dir;
+
+    private final List<AddressCacheManager> managers = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        managers.forEach(AddressCacheManager::shutdown);
+    }
+
+    @Test
+    void warmingShardAnswersFromItsSnapshot() {
+        Map<String, Boolean> saved = new HashMap<>();
+        IntStream.range(0, ENTRIES).forEach(i -> saved.put(hash(i), i % 3 == 0));
+        saved.put(hash(1), true);
+        saved.put(hash(ENTRIES), false);
+        AddressCacheManager writer = manager(Runnable::run);
+        writer.addEntries(WALLET, saved);
+        // Writes the snapshot
+        writer.shutdown();
+        managers.remove(writer);
+
+        List<Runnable> warmups = new ArrayList<>();
+        AddressCacheManager cache = manager(warmups::add);
+        List<String> lookups = List.of(hash(0), hash(1), hash(2), hash(ENTRIES), hash(ENTRIES + 1));
+
+        Map<String, Boolean> expected = Map.of(hash(0), true, hash(1), true, hash(2), false, hash(ENTRIES), false);
+        assertEquals(expected, cache.getMultiStatus(WALLET, lookups));
+        assertEquals(1, warmups.size());
+        assertEquals(1, warming(cache));
+        assertEquals(ENTRIES + 1, cache.registry.get("btc.cache.entries").gauge().value());
+
+        // Writes during warmup merge with the snapshot entry instead of hiding it
+        cache.addEntries(WALLET, Map.of(hash(0), false, hash(2), true));
+        assertTrue(cache.getMultiStatus(WALLET, List.of(hash(0))).get(hash(0)));
+        assertTrue(cache.getMultiStatus(WALLET, List.of(hash(2))).get(hash(2)));
+
+        warmups.forEach(Runnable::run);
+        assertEquals(0, warming(cache));
+        Map<String, Boolean> warm = cache.getMultiStatus(WALLET, lookups);
+        assertTrue(warm.get(hash(0)));
+        assertTrue(warm.get(hash(1)));
+        assertTrue(warm.get(hash(2)));
+        assertFalse(warm.get(hash(ENTRIES)));
+        assertEquals(4, warm.size());
+        assertEquals(ENTRIES + 1, cache.registry.get("btc.cache.entries").gauge().value());
+    }
+
+    private AddressCacheManager manager(Executor warmup) {
+        AddressCacheManager manager = new AddressCacheManager();
+        manager.dataPath = dir.toString();
+        manager.registry = new SimpleMeterRegistry();
+        manager.compactionThreshold = Long.MAX_VALUE;
+        manager.compactionInterval = Duration.ofHours(1);
+        manager.asyncWarmup = true;
+        manager.warmupExecutor = warmup;
+        manager.clusterPeers = Optional.empty();
+        manager.init();
+        managers.add(manager);
+        return manager;
+    }
+
+    private static double warming(AddressCacheManager cache) {
+        return cache.registry.get("btc.cache.warming").gauge().value();
+    }
+
+    private static String hash(int n) {
+        return "%064x".formatted(n);
+    }
+}
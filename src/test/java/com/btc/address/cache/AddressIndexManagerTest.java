@@ -0,0 +1,74 @@
+package com.btc.address.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AddressIndexManagerTest {
+
+    private static final String SALT = "salt";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordedHashesResolveToTheirIndex() {
+        AddressIndexManager index = manager();
+        index.recordAll(SALT, Map.of(0, hash(100), 1, hash(101), 7, hash(107)));
+
+        assertEquals(OptionalInt.of(0), index.lookup(SALT, hash(100)));
+        assertEquals(OptionalInt.of(7), index.lookup(SALT, hash(107)));
+        assertEquals(OptionalInt.empty(), index.lookup(SALT, hash(102)));
+        assertEquals(OptionalInt.empty(), index.lookup("other", hash(100)));
+        assertTrue(index.isCovered(SALT, 1));
+        assertFalse(index.isCovered(SALT, 2));
+    }
+
+    @Test
+    void recordedIndexIsNotRemapped() {
+        AddressIndexManager index = manager();
+        index.recordAll(SALT, Map.of(3, hash(103)));
+        index.recordAll(SALT, Map.of(3, hash(999)));
+
+        assertEquals(OptionalInt.of(3), index.lookup(SALT, hash(103)));
+        assertEquals(OptionalInt.empty(), index.lookup(SALT, hash(999)));
+    }
+
+    @Test
+    void reloadsFromDiskAndDropsATornRecord() throws IOException {
+        manager().recordAll(SALT, Map.of(0, hash(100), 5, hash(105)));
+        try (var files = Files.list(dir)) {
+            Path file = files.findFirst().orElseThrow();
+            // A crash in the middle of the next record
+            Files.write(file, new byte[]{0, 0, 0, 9, 1, 2}, StandardOpenOption.APPEND);
+        }
+
+        AddressIndexManager reloaded = manager();
+        assertEquals(OptionalInt.of(0), reloaded.lookup(SALT, hash(100)));
+        assertEquals(OptionalInt.of(5), reloaded.lookup(SALT, hash(105)));
+        assertFalse(reloaded.isCovered(SALT, 9));
+
+        reloaded.recordAll(SALT, Map.of(9, hash(109)));
+        assertEquals(OptionalInt.of(9), manager().lookup(SALT, hash(109)));
+    }
+
+    private AddressIndexManager manager() {
+        AddressIndexManager manager = new AddressIndexManager();
+        manager.dataPath = dir.toString();
+        return manager;
+    }
+
+    private static String hash(int n) {
+        return "%064x".formatted(n);
+    }
+}
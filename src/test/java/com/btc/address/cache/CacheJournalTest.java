@@ -0,0 +1,120 @@
+package com.btc.address.cache;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Journal replay after a crash, and compaction racing the group-commit writer.
+ */
+class CacheJournalTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final Duration RARELY = Duration.ofHours(1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayMergesCompleteRecordsAndDropsTornTail() throws IOException {
+        Path wal = dir.resolve("test.wal");
+        CacheJournal journal = new CacheJournal(wal, NEVER, RARELY, () -> {});
+        journal.start();
+        // Same address unused then used, a second one used then (stale) unused, and a third unused
+        journal.append(records(digest(1), DigestTable.stamp(false, 1_000))).join();
+        journal.append(records(digest(2), DigestTable.stamp(true, 1_000))).join();
+        journal.append(records(digest(1), DigestTable.stamp(true, 2_000), digest(2), DigestTable.stamp(false, 3_000))).join();
+        journal.append(records(digest(3), DigestTable.stamp(false, 4_000))).join();
+        journal.append(records(digest(4), DigestTable.stamp(true, 5_000))).join();
+        journal.close();
+
+        // Crash in the middle of the last record
+        long complete = 5L * CacheFile.RECORD_BYTES;
+        try (FileChannel ch = FileChannel.open(wal, StandardOpenOption.WRITE)) {
+            ch.truncate(complete + CacheFile.RECORD_BYTES / 2);
+        }
+
+        DigestTable table = new DigestTable(0);
+        new CacheJournal(wal, NEVER, RARELY, () -> {}).replay(table);
+
+        assertEquals(3, table.size());
+        assertEquals(DigestTable.stamp(true, 2_000), table.get(digest(1), 0));
+        assertEquals(DigestTable.stamp(true, 1_000), table.get(digest(2), 0));
+        assertEquals(DigestTable.stamp(false, 4_000), table.get(digest(3), 0));
+        assertEquals(0, table.get(digest(4), 0));
+        assertEquals(complete, Files.size(wal), "torn record truncated");
+    }
+
+    @Test
+    void saveDuringAppendsLosesNothingOnCrash() throws Exception {
+        Timer timer = new SimpleMeterRegistry().timer("test");
+        CacheShard shard = CacheShard.open(dir, "address-cache-race", false, NEVER, RARELY, Runnable::run, timer, timer);
+        int writers = 4;
+        int perWriter = 2_000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int base = w * perWriter;
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int i = base; i < base + perWriter; i++) {
+                    CompletableFuture<Void> done = shard.apply(records(digest(i), DigestTable.stamp(true, 1_000 + i))).durable();
+                    synchronized (durable) {
+                        durable.add(done);
+                    }
+                }
+            }));
+        }
+        Thread saver = Thread.ofVirtual().start(() -> {
+            while (writing.get()) shard.save();
+        });
+        for (Thread t : threads) t.join();
+        writing.set(false);
+        saver.join();
+        CompletableFuture.allOf(durable.toArray(CompletableFuture[]::new)).join();
+
+        // Crash: the shard is never closed, so only what is on disk survives
+        DigestTable recovered = new DigestTable(0);
+        Path snapshot = dir.resolve("address-cache-race.bin");
+        if (Files.exists(snapshot)) {
+            MappedSnapshot mapped = MappedSnapshot.open(snapshot);
+            mapped.forEach(0, mapped.count(), recovered::merge);
+        }
+        new CacheJournal(dir.resolve("address-cache-race.wal"), NEVER, RARELY, () -> {}).replay(recovered);
+
+        for (int i = 0; i < writers * perWriter; i++) {
+            assertTrue(DigestTable.isUsed(recovered.get(digest(i), 0)), "entry " + i + " lost");
+        }
+        shard.close();
+    }
+
+    private static byte[] digest(int n) {
+        byte[] d = new byte[DigestTable.DIGEST_BYTES];
+        ByteBuffer.wrap(d).putInt(n).putInt(28, ~n);
+        return d;
+    }
+
+    private static ByteBuffer records(Object... digestsAndStamps) {
+        ByteBuffer buf = ByteBuffer.allocate(digestsAndStamps.length / 2 * CacheFile.RECORD_BYTES);
+        for (int i = 0; i < digestsAndStamps.length; i += 2) {
+            CacheFile.putRecord(buf, (byte[]) digestsAndStamps[i], (long) digestsAndStamps[i + 1]);
+        }
+        return buf.flip();
+    }
+}
@@ -0,0 +1,72 @@
+package com.btc.address.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DigestTableTest {
+
+    /** Entries that fit in 16 slots at the load factor. */
+    private static final int SMALL_LIMIT = 11;
+
+    @Test
+    void limitIsAboutHalfThePositiveIntRange() {
+        assertEquals(187_904_819, DigestTable.MAX_ENTRIES);
+    }
+
+    @Test
+    void fullTableRejectsNewDigestsButStillUpdatesKnownOnes() {
+        DigestTable table = new DigestTable(0, 16);
+        for (int i = 0; i < SMALL_LIMIT; i++) {
+            assertTrue(table.merge(digest(i), 0, DigestTable.stamp(false, 1_000)));
+        }
+
+        IllegalStateException full = assertThrows(IllegalStateException.class,
+                () -> table.merge(digest(SMALL_LIMIT), 0, DigestTable.stamp(true, 1_000)));
+        assertEquals("Cache shard is full: 11 entries at most", full.getMessage());
+        assertThrows(IllegalStateException.class, () -> table.put(digest(SMALL_LIMIT), 0, DigestTable.stamp(true, 1_000)));
+
+        assertTrue(table.merge(digest(3), 0, DigestTable.stamp(true, 2_000)));
+        table.put(digest(4), 0, DigestTable.stamp(true, 2_000));
+        assertFalse(table.merge(digest(3), 0, DigestTable.stamp(false, 3_000)));
+        assertEquals(SMALL_LIMIT, table.size());
+        assertEquals(DigestTable.stamp(true, 2_000), table.get(digest(3), 0));
+        assertEquals(0, table.get(digest(SMALL_LIMIT), 0));
+    }
+
+    @Test
+    void bulkMergeStopsAtTheLimit() {
+        DigestTable table = new DigestTable(0, 16);
+        long[] records = new long[(SMALL_LIMIT + 1) * 5];
+        for (int i = 0; i <= SMALL_LIMIT; i++) {
+            ByteBuffer d = ByteBuffer.wrap(digest(i));
+            for (int w = 0; w < 4; w++) records[i * 5 + w] = d.getLong();
+            records[i * 5 + 4] = DigestTable.stamp(true, 1_000);
+        }
+
+        assertThrows(IllegalStateException.class, () -> table.mergeAll(records, SMALL_LIMIT + 1));
+        assertEquals(SMALL_LIMIT, table.size());
+    }
+
+    @Test
+    void reservingPastTheLimitIsCapped() {
+        DigestTable table = new DigestTable(0, 16);
+        table.reserve(1_000_000);
+        for (int i = 0; i < SMALL_LIMIT; i++) table.put(digest(i), 0, DigestTable.stamp(true, 1_000));
+
+        assertEquals(SMALL_LIMIT, table.size());
+        assertEquals(SMALL_LIMIT, table.copy().size());
+    }
+
+    static byte[] digest(int n) {
+        byte[] digest = new byte[DigestTable.DIGEST_BYTES];
+        // Spread over the slots like SHA-256 output would be
+        ByteBuffer.wrap(digest).putLong(n * 0x9E3779B97F4A7C15L).putLong(n);
+        return digest;
+    }
+}
@@ -0,0 +1,104 @@
+package com.btc.address.cache;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Import of the legacy JSON cache (snapshot + line journal) into the binary snapshot at shard open.
+ */
+class JsonCacheMigrationTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final String USED = "a1".repeat(32);
+    private static final String UNUSED = "00b2".repeat(16);
+    private static final String FLIPPED = "c3".repeat(31) + "ff";
+    private static final String INVALID = "d4".repeat(8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void migratesUsedFlagsAndTimestamps() throws IOException {
+        Files.writeString(dir.resolve(JsonCacheMigration.LEGACY_SNAPSHOT), """
+                {
+                  "%s" : { "used" : true, "timestamp" : "2024-03-01T10:15:30.123Z" },
+                  "%s" : { "used" : false, "timestamp" : "2024-03-02T08:00:00Z" },
+                  "%s" : { "used" : false, "timestamp" : "2024-03-03T08:00:00Z" },
+                  "%s" : { "used" : true, "timestamp" : "2024-03-04T08:00:00Z" }
+                }
+                """.formatted(USED, UNUSED, FLIPPED, INVALID));
+        // The journal is newer than the snapshot; the last line was torn by a crash
+        Files.writeString(dir.resolve(JsonCacheMigration.LEGACY_JOURNAL), """
+                {"h":"%s","u":true,"t":"2024-03-05T12:00:00.5Z"}
+                {"h":"%s","u":tr""".formatted(FLIPPED, UNUSED));
+
+        CacheShard shard = open();
+        try {
+            assertStamps(shard::get);
+        } finally {
+            shard.close();
+        }
+
+        assertFalse(Files.exists(dir.resolve(JsonCacheMigration.LEGACY_SNAPSHOT)));
+        assertFalse(Files.exists(dir.resolve(JsonCacheMigration.LEGACY_JOURNAL)));
+        assertTrue(Files.exists(dir.resolve(JsonCacheMigration.LEGACY_SNAPSHOT + ".migrated")));
+        assertTrue(Files.exists(dir.resolve(JsonCacheMigration.LEGACY_JOURNAL + ".migrated")));
+
+        // What survives is the binary snapshot itself
+        MappedSnapshot snapshot = MappedSnapshot.open(dir.resolve("address-cache.bin"));
+        assertEquals(3, snapshot.count());
+        assertStamps(snapshot::get);
+
+        CacheShard reopened = open();
+        try {
+            assertStamps(reopened::get);
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void keepsLegacyFilesWhenTheyCannotBeRead() throws IOException {
+        Path legacy = dir.resolve(JsonCacheMigration.LEGACY_SNAPSHOT);
+        Files.writeString(legacy, "{ \"" + USED + "\" : { \"used\" : tru");
+
+        CacheShard shard = open();
+        shard.close();
+
+        assertTrue(Files.exists(legacy));
+        assertFalse(Files.exists(dir.resolve(JsonCacheMigration.LEGACY_SNAPSHOT + ".migrated")));
+        assertFalse(Files.exists(dir.resolve("address-cache.bin")));
+    }
+
+    private CacheShard open() {
+        Timer timer = new SimpleMeterRegistry().timer("test");
+        return CacheShard.open(dir, "address-cache", true, Long.MAX_VALUE, Duration.ofHours(1), Runnable::run, timer, timer);
+    }
+
+    private interface StampLookup {
+        long get(byte[] digest, int offset);
+    }
+
+    private static void assertStamps(StampLookup cache) {
+        assertEquals(stamp(true, "2024-03-01T10:15:30.123Z"), cache.get(HEX.parseHex(USED), 0));
+        assertEquals(stamp(false, "2024-03-02T08:00:00Z"), cache.get(HEX.parseHex(UNUSED), 0));
+        assertEquals(stamp(true, "2024-03-05T12:00:00.500Z"), cache.get(HEX.parseHex(FLIPPED), 0));
+    }
+
+    private static long stamp(boolean used, String timestamp) {
+        return DigestTable.stamp(used, Instant.parse(timestamp).toEpochMilli());
+    }
+}
@@ -0,0 +1,92 @@
+package com.btc.address.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Snapshots mapped in segments of a few records, so lookups and iteration cross segment boundaries.
+ */
+class MappedSnapshotTest {
+
+    private static final int ENTRIES = 100;
+    private static final int SEGMENT_RECORDS = 7;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsEveryRecordAcrossSegments() throws IOException {
+        DigestTable table = new DigestTable(0);
+        for (int i = 0; i < ENTRIES; i++) table.put(DigestTableTest.digest(i), 0, DigestTable.stamp(i % 2 == 0, 1_000 + i));
+        Path file = dir.resolve("snapshot.bin");
+        CacheFile.write(file, table.copy());
+
+        MappedSnapshot snapshot = MappedSnapshot.open(file, SEGMENT_RECORDS);
+
+        assertEquals(ENTRIES, snapshot.count());
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals(table.get(DigestTableTest.digest(i), 0), snapshot.get(DigestTableTest.digest(i), 0));
+        }
+        assertEquals(0, snapshot.get(DigestTableTest.digest(ENTRIES), 0));
+
+        List<long[]> sorted = new ArrayList<>();
+        table.copy().forEachSorted((k0, k1, k2, k3, stamp) -> sorted.add(new long[]{k0, k1, k2, k3, stamp}));
+        List<long[]> mapped = new ArrayList<>();
+        snapshot.forEach(5, 30, (k0, k1, k2, k3, stamp) -> mapped.add(new long[]{k0, k1, k2, k3, stamp}));
+        assertEquals(25, mapped.size());
+        for (int r = 0; r < mapped.size(); r++) assertTrue(Arrays.equals(sorted.get(5 + r), mapped.get(r)), "record " + (5 + r));
+    }
+
+    @Test
+    void emptySnapshotHasNoSegments() throws IOException {
+        Path file = dir.resolve("empty.bin");
+        CacheFile.write(file, new DigestTable(0));
+
+        MappedSnapshot snapshot = MappedSnapshot.open(file, SEGMENT_RECORDS);
+
+        assertEquals(0, snapshot.count());
+        assertEquals(0, snapshot.get(DigestTableTest.digest(1), 0));
+    }
+
+    @Test
+    void snapshotLargerThanAShardCanHoldIsRejected() throws IOException {
+        long count = DigestTable.MAX_ENTRIES + 1L;
+        // Sparse: only the header is written
+        Path file = header("huge.bin", count, CacheFile.HEADER_BYTES + count * CacheFile.RECORD_BYTES);
+
+        IOException e = assertThrows(IOException.class, () -> MappedSnapshot.open(file));
+        assertEquals("Cache snapshot holds 187904820 entries, more than the limit of 187904819", e.getMessage());
+    }
+
+    @Test
+    void countThatWouldOverflowTheSizeCheckIsRejected() throws IOException {
+        // count * RECORD_BYTES wraps around to 24
+        long count = 461_168_601_842_738_791L;
+        Path file = header("corrupt.bin", count, CacheFile.HEADER_BYTES + CacheFile.RECORD_BYTES);
+
+        IOException e = assertThrows(IOException.class, () -> MappedSnapshot.open(file));
+        assertEquals("Truncated cache snapshot", e.getMessage());
+    }
+
+    private Path header(String name, long count, long length) throws IOException {
+        Path file = dir.resolve(name);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.writeInt(CacheFile.MAGIC);
+            raf.writeInt(CacheFile.VERSION);
+            raf.writeLong(count);
+            raf.setLength(length);
+        }
+        return file;
+    }
+}
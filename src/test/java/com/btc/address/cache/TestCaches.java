@@ -0,0 +1,34 @@
+package com.btc.address.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cache managers for tests outside this package, configured as the container would.
+ */
+public final class TestCaches {
+
+    private TestCaches() {}
+
+    /** A cluster-mode cache in {@code dir} whose replication log holds {@code logRecords} changes. */
+    public static AddressCacheManager replicated(Path dir, int logRecords) {
+        AddressCacheManager manager = new AddressCacheManager();
+        manager.dataPath = dir.toString();
+        manager.registry = new SimpleMeterRegistry();
+        manager.compactionThreshold = Long.MAX_VALUE;
+        manager.compactionInterval = Duration.ofHours(1);
+        manager.asyncWarmup = false;
+        manager.clusterPeers = Optional.of(List.of("http://peer"));
+        manager.replicationLogRecords = logRecords;
+        manager.init();
+        return manager;
+    }
+
+    public static void close(AddressCacheManager manager) {
+        manager.shutdown();
+    }
+}
@@ -0,0 +1,109 @@
+package com.btc.address.qr;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QrCodeRendererTest {
+
+    private static final String CONTENT = "bitcoin:bc1qcr8te4kr609gcawutmrza0j4xv80jy8z306fyu";
+    private static final Pattern VIEW_BOX = Pattern.compile("viewBox=\"0 0 (\\d+) (\\d+)\"");
+    private static final Pattern RUN = Pattern.compile("M(\\d+) (\\d+)h(\\d+)v1h-\\3z");
+
+    private QrCodeRenderer renderer;
+
+    @BeforeEach
+    void start() {
+        renderer = new QrCodeRenderer(2);
+        renderer.pngScale = 4;
+    }
+
+    @Test
+    void pngDecodesBackToTheContent() throws Exception {
+        QrImage image = renderer.render(CONTENT, QrFormat.PNG);
+        BufferedImage png = ImageIO.read(new ByteArrayInputStream(image.bytes()));
+        int width = png.getWidth();
+        int height = png.getHeight();
+
+        // Quiet zone of 4 modules on each side, 4 pixels per module
+        assertEquals((matrix().getWidth() + 8) * 4, width);
+        assertEquals(width, height);
+        int[] pixels = png.getRGB(0, 0, width, height, null, 0, width);
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(width, height, pixels)));
+        assertEquals(CONTENT, new QRCodeReader().decode(bitmap).getText());
+        assertEquals("image/png", image.contentType());
+    }
+
+    @Test
+    void svgDrawsEveryDarkModuleOnce() {
+        ByteMatrix matrix = matrix();
+        String svg = new String(renderer.render(CONTENT, QrFormat.SVG).bytes(), StandardCharsets.US_ASCII);
+
+        Matcher viewBox = VIEW_BOX.matcher(svg);
+        assertTrue(viewBox.find());
+        assertEquals(matrix.getWidth() + 8, Integer.parseInt(viewBox.group(1)));
+        assertEquals(matrix.getHeight() + 8, Integer.parseInt(viewBox.group(2)));
+
+        boolean[][] drawn = new boolean[matrix.getHeight()][matrix.getWidth()];
+        Matcher run = RUN.matcher(svg);
+        while (run.find()) {
+            int y = Integer.parseInt(run.group(2)) - 4;
+            for (int x = Integer.parseInt(run.group(1)) - 4, end = x + Integer.parseInt(run.group(3)); x < end; x++) {
+                assertFalse(drawn[y][x], "module drawn twice");
+                drawn[y][x] = true;
+            }
+        }
+        int dark = 0;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                assertEquals(matrix.get(x, y) == 1, drawn[y][x], "module " + x + "," + y);
+                if (drawn[y][x]) dark++;
+            }
+        }
+        assertNotEquals(0, dark);
+    }
+
+    @Test
+    void recentRenderingsAreReusedAndTheEldestIsEvicted() {
+        QrImage svg = renderer.render(CONTENT, QrFormat.SVG);
+        QrImage png = renderer.render(CONTENT, QrFormat.PNG);
+        assertSame(svg, renderer.render(CONTENT, QrFormat.SVG));
+
+        // Capacity is two: the PNG is now the least recently used
+        renderer.render("bitcoin:bc1qjzlq5valhfsae4wg7zzfzljxq0vmgj838xyapf", QrFormat.SVG);
+        assertSame(svg, renderer.render(CONTENT, QrFormat.SVG));
+        QrImage rendered = renderer.render(CONTENT, QrFormat.PNG);
+        assertNotSame(png, rendered);
+        assertEquals(png.etag(), rendered.etag());
+    }
+
+    private static ByteMatrix matrix() {
+        try {
+            return Encoder.encode(CONTENT, ErrorCorrectionLevel.L, Map.of(EncodeHintType.CHARACTER_SET, "ISO-8859-1")).getMatrix();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.btc.address.resource;
+
+import com.btc.address.qr.QrCodeRenderer;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Variant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class AddressResourceTest {
+
+    private static final String ADDRESS = "bc1qcr8te4kr609gcawutmrza0j4xv80jy8z306fyu";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private final AddressResource resource = new AddressResource();
+
+    @BeforeEach
+    void start() {
+        resource.qrRenderer = new QrCodeRenderer(16);
+    }
+
+    @Test
+    void qrCarriesAStrongEtagAndMayBeCachedForever() {
+        Response response = resource.qr(ADDRESS, "svg", new ConditionalRequest(null));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("image/svg+xml", response.getMediaType().toString());
+        EntityTag etag = response.getEntityTag();
+        assertNotNull(etag);
+        assertFalse(etag.isWeak());
+        assertEquals(IMMUTABLE, cacheControl(response));
+
+        // Same address, same image, same tag
+        Response again = resource.qr(ADDRESS, "svg", new ConditionalRequest(null));
+        assertEquals(etag, again.getEntityTag());
+        assertArrayEquals((byte[]) response.getEntity(), (byte[]) again.getEntity());
+        assertNotEquals(etag, resource.qr(ADDRESS, "png", new ConditionalRequest(null)).getEntityTag());
+    }
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() {
+        EntityTag etag = resource.qr(ADDRESS, "png", new ConditionalRequest(null)).getEntityTag();
+
+        Response response = resource.qr(ADDRESS, "png", new ConditionalRequest(etag));
+
+        assertEquals(304, response.getStatus());
+        assertFalse(response.hasEntity());
+        assertEquals(etag, response.getEntityTag());
+        assertEquals(IMMUTABLE, cacheControl(response));
+    }
+
+    @Test
+    void invalidAddressOrFormatIsRejected() {
+        assertEquals(400, resource.qr("1BoatSLRHtKNngkdXEeobR76b53LETtpyT", "svg", new ConditionalRequest(null)).getStatus());
+        assertEquals(400, resource.qr(ADDRESS, "gif", new ConditionalRequest(null)).getStatus());
+    }
+
+    private static String cacheControl(Response response) {
+        return String.valueOf(response.getMetadata().getFirst(HttpHeaders.CACHE_CONTROL));
+    }
+
+    /** A GET carrying {@code If-None-Match}, evaluated with strong comparison like the server does. */
+    private record ConditionalRequest(EntityTag ifNoneMatch) implements Request {
+        @Override
+        public String getMethod() {
+            return "GET";
+        }
+
+        @Override
+        public Variant selectVariant(List<Variant> variants) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Response.ResponseBuilder evaluatePreconditions(EntityTag eTag) {
+            return eTag.equals(ifNoneMatch) ? Response.notModified(eTag) : null;
+        }
+
+        @Override
+        public Response.ResponseBuilder evaluatePreconditions(Date lastModified) {
+            return null;
+        }
+
+        @Override
+        public Response.ResponseBuilder evaluatePreconditions(Date lastModified, EntityTag eTag) {
+            return evaluatePreconditions(eTag);
+        }
+
+        @Override
+        public Response.ResponseBuilder evaluatePreconditions() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.btc.address.resource;
+
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.service.ClusterReplicator;
+import com.btc.address.wallet.WalletRegistry;
+
+/**
+ * {@link ClusterResource} wiring for tests outside this package.
+ */
+public final class TestClusterResources {
+
+    private TestClusterResources() {}
+
+    public static ClusterResource of(AddressCacheManager cacheManager, ClusterReplicator replicator, WalletRegistry wallets) {
+        ClusterResource resource = new ClusterResource();
+        resource.cacheManager = cacheManager;
+        resource.replicator = replicator;
+        resource.wallets = wallets;
+        return resource;
+    }
+}
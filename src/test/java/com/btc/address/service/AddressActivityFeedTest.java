@@ -0,0 +1,354 @@
+package com.btc.address.service;
+
+import com.btc.address.bitcoin.BIP84Deriver;
+import com.btc.address.blockchain.BlockchainChecker;
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.cache.WatermarkStore;
+import com.btc.address.resource.AddressData;
+import com.btc.address.wallet.TestWallets;
+import com.btc.address.wallet.Wallet;
+import com.btc.address.wallet.WalletRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bitcoinj.base.BitcoinNetwork;
+import org.bitcoinj.base.SegwitAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link AddressActivityFeed} against a stand-in Mempool-style WebSocket server on a local socket.
+ */
+class AddressActivityFeedTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String ZPUB = "zpub6rFR7y4Q2AijBEqTUquhVz398htDFrtymD9xYYfG1m4wAcvPhXNfE3EfH1r1ADqtfSdVCToUG868RvUUkgDKf31mGDtKsAYz2oz2AGutZYs";
+    private static final Wallet WALLET = TestWallets.wallet("feed", ZPUB);
+    /** The gap-limit window after the watermark: indices 5, 6 and 7. */
+    private static final List<AddressData> WINDOW = IntStream.rangeClosed(5, 7).mapToObj(AddressActivityFeedTest::addressData).toList();
+
+    private final Map<String, Boolean> cache = new ConcurrentHashMap<>();
+    private final Map<String, Integer> watermarks = new ConcurrentHashMap<>();
+    private final List<Integer> discarded = new CopyOnWriteArrayList<>();
+    /** Holds watermark writes back, like a slow disk. */
+    private CountDownLatch watermarkGate = new CountDownLatch(0);
+    /** Holds cache writes back, so pushed messages stay in flight. */
+    private CountDownLatch cacheGate = new CountDownLatch(0);
+    /** Counted down when a cache write starts. */
+    private final CountDownLatch cacheWriting = new CountDownLatch(1);
+    private FeedServer server;
+    private AddressActivityFeed feed;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new FeedServer();
+        feed = new AddressActivityFeed();
+        feed.url = Optional.of("ws://127.0.0.1:" + server.port() + "/api/v1/ws");
+        feed.maxAddresses = 200;
+        feed.reconnectDelay = Duration.ofSeconds(1);
+        feed.gapLimit = WINDOW.size();
+        feed.mapper = JSON;
+        feed.registry = new SimpleMeterRegistry();
+        feed.addressService = new AddressService() {
+            @Override
+            List<AddressData> lookaheadWindow(Wallet wallet) {
+                return WINDOW;
+            }
+
+            @Override
+            int afterWatermark(Wallet wallet, int startIndex) {
+                return WINDOW.getFirst().index();
+            }
+
+            @Override
+            int refreshAgingEntries(Wallet wallet, int start, int end, Duration minAge) {
+                return 0;
+            }
+        };
+        feed.addressPool = new AddressPool() {
+            @Override
+            void discard(String walletId, int index) {
+                discarded.add(index);
+            }
+        };
+        feed.cacheManager = new AddressCacheManager() {
+            @Override
+            public boolean isOpen(String walletId) {
+                return true;
+            }
+
+            @Override
+            public void addEntry(String walletId, String hash, boolean used) {
+                assertEquals(WALLET.id(), walletId);
+                cacheWriting.countDown();
+                try {
+                    cacheGate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                cache.put(hash, used);
+            }
+        };
+        feed.watermarks = new WatermarkStore() {
+            @Override
+            public int get(String walletId) {
+                return watermarks.getOrDefault(walletId, NONE);
+            }
+
+            @Override
+            public void advance(String walletId, int usedIndex) {
+                try {
+                    watermarkGate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                watermarks.merge(walletId, usedIndex, Math::max);
+            }
+        };
+        feed.wallets = new WalletRegistry() {
+            @Override
+            public Collection<Wallet> all() {
+                return List.of(WALLET);
+            }
+        };
+        feed.blockchainChecker = new BlockchainChecker() {
+            @Override
+            public int preferredBatchSize() {
+                return WINDOW.size();
+            }
+        };
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        watermarkGate.countDown();
+        cacheGate.countDown();
+        feed.shutdown();
+        server.close();
+    }
+
+    @Test
+    void pushedTransactionFlipsTheEntryToUsedAndAdvancesTheWatermark() throws Exception {
+        connect();
+        AddressData paid = WINDOW.get(1);
+
+        server.push("""
+                {"address-transactions": [{"txid": "%s",
+                  "vin": [{"prevout": {"scriptpubkey_address": "bc1qthirdpartyinput"}}],
+                  "vout": [{"scriptpubkey_address": "%s", "value": 15000}],
+                  "status": {"confirmed": false}}]}""".formatted("ab".repeat(32), paid.derived().address()));
+
+        await(() -> watermarks.containsKey(WALLET.id()));
+        assertEquals(paid.index(), watermarks.get(WALLET.id()));
+        assertEquals(Map.of(paid.hash(), true), cache);
+        assertEquals(List.of(paid.index()), discarded);
+        assertEquals(1.0, feed.registry.get("btc.feed.events").counter().count());
+    }
+
+    @Test
+    void slowWatermarkWriteDoesNotHoldBackLaterMessages() throws Exception {
+        watermarkGate = new CountDownLatch(1);
+        connect();
+        AddressData first = WINDOW.get(0);
+        AddressData second = WINDOW.get(2);
+
+        server.push(multiAddressFrame(first));
+        server.push(multiAddressFrame(second));
+
+        // Both frames reach the cache while the first one is still writing its watermark
+        await(() -> cache.size() == 2);
+        assertEquals(Map.of(first.hash(), true, second.hash(), true), cache);
+        assertTrue(watermarks.isEmpty());
+
+        watermarkGate.countDown();
+        await(() -> watermarks.getOrDefault(WALLET.id(), -1) == second.index());
+    }
+
+    @Test
+    void nothingIsVouchedForWhileAPushIsBeingHandled() throws Exception {
+        cacheGate = new CountDownLatch(1);
+        connect();
+        AddressData paid = WINDOW.get(1);
+        long handled = feed.handledMessages();
+        assertTrue(feed.covers(WALLET.id(), paid.hash(), Long.MAX_VALUE, handled));
+
+        server.push(multiAddressFrame(paid));
+        assertTrue(cacheWriting.await(5, TimeUnit.SECONDS));
+        // The entry a scan just read as unused may be about to flip
+        assertFalse(feed.covers(WALLET.id(), paid.hash(), Long.MAX_VALUE, handled));
+        assertFalse(feed.covers(WALLET.id(), WINDOW.get(0).hash(), Long.MAX_VALUE, feed.handledMessages()));
+
+        cacheGate.countDown();
+        await(() -> feed.handledMessages() == handled + 1);
+        assertEquals(Map.of(paid.hash(), true), cache);
+        // Read before the push was handled: stale
+        assertFalse(feed.covers(WALLET.id(), paid.hash(), Long.MAX_VALUE, handled));
+        // Read after: the entry is up to date again
+        assertTrue(feed.covers(WALLET.id(), WINDOW.get(0).hash(), Long.MAX_VALUE, feed.handledMessages()));
+    }
+
+    /** Waits for the feed's subscription and checks it covers the window. */
+    private void connect() throws Exception {
+        feed.onStart(null);
+        String subscription = server.received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(subscription, "no track-addresses message");
+        List<String> tracked = new ArrayList<>();
+        JSON.readTree(subscription).path("track-addresses").forEach(a -> tracked.add(a.asText()));
+        assertEquals(WINDOW.stream().map(d -> d.derived().address()).toList(), tracked);
+        // Subscribed once the feed vouches for the window
+        await(() -> feed.covers(WALLET.id(), WINDOW.getFirst().hash(), Long.MAX_VALUE, feed.handledMessages()));
+    }
+
+    private static String multiAddressFrame(AddressData paid) throws IOException {
+        JsonNode txs = JSON.readTree("""
+                {"mempool": [{"txid": "%s"}], "confirmed": [], "removed": []}""".formatted("cd".repeat(32)));
+        return JSON.writeValueAsString(Map.of("multi-address-transactions", Map.of(paid.derived().address(), txs)));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private static AddressData addressData(int index) {
+        byte[] program = new byte[20];
+        Arrays.fill(program, (byte) index);
+        String address = SegwitAddress.fromProgram(BitcoinNetwork.MAINNET, 0, program).toString();
+        String hash = HexFormat.of().formatHex(sha256(address));
+        return new AddressData(index, new BIP84Deriver.DerivedAddress(address, "02" + "00".repeat(32), index), hash);
+    }
+
+    private static byte[] sha256(String s) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** One-connection WebSocket server (RFC 6455): records text frames from the client and pushes its own. */
+    private static final class FeedServer implements AutoCloseable {
+        private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        private final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private volatile Socket client;
+
+        FeedServer() throws IOException {
+            Thread.ofVirtual().start(this::serve);
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        synchronized void push(String text) throws IOException {
+            byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+            OutputStream out = client.getOutputStream();
+            out.write(0x81); // FIN, text
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else {
+                out.write(126);
+                out.write(payload.length >>> 8);
+                out.write(payload.length & 0xFF);
+            }
+            out.write(payload);
+            out.flush();
+        }
+
+        private void serve() {
+            try (Socket s = server.accept()) {
+                InputStream in = s.getInputStream();
+                String key = null;
+                for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                    if (line.toLowerCase().startsWith("sec-websocket-key:")) key = line.substring(18).trim();
+                }
+                String accept = Base64.getEncoder().encodeToString(
+                        MessageDigest.getInstance("SHA-1").digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII)));
+                s.getOutputStream().write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                        + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                s.getOutputStream().flush();
+                client = s;
+                readFrames(new DataInputStream(in));
+            } catch (IOException | NoSuchAlgorithmException _) {
+                // Closed by the test
+            }
+        }
+
+        /** Client frames are always masked. */
+        private void readFrames(DataInputStream in) throws IOException {
+            while (true) {
+                int head = in.readUnsignedByte();
+                int second = in.readUnsignedByte();
+                long length = second & 0x7F;
+                if (length == 126) length = in.readUnsignedShort();
+                else if (length == 127) length = in.readLong();
+                byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) in.readFully(mask);
+                byte[] payload = new byte[(int) length];
+                in.readFully(payload);
+                for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i & 3];
+                int opcode = head & 0x0F;
+                if (opcode == 0x8) return;
+                if (opcode == 0x1) received.add(new String(payload, StandardCharsets.UTF_8));
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            for (int b = in.read(); b != '\n'; b = in.read()) {
+                if (b < 0) throw new IOException("Connection closed during the handshake");
+                if (b != '\r') line.write(b);
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            Socket s = client;
+            if (s != null) s.close();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.btc.address.service;
+
+import com.btc.address.blockchain.BlockchainChecker;
+import com.btc.address.resource.NextAddressResult;
+import com.btc.address.wallet.TestWallets;
+import com.btc.address.wallet.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link AddressPool} over a stand-in scan where every index of the window is unused.
+ */
+class AddressPoolTest {
+
+    private static final int WINDOW = 20;
+    private static final Wallet WALLET = TestWallets.wallet("shop",
+            "zpub6rFR7y4Q2AijBEqTUquhVz398htDFrtymD9xYYfG1m4wAcvPhXNfE3EfH1r1ADqtfSdVCToUG868RvUUkgDKf31mGDtKsAYz2oz2AGutZYs");
+
+    /** Indices scanned so far by refills. */
+    private final AtomicInteger scanned = new AtomicInteger();
+    /** Counted down when a scan starts. */
+    private final CountDownLatch scanning = new CountDownLatch(1);
+    /** Holds scans back until the test lets them answer. */
+    private volatile CountDownLatch scanGate = new CountDownLatch(0);
+    private AddressPool pool;
+
+    @BeforeEach
+    void start() {
+        pool = new AddressPool();
+        pool.size = WINDOW;
+        pool.gapLimit = WINDOW;
+        pool.reservations = new AddressReservations();
+        pool.reservations.ttl = Duration.ZERO;
+        pool.blockchainChecker = new BlockchainChecker() {
+            @Override
+            public int preferredBatchSize() {
+                return WINDOW;
+            }
+
+            @Override
+            public Map<String, Boolean> checkAddressesBatch(List<String> addresses) {
+                throw new AssertionError("refills go through the scan");
+            }
+        };
+        pool.addressService = new AddressService() {
+            @Override
+            int afterWatermark(Wallet wallet, int startIndex) {
+                return startIndex;
+            }
+
+            @Override
+            List<NextAddressResult> findUnusedInRange(Wallet wallet, int start, int end) {
+                scanning.countDown();
+                await(scanGate);
+                List<NextAddressResult> found = IntStream.range(start, end).mapToObj(AddressPoolTest::result).toList();
+                scanned.addAndGet(end - start);
+                return found;
+            }
+        };
+    }
+
+    @Test
+    void concurrentTakesNeverShareAnAddress() throws Exception {
+        fill();
+        pool.reservations.ttl = Duration.ofMinutes(1);
+        int callers = 16;
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Optional<NextAddressResult>>> takes = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                takes.add(threads.submit(() -> {
+                    go.await();
+                    return pool.take(WALLET, 0);
+                }));
+            }
+            go.countDown();
+
+            Set<Integer> handedOut = new HashSet<>();
+            for (Future<Optional<NextAddressResult>> take : takes) {
+                handedOut.add(take.get(5, TimeUnit.SECONDS).orElseThrow().index());
+            }
+            assertEquals(callers, handedOut.size());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void withoutReservationsTheFirstAddressStaysPooled() throws InterruptedException {
+        fill();
+
+        assertEquals(0, pool.take(WALLET, 0).orElseThrow().index());
+        assertEquals(0, pool.take(WALLET, 0).orElseThrow().index());
+        assertEquals(5, pool.take(WALLET, 5).orElseThrow().index());
+    }
+
+    @Test
+    void pushedUsedAddressIsNotHandedOut() throws InterruptedException {
+        fill();
+
+        pool.discard(WALLET.id(), 0);
+
+        assertEquals(1, pool.take(WALLET, 0).orElseThrow().index());
+    }
+
+    @Test
+    void refillDoesNotPutBackAnAddressPushedUsedWhileItWasScanning() throws InterruptedException {
+        scanGate = new CountDownLatch(1);
+        assertEquals(Optional.empty(), pool.take(WALLET, 0));
+        await(scanning);
+
+        // The scan saw index 0 unused, then the feed pushed it used before the refill stored it
+        pool.discard(WALLET.id(), 0);
+        scanGate.countDown();
+        waitFor(() -> scanned.get() == WINDOW);
+        waitFor(() -> pool.take(WALLET, 0).isPresent());
+
+        assertEquals(1, pool.take(WALLET, 0).orElseThrow().index());
+    }
+
+    /** Runs the first refill, with reservations still disabled so looking at the pool leaves it as is. */
+    private void fill() throws InterruptedException {
+        // The first take creates the pool and starts the refill
+        pool.take(WALLET, 0);
+        waitFor(() -> scanned.get() == WINDOW);
+        waitFor(() -> pool.take(WALLET, WINDOW - 1).filter(r -> r.index() == WINDOW - 1).isPresent());
+    }
+
+    private static NextAddressResult result(int index) {
+        return new NextAddressResult("address-" + index, null, index, null, null, WALLET.indexSalt(), "hash-" + index);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
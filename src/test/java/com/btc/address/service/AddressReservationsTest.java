@@ -0,0 +1,75 @@
+package com.btc.address.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AddressReservationsTest {
+
+    private static final String ADDRESS = "bc1qcr8te4kr609gcawutmrza0j4xv80jy8z306fyu";
+
+    private final AddressReservations reservations = new AddressReservations();
+
+    @Test
+    void reservationHoldsUntilTheTtlExpires() throws InterruptedException {
+        reservations.ttl = Duration.ofMillis(100);
+
+        assertTrue(reservations.tryReserve(ADDRESS));
+        assertTrue(reservations.isReserved(ADDRESS));
+        assertFalse(reservations.tryReserve(ADDRESS));
+
+        Thread.sleep(150);
+        assertFalse(reservations.isReserved(ADDRESS));
+        assertTrue(reservations.tryReserve(ADDRESS));
+    }
+
+    @Test
+    void concurrentCallersGetTheAddressOnce() throws Exception {
+        reservations.ttl = Duration.ofMinutes(1);
+        int callers = 16;
+        CountDownLatch ready = new CountDownLatch(callers);
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Boolean>> claims = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                claims.add(pool.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return reservations.tryReserve(ADDRESS);
+                }));
+            }
+            assertTrue(ready.await(5, TimeUnit.SECONDS));
+            go.countDown();
+
+            int won = 0;
+            for (Future<Boolean> claim : claims) {
+                if (claim.get(5, TimeUnit.SECONDS)) won++;
+            }
+            assertEquals(1, won);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void zeroTtlDisablesReservations() {
+        reservations.ttl = Duration.ZERO;
+
+        assertFalse(reservations.isEnabled());
+        assertTrue(reservations.tryReserve(ADDRESS));
+        assertTrue(reservations.tryReserve(ADDRESS));
+        assertFalse(reservations.isReserved(ADDRESS));
+    }
+}
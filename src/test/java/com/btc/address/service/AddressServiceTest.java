@@ -0,0 +1,337 @@
+package com.btc.address.service;
+
+import com.btc.address.bitcoin.BIP84Deriver;
+import com.btc.address.blockchain.BlockchainChecker;
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.cache.AddressIndexManager;
+import com.btc.address.cache.CachedStatus;
+import com.btc.address.cache.WatermarkStore;
+import com.btc.address.resource.NextAddressResult;
+import com.btc.address.wallet.TestWallets;
+import com.btc.address.wallet.Wallet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link AddressService} scans over an in-memory cache and a stand-in provider that knows which indices are used.
+ */
+class AddressServiceTest {
+
+    private static final String ZPUB = "zpub6rFR7y4Q2AijBEqTUquhVz398htDFrtymD9xYYfG1m4wAcvPhXNfE3EfH1r1ADqtfSdVCToUG868RvUUkgDKf31mGDtKsAYz2oz2AGutZYs";
+    private static final int BATCH = 5;
+    private static final int GAP_LIMIT = 20;
+    /** Index of each of the wallet's first addresses. */
+    private static final Map<String, Integer> INDICES = new HashMap<>();
+
+    static {
+        TestWallets.wallet("indices", ZPUB).chain().deriveRange(0, 100).forEach(d -> INDICES.put(d.address(), d.index()));
+    }
+
+    private final Wallet wallet = TestWallets.wallet("shop", ZPUB);
+    private final Map<String, CachedStatus> cache = new ConcurrentHashMap<>();
+    private final Map<String, Integer> watermarks = new ConcurrentHashMap<>();
+    /** Addresses of each provider call, in call order. */
+    private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+    /** Which indices are used on chain. */
+    private volatile IntPredicate used = _ -> false;
+    /** Runs at the start of each provider call, with the call's indices. */
+    private volatile Consumer<List<Integer>> onCall = _ -> {};
+    private AddressService service;
+
+    @BeforeEach
+    void start() {
+        service = new AddressService();
+        service.gapLimit = GAP_LIMIT;
+        service.unusedTtl = Duration.ZERO;
+        service.watermarkEnabled = true;
+        service.maxProbes = 4;
+        service.maxVerifyCeiling = 100000;
+        service.pipelineDepth = 2;
+        service.maxOutstandingRequests = 1;
+        service.registry = new SimpleMeterRegistry();
+        service.reservations = new AddressReservations();
+        service.reservations.ttl = Duration.ZERO;
+        service.blockchainChecker = new BlockchainChecker() {
+            @Override
+            public int preferredBatchSize() {
+                return BATCH;
+            }
+
+            @Override
+            public Map<String, Boolean> checkAddressesBatch(List<String> addresses) {
+                calls.add(List.copyOf(addresses));
+                onCall.accept(addresses.stream().map(INDICES::get).toList());
+                Map<String, Boolean> usage = new HashMap<>();
+                addresses.forEach(a -> usage.put(a, used.test(INDICES.get(a))));
+                return usage;
+            }
+        };
+        service.cacheManager = new AddressCacheManager() {
+            @Override
+            public Map<String, CachedStatus> getEntries(String walletId, Iterable<String> hashes) {
+                Map<String, CachedStatus> found = new HashMap<>();
+                hashes.forEach(h -> {
+                    CachedStatus status = cache.get(h);
+                    if (status != null) found.put(h, status);
+                });
+                return found;
+            }
+
+            @Override
+            public void addEntries(String walletId, Map<String, Boolean> newEntries) {
+                long now = System.currentTimeMillis();
+                newEntries.forEach((h, used) -> cache.merge(h, new CachedStatus(used, now),
+                        (old, fresh) -> old.used() ? old : fresh));
+            }
+        };
+        service.addressIndex = new AddressIndexManager() {
+            @Override
+            public OptionalInt lookup(String salt, String hash) {
+                return OptionalInt.empty();
+            }
+
+            @Override
+            public boolean isCovered(String salt, int index) {
+                return false;
+            }
+
+            @Override
+            public void recordAll(String salt, Map<Integer, String> entries) {
+            }
+        };
+        service.addressPool = new AddressPool() {
+            @Override
+            public Optional<NextAddressResult> take(Wallet wallet, int startIndex) {
+                return Optional.empty();
+            }
+        };
+        service.watermarks = new WatermarkStore() {
+            @Override
+            public int get(String walletId) {
+                return watermarks.getOrDefault(walletId, NONE);
+            }
+
+            @Override
+            public void advance(String walletId, int usedIndex) {
+                watermarks.merge(walletId, usedIndex, Math::max);
+            }
+        };
+        service.activityFeed = new AddressActivityFeed() {
+            @Override
+            boolean covers(String walletId, String hash, long checkedAtMillis, long handledBefore) {
+                return false;
+            }
+        };
+        service.initMetrics();
+    }
+
+    @AfterEach
+    void stop() {
+        service.shutdown();
+    }
+
+    @Test
+    void uncachedStartCostsOneProviderCall() {
+        usedBelow(3);
+
+        assertEquals(3, service.findNextUnusedAddress(wallet, 0, null).index());
+        assertEquals(List.of(addresses(0, BATCH)), calls);
+        assertEquals(0, probes());
+    }
+
+    @Test
+    void usedRunShorterThanMaxProbesIsBinarySearched() {
+        usedBelow(3);
+        cacheUsed(0, wallet.indexSalt());
+
+        // Probes 2 (used) and 6 (unused), then 4 and 3 between them
+        assertEquals(3, service.findNextUnusedAddress(wallet, 0, null).index());
+        assertEquals(4, probes());
+        assertEquals(List.of(addresses(2, 3), addresses(6, 7), addresses(4, 5), addresses(3, 4), addresses(3, 3 + BATCH)), calls);
+    }
+
+    @Test
+    void usedRunAsLongAsMaxProbesIsBinarySearched() {
+        usedBelow(4);
+        cacheUsed(0, wallet.indexSalt());
+
+        assertEquals(4, service.findNextUnusedAddress(wallet, 0, null).index());
+        assertEquals(4, probes());
+    }
+
+    @Test
+    void usedRunBeyondTheLastProbeIsScannedOnFromThere() {
+        usedBelow(30);
+        cacheUsed(0, wallet.indexSalt());
+
+        // Probes 2, 6 and 14 are all used: the scan takes over at 15
+        assertEquals(30, service.findNextUnusedAddress(wallet, 0, null).index());
+        assertEquals(3, probes());
+        assertEquals(addresses(15, 15 + BATCH), calls.get(3));
+    }
+
+    @Test
+    void noGallopWithoutTheWatermark() {
+        service.watermarkEnabled = false;
+        usedBelow(3);
+        cacheUsed(0, wallet.indexSalt());
+
+        assertEquals(3, service.findNextUnusedAddress(wallet, 0, null).index());
+        assertEquals(0, probes());
+        assertEquals(List.of(addresses(1, BATCH)), calls);
+    }
+
+    @Test
+    void saltedScanGallopsOverItsOwnCacheEntries() {
+        usedBelow(4);
+        cacheUsed(0, "custom");
+
+        NextAddressResult next = service.findNextUnusedAddress(wallet, 0, "custom");
+
+        assertEquals(4, next.index());
+        assertEquals("custom", next.salt());
+        assertEquals(4, probes());
+        // Probe results are cached under the scan's salt
+        assertTrue(cache.get(hash(2, "custom")).used());
+    }
+
+    @Test
+    void concurrentCallsOnTheSameWindowShareOneProviderCall() throws Exception {
+        service.reservations.ttl = Duration.ofMinutes(1);
+        CountDownLatch release = new CountDownLatch(1);
+        onCall = _ -> await(release);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<NextAddressResult> first = callers.submit(() -> service.findNextUnusedAddress(wallet, 0, null));
+            Future<NextAddressResult> second = callers.submit(() -> service.findNextUnusedAddress(wallet, 0, null));
+            waitFor(() -> calls.size() == 1);
+            // Give the second caller time to join the batch already in flight
+            Thread.sleep(200);
+            release.countDown();
+
+            // Reservations still hand each caller its own address
+            assertEquals(Set.of(0, 1), Set.of(first.get(5, TimeUnit.SECONDS).index(), second.get(5, TimeUnit.SECONDS).index()));
+            assertEquals(List.of(addresses(0, BATCH)), calls);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void laterBatchAnsweringFirstDoesNotWinOverALowerIndex() {
+        service.maxOutstandingRequests = 2;
+        used = i -> i != 3 && i != 7;
+        CountDownLatch laterAnswered = new CountDownLatch(1);
+        onCall = indices -> {
+            if (indices.contains(0)) await(laterAnswered);
+        };
+        service.blockchainChecker = countingDown(service.blockchainChecker, 5, laterAnswered);
+
+        assertEquals(3, service.findNextUnusedAddress(wallet, 0, null).index());
+        assertEquals(Set.of(addresses(0, 5), addresses(5, 10)), Set.copyOf(calls));
+    }
+
+    @Test
+    void oneOutstandingRequestChecksBatchesInIndexOrder() {
+        service.pipelineDepth = 3;
+        usedBelow(7);
+
+        assertEquals(7, service.findNextUnusedAddress(wallet, 0, null).index());
+        assertEquals(List.of(addresses(0, 5), addresses(5, 10)), calls);
+    }
+
+    @Test
+    void bulkScanStopsOnceEnoughAddressesWereFound() {
+        service.pipelineDepth = 3;
+        usedBelow(2);
+        List<Integer> found = new ArrayList<>();
+
+        assertEquals(2, service.streamUnusedAddresses(wallet, 0, null, 2, false, r -> found.add(r.index())));
+        assertEquals(List.of(2, 3), found);
+        // Batches derived ahead are dropped without a provider call
+        assertEquals(List.of(addresses(0, 5)), calls);
+    }
+
+    private void usedBelow(int index) {
+        used = i -> i < index;
+    }
+
+    /** Counts {@code latch} down once the call containing {@code index} has been answered. */
+    private static BlockchainChecker countingDown(BlockchainChecker checker, int index, CountDownLatch latch) {
+        return new BlockchainChecker() {
+            @Override
+            public int preferredBatchSize() {
+                return checker.preferredBatchSize();
+            }
+
+            @Override
+            public Map<String, Boolean> checkAddressesBatch(List<String> addresses) {
+                Map<String, Boolean> usage = checker.checkAddressesBatch(addresses);
+                if (addresses.contains(address(index))) latch.countDown();
+                return usage;
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private double probes() {
+        return service.registry.get("btc.scan.probes").counter().count();
+    }
+
+    private void cacheUsed(int index, String salt) {
+        cache.put(hash(index, salt), new CachedStatus(true, System.currentTimeMillis()));
+    }
+
+    private String hash(int index, String salt) {
+        return BIP84Deriver.generateHash(address(index), salt);
+    }
+
+    private static String address(int index) {
+        return INDICES.entrySet().stream().filter(e -> e.getValue() == index).findFirst().orElseThrow().getKey();
+    }
+
+    private static List<String> addresses(int from, int to) {
+        return IntStream.range(from, to).mapToObj(AddressServiceTest::address).toList();
+    }
+}
@@ -0,0 +1,263 @@
+package com.btc.address.service;
+
+import com.btc.address.cache.AddressCacheManager;
+import com.btc.address.cache.TestCaches;
+import com.btc.address.resource.ClusterResource;
+import com.btc.address.resource.TestClusterResources;
+import com.btc.address.wallet.TestWallets;
+import com.btc.address.wallet.Wallet;
+import com.btc.address.wallet.WalletRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Two replicas in one process, each with its own cache, replication log, {@link ClusterResource} (served over
+ * a local HTTP server) and {@link ClusterReplicator} pulling from the other through a shared peer list.
+ * <p>
+ * Replicas share no state in memory: each has its own data directory and epoch, and every pull goes
+ * through the replicator's HTTP client to the peer's loopback port and back through the resource, with the
+ * token header and the binary formats of a real deployment. Separate JVMs would add process start-up, not
+ * coverage; a restart is a new cache and replicator on the same directory, which is what a new process gets.
+ * Only the JAX-RS routing is replaced by {@link Replica#handle}.
+ */
+class ClusterReplicatorTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String TOKEN = "s3cret";
+    private static final int BATCH = 4;
+    private static final int LOG_RECORDS = 16;
+    private static final Wallet WALLET = TestWallets.wallet("shop",
+            "zpub6rFR7y4Q2AijBEqTUquhVz398htDFrtymD9xYYfG1m4wAcvPhXNfE3EfH1r1ADqtfSdVCToUG868RvUUkgDKf31mGDtKsAYz2oz2AGutZYs");
+    private static final WalletRegistry WALLETS = new WalletRegistry() {
+        @Override
+        public Collection<Wallet> all() {
+            return List.of(WALLET);
+        }
+
+        @Override
+        public Optional<Wallet> find(String id) {
+            return WALLET.id().equals(id) ? Optional.of(WALLET) : Optional.empty();
+        }
+    };
+    private static final String POSITION = "/api/cluster/position 200";
+    private static final String SNAPSHOT = "/api/cluster/snapshot/shop 200";
+    private static final String CHANGES = "/api/cluster/changes 200";
+    private static final String EXPIRED = "/api/cluster/changes 410";
+
+    @TempDir
+    Path dir;
+
+    private Replica a;
+    private Replica b;
+
+    @BeforeEach
+    void start() throws IOException {
+        a = new Replica(dir.resolve("a"));
+        b = new Replica(dir.resolve("b"));
+        a.start();
+        b.start();
+    }
+
+    @AfterEach
+    void stop() {
+        a.close();
+        b.close();
+    }
+
+    @Test
+    void bootstrapThenIncrementalChanges() {
+        a.cache.addEntries(WALLET.id(), Map.of(hash(1), true, hash(2), false));
+        b.cache.addEntries(WALLET.id(), Map.of(hash(3), true));
+
+        a.replicator.pull();
+        b.replicator.pull();
+
+        Map<String, Boolean> expected = Map.of(hash(1), true, hash(2), false, hash(3), true);
+        assertEquals(expected, a.status(1, 2, 3));
+        assertEquals(expected, b.status(1, 2, 3));
+        assertEquals(List.of(POSITION, SNAPSHOT, CHANGES), a.served);
+        assertEquals(List.of(POSITION, SNAPSHOT, CHANGES), b.served);
+        // Merged peer changes are not logged again, or replicas would echo each other
+        assertEquals(2, a.cache.replicationPosition().sequence());
+        assertEquals(1, b.cache.replicationPosition().sequence());
+
+        a.served.clear();
+        Map<String, Boolean> changes = new HashMap<>(Map.of(hash(2), true));
+        IntStream.rangeClosed(4, 9).forEach(i -> changes.put(hash(i), false));
+        a.cache.addEntries(WALLET.id(), changes);
+        b.replicator.pull();
+
+        // Seven changes from the cursor, in batches of four, and no snapshot
+        assertEquals(List.of(CHANGES, CHANGES), a.served);
+        assertEquals(changes, b.status(2, 4, 5, 6, 7, 8, 9));
+    }
+
+    @Test
+    void cursorOverwrittenByTheRingBootstrapsAgain() {
+        a.cache.addEntries(WALLET.id(), Map.of(hash(1), true));
+        b.replicator.pull();
+        a.served.clear();
+
+        // More changes than the log holds: the oldest ones B has not pulled are gone
+        Map<String, Boolean> burst = new HashMap<>();
+        IntStream.range(100, 100 + LOG_RECORDS + 4).forEach(i -> burst.put(hash(i), i % 2 == 0));
+        a.cache.addEntries(WALLET.id(), burst);
+
+        b.replicator.pull();
+        assertEquals(List.of(EXPIRED), a.served);
+        assertEquals(Map.of(), b.status(100, 101));
+
+        b.replicator.pull();
+        assertEquals(List.of(EXPIRED, POSITION, SNAPSHOT, CHANGES), a.served);
+        assertEquals(burst, b.status(IntStream.range(100, 100 + LOG_RECORDS + 4).toArray()));
+        assertEquals(Map.of(hash(1), true), b.status(1));
+    }
+
+    @Test
+    void restartedPeerIsBootstrappedAgain() {
+        a.cache.addEntries(WALLET.id(), Map.of(hash(1), true, hash(2), false));
+        b.replicator.pull();
+        long epoch = a.cache.replicationPosition().epoch();
+
+        a.restart();
+        // Enough new changes that B's old cursor is a valid sequence in the new log: only the epoch tells
+        a.cache.addEntries(WALLET.id(), Map.of(hash(3), true, hash(4), false, hash(5), true));
+        assertEquals(3, a.cache.replicationPosition().sequence());
+        assertNotEquals(epoch, a.cache.replicationPosition().epoch());
+        a.served.clear();
+
+        b.replicator.pull();
+        assertEquals(List.of(EXPIRED), a.served);
+
+        b.replicator.pull();
+        assertEquals(List.of(EXPIRED, POSITION, SNAPSHOT, CHANGES), a.served);
+        assertEquals(Map.of(hash(1), true, hash(2), false, hash(3), true, hash(4), false, hash(5), true),
+                b.status(1, 2, 3, 4, 5));
+    }
+
+    private static String hash(int n) {
+        return "%064x".formatted(n);
+    }
+
+    /** One replica: its HTTP endpoint outlives restarts of its cache and replicator. */
+    private final class Replica implements AutoCloseable {
+        final Path dataDir;
+        final HttpServer server;
+        /** Requests served, as "path status". */
+        final List<String> served = new CopyOnWriteArrayList<>();
+        AddressCacheManager cache;
+        ClusterReplicator replicator;
+        volatile ClusterResource resource;
+
+        Replica(Path dataDir) throws IOException {
+            this.dataDir = Files.createDirectories(dataDir);
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/api/cluster", this::handle);
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        /** Every replica gets the same peer list and finds itself in it through {@code bitcoin.cluster.self}. */
+        void start() {
+            cache = TestCaches.replicated(dataDir, LOG_RECORDS);
+            replicator = new ClusterReplicator();
+            replicator.cacheManager = cache;
+            replicator.wallets = WALLETS;
+            replicator.mapper = JSON;
+            replicator.registry = new SimpleMeterRegistry();
+            replicator.peers = Optional.of(List.of(a.url() + "/", b.url()));
+            replicator.self = Optional.of(url());
+            replicator.token = Optional.of(TOKEN);
+            replicator.batchRecords = BATCH;
+            replicator.timeout = Duration.ofSeconds(5);
+            replicator.onStart(null);
+            resource = TestClusterResources.of(cache, replicator, WALLETS);
+        }
+
+        /** A new process on the same data directory: new epoch, empty log. */
+        void restart() {
+            TestCaches.close(cache);
+            start();
+        }
+
+        Map<String, Boolean> status(int... hashes) {
+            return cache.getMultiStatus(WALLET.id(), IntStream.of(hashes).mapToObj(ClusterReplicatorTest::hash).toList());
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = new HashMap<>();
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery != null) {
+                for (String pair : rawQuery.split("&")) {
+                    int eq = pair.indexOf('=');
+                    query.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+            String token = exchange.getRequestHeaders().getFirst(ClusterReplicator.TOKEN_HEADER);
+            int status = 200;
+            byte[] body = new byte[0];
+            try {
+                if (path.equals("/api/cluster/position")) {
+                    body = JSON.writeValueAsBytes(resource.position(token));
+                } else if (path.equals("/api/cluster/changes")) {
+                    Response response = resource.changes(token, Long.parseLong(query.get("epoch")),
+                            Long.parseLong(query.get("since")), Integer.parseInt(query.get("max")));
+                    status = response.getStatus();
+                    if (response.hasEntity()) body = (byte[]) response.getEntity();
+                } else if (path.startsWith("/api/cluster/snapshot/")) {
+                    Response response = resource.snapshot(token, path.substring("/api/cluster/snapshot/".length()));
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    ((StreamingOutput) response.getEntity()).write(out);
+                    body = out.toByteArray();
+                } else {
+                    status = 404;
+                }
+            } catch (WebApplicationException e) {
+                status = e.getResponse().getStatus();
+            }
+            served.add(path + " " + status);
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            TestCaches.close(cache);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.btc.address.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, Object> flights = new SingleFlight<>();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void concurrentCallersShareOneRun() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object value = new Object();
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> flights.run("batch", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            await(release);
+            return value;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> flights.run("batch", () -> {
+            runs.incrementAndGet();
+            return new Object();
+        }));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertSame(value, first.get(5, TimeUnit.SECONDS));
+        assertSame(value, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void differentKeysRunSeparately() {
+        flights.run("a", runs::incrementAndGet);
+        flights.run("b", runs::incrementAndGet);
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void finishedRunsAreNotReused() {
+        flights.run("batch", runs::incrementAndGet);
+        flights.run("batch", runs::incrementAndGet);
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void failureReachesTheCallerAndIsNotKept() {
+        assertThrows(IllegalStateException.class, () -> flights.run("batch", () -> {
+            throw new IllegalStateException("provider down");
+        }));
+
+        assertEquals(1, flights.run("batch", runs::incrementAndGet));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.btc.address.wallet;
+
+/**
+ * Wallets for tests outside this package, which cannot go through the registry's configuration.
+ */
+public final class TestWallets {
+
+    private TestWallets() {}
+
+    public static Wallet wallet(String id, String xpub) {
+        return new Wallet(id, xpub);
+    }
+}